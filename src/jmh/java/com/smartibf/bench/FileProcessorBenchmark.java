@@ -0,0 +1,56 @@
+// src/jmh/java/com/smartibf/bench/FileProcessorBenchmark.java
+package com.smartibf.bench;
+
+import com.smartibf.utils.FileProcessor;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end streaming processing of generated whitelist files of different sizes and duplicate ratios.
+ * The in-memory path is capped at 1MB, so large files use the streaming API.
+ * Divide gc.alloc.rate.norm by the line count printed at setup to get bytes per record.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class FileProcessorBenchmark {
+    
+    @Param({"1", "100", "1024"})
+    public int sizeMb;
+    
+    @Param({"0.0", "0.3", "0.9"})
+    public double duplicateRatio;
+    
+    private final FileProcessor processor = new FileProcessor();
+    private Path directory;
+    private Path input;
+    private Path output;
+    
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("whitelist_bench_");
+        input = directory.resolve("input.txt");
+        output = directory.resolve("output.txt");
+        long lines = new WhitelistGenerator(duplicateRatio, 0.05, 42).generate(input, sizeMb * 1024L * 1024L);
+        System.out.println("Generated " + lines + " lines");
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(input);
+        Files.deleteIfExists(output);
+        Files.deleteIfExists(directory);
+    }
+    
+    @Benchmark
+    public FileProcessor.StreamSummary processWhitelistFile() throws IOException {
+        return processor.processWhitelistFile(input.toString(), output.toString());
+    }
+}
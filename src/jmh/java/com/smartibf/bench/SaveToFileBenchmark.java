@@ -0,0 +1,53 @@
+// src/jmh/java/com/smartibf/bench/SaveToFileBenchmark.java
+package com.smartibf.bench;
+
+import com.smartibf.utils.FileProcessor;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writing a processed 1MB whitelist with saveToFile
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SaveToFileBenchmark {
+    
+    @Param({"0.1", "0.5"})
+    public double duplicateRatio;
+    
+    private final FileProcessor processor = new FileProcessor();
+    private Path directory;
+    private Path input;
+    private Path output;
+    private FileProcessor.ProcessResult result;
+    
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("whitelist_bench_");
+        input = directory.resolve("input.txt");
+        output = directory.resolve("output.txt");
+        // Stay just under the 1MB limit of the in-memory path
+        new WhitelistGenerator(duplicateRatio, 0.05, 42).generate(input, 1000 * 1024);
+        result = processor.processWhitelistFile(input.toString());
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(input);
+        Files.deleteIfExists(output);
+        Files.deleteIfExists(directory);
+    }
+    
+    @Benchmark
+    public void saveToFile() throws IOException {
+        processor.saveToFile(result, output.toString());
+    }
+}
@@ -0,0 +1,63 @@
+// src/jmh/java/com/smartibf/bench/ValidatorBenchmark.java
+package com.smartibf.bench;
+
+import com.smartibf.utils.PhoneNumberValidator;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of phone number validation on a mix of valid and invalid inputs.
+ * Each operation validates {@link #RECORDS} inputs, so the scores and the gc profiler's
+ * gc.alloc.rate.norm are per record.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ValidatorBenchmark {
+    static final int RECORDS = 1024;
+    
+    private static final String[] SAMPLES = {
+        "639123456789", "09123456789", "+63 912-345-6789", "639 123 456 789",
+        "ABC123", "639123", "6391234567890123", "12345678901", "  ", "+639!@#$%^&*()"
+    };
+    
+    @Param({"0.5", "0.9"})
+    public double validRatio;
+    
+    private final PhoneNumberValidator validator = new PhoneNumberValidator();
+    private String[] inputs;
+    
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        inputs = new String[RECORDS];
+        for (int i = 0; i < RECORDS; i++) {
+            // The first four samples are valid, the rest are not
+            inputs[i] = random.nextDouble() < validRatio
+                ? SAMPLES[random.nextInt(4)]
+                : SAMPLES[4 + random.nextInt(SAMPLES.length - 4)];
+        }
+    }
+    
+    @Benchmark
+    @OperationsPerInvocation(RECORDS)
+    public void validateAndFormatWithReason(Blackhole blackhole) {
+        for (String input : inputs) {
+            blackhole.consume(validator.validateAndFormatWithReason(input));
+        }
+    }
+    
+    @Benchmark
+    @OperationsPerInvocation(RECORDS)
+    public void validateToLong(Blackhole blackhole) {
+        for (String input : inputs) {
+            blackhole.consume(validator.validateToLong(input));
+        }
+    }
+}
@@ -0,0 +1,98 @@
+// src/jmh/java/com/smartibf/bench/WhitelistGenerator.java
+package com.smartibf.bench;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
+
+/**
+ * Generates synthetic whitelist files for benchmarks.
+ * Valid numbers are written in the formats seen in real uploads (639..., 09..., "+63 9xx-xxx-xxxx"),
+ * mixed with repeats of earlier numbers and invalid lines at the requested ratios.
+ *
+ * Usage: WhitelistGenerator output.txt sizeMb [duplicateRatio] [invalidRatio] [seed]
+ */
+public class WhitelistGenerator {
+    private static final int DUPLICATE_POOL_SIZE = 1 << 20;
+    private static final String[] INVALID_LINES = {
+        "ABC123", "639123", "6391234567890123", "12345678901", "", "  ", "09-CALL-ME", "+639!@#$%^&*()"
+    };
+    
+    private final double duplicateRatio;
+    private final double invalidRatio;
+    private final Random random;
+    
+    public WhitelistGenerator(double duplicateRatio, double invalidRatio, long seed) {
+        this.duplicateRatio = duplicateRatio;
+        this.invalidRatio = invalidRatio;
+        this.random = new Random(seed);
+    }
+    
+    /**
+     * Write lines until the file reaches the given size
+     * @param output File to create
+     * @param sizeBytes Target size of the file
+     * @return Number of lines written
+     * @throws IOException If the file cannot be written
+     */
+    public long generate(Path output, long sizeBytes) throws IOException {
+        long[] pool = new long[DUPLICATE_POOL_SIZE];
+        int poolSize = 0;
+        long written = 0;
+        long lines = 0;
+        
+        try (BufferedWriter writer = Files.newBufferedWriter(output, StandardCharsets.UTF_8)) {
+            while (written < sizeBytes) {
+                String line;
+                double roll = random.nextDouble();
+                if (roll < invalidRatio) {
+                    line = INVALID_LINES[random.nextInt(INVALID_LINES.length)];
+                } else if (roll < invalidRatio + duplicateRatio && poolSize > 0) {
+                    line = format(pool[random.nextInt(poolSize)]);
+                } else {
+                    long number = 639_000_000_000L + (long) (random.nextDouble() * 1_000_000_000L);
+                    pool[poolSize < pool.length ? poolSize++ : random.nextInt(pool.length)] = number;
+                    line = format(number);
+                }
+                writer.write(line);
+                writer.newLine();
+                written += line.length() + 1;
+                lines++;
+            }
+        }
+        
+        return lines;
+    }
+    
+    private String format(long number) {
+        String digits = Long.toString(number);
+        switch (random.nextInt(4)) {
+            case 0:
+                return "0" + digits.substring(2);
+            case 1:
+                return "+63 " + digits.substring(2, 5) + "-" + digits.substring(5, 8) + "-" + digits.substring(8);
+            default:
+                return digits;
+        }
+    }
+    
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: WhitelistGenerator output.txt sizeMb [duplicateRatio] [invalidRatio] [seed]");
+            System.exit(1);
+        }
+        
+        Path output = Paths.get(args[0]);
+        long sizeBytes = Long.parseLong(args[1]) * 1024 * 1024;
+        double duplicateRatio = args.length > 2 ? Double.parseDouble(args[2]) : 0.1;
+        double invalidRatio = args.length > 3 ? Double.parseDouble(args[3]) : 0.05;
+        long seed = args.length > 4 ? Long.parseLong(args[4]) : 42;
+        
+        long lines = new WhitelistGenerator(duplicateRatio, invalidRatio, seed).generate(output, sizeBytes);
+        System.out.println("Wrote " + lines + " lines to " + output);
+    }
+}
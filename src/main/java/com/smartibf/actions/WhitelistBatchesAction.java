@@ -0,0 +1,76 @@
+// src/main/java/com/smartibf/actions/WhitelistBatchesAction.java
+package com.smartibf.actions;
+
+import com.opensymphony.xwork2.ActionSupport;
+import com.smartibf.utils.BatchStorage;
+import com.smartibf.utils.Json;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.struts2.ServletActionContext;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+/**
+ * Action listing the stored batches and their files as JSON, answered from the storage index
+ */
+public class WhitelistBatchesAction extends ActionSupport {
+    
+    private static final long serialVersionUID = 1L;
+    private static final Logger LOG = LogManager.getLogger(WhitelistBatchesAction.class);
+    
+    private InputStream inputStream;
+    
+    /**
+     * List every stored batch, newest first
+     */
+    public String list() {
+        BatchStorage storage;
+        try {
+            storage = BatchStorage.get();
+        } catch (IOException e) {
+            LOG.error("Batch storage is unavailable", e);
+            ServletActionContext.getResponse().setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+            inputStream = json("{\"error\":" + Json.quote("Batch storage is unavailable: " + e.getMessage()) + "}");
+            return SUCCESS;
+        }
+        StringBuilder body = new StringBuilder();
+        body.append("{\"storedBytes\":").append(storage.getStoredBytes());
+        body.append(",\"batches\":[");
+        String separator = "";
+        for (BatchStorage.Batch batch : storage.list()) {
+            body.append(separator);
+            body.append("{\"name\":").append(Json.quote(batch.getName()));
+            body.append(",\"lastModified\":\"").append(Instant.ofEpochMilli(batch.getLastModified())).append("\"");
+            body.append(",\"bytes\":").append(batch.getBytes());
+            body.append(",\"processing\":").append(batch.isActive());
+            body.append(",\"compressed\":").append(batch.isCompressed());
+            body.append(",\"files\":[");
+            String fileSeparator = "";
+            for (BatchStorage.StoredFile file : batch.getFiles().values()) {
+                body.append(fileSeparator);
+                body.append("{\"name\":").append(Json.quote(file.getName()));
+                body.append(",\"bytes\":").append(file.getPath() != null ? file.getLength() : file.getGzipLength());
+                body.append("}");
+                fileSeparator = ",";
+            }
+            body.append("]}");
+            separator = ",";
+        }
+        body.append("]}");
+        inputStream = json(body.toString());
+        return SUCCESS;
+    }
+    
+    private static InputStream json(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    public InputStream getInputStream() {
+        return inputStream;
+    }
+}
\ No newline at end of file
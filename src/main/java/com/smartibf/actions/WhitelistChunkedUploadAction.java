@@ -0,0 +1,206 @@
+// src/main/java/com/smartibf/actions/WhitelistChunkedUploadAction.java
+package com.smartibf.actions;
+
+import com.opensymphony.xwork2.ActionSupport;
+import com.smartibf.utils.BatchProcessor;
+import com.smartibf.utils.BatchStorage;
+import com.smartibf.utils.ChunkedUpload;
+import com.smartibf.utils.ChunkedUploads;
+import com.smartibf.utils.FileProcessor;
+import com.smartibf.utils.Json;
+import com.smartibf.utils.ProcessingJob;
+import com.smartibf.utils.ProcessingJobs;
+import com.smartibf.utils.WhitelistIndex;
+import org.apache.commons.io.FileUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.struts2.ServletActionContext;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+/**
+ * Action for chunked, resumable uploads of large whitelist files.
+ * The client starts an upload, then sends the file as raw request bodies with the offset of each
+ * chunk. Processing starts right away and reads the file while it arrives. After a dropped
+ * connection the client asks for the status and resends from the offset the server reports.
+ */
+public class WhitelistChunkedUploadAction extends ActionSupport {
+    
+    private static final long serialVersionUID = 1L;
+    private static final Logger LOG = LogManager.getLogger(WhitelistChunkedUploadAction.class);
+    private static final String STAGING_DIR = ".uploads";
+    private static final long MAX_CHUNK_SIZE = 16 * 1024 * 1024;
+    
+    private String fileName;
+    private String batchName;
+    private String uploadId;
+    private long offset;
+    private boolean last;
+    private InputStream inputStream;
+    
+    private final BatchProcessor batchProcessor = new BatchProcessor(new FileProcessor());
+    
+    /**
+     * Start an upload and the background job that processes it
+     */
+    public String start() {
+        try {
+            if (fileName == null || !fileName.toLowerCase().endsWith(".txt")) {
+                return error(HttpServletResponse.SC_BAD_REQUEST, "Only .txt files are allowed");
+            }
+            
+            // Create unique batch directory for this upload
+            BatchStorage storage = BatchStorage.get();
+            Path directory = storage.create(BatchStorage.newBatchName(batchName));
+            String batchDirName = directory.getFileName().toString();
+            String batchDirectory = directory.toString();
+            File stagingDir = new File(batchDirectory, STAGING_DIR);
+            
+            ChunkedUpload upload = null;
+            try {
+                upload = ChunkedUploads.create(fileName, stagingDir.toPath());
+                WhitelistIndex index = WhitelistIndex.openConfigured(storage.getRoot());
+                upload.setJobId(submit(storage, upload, batchDirectory, batchDirName, index).getId());
+            } catch (Exception e) {
+                // No job will finish the batch, so finish it here rather than leave it active forever
+                if (upload != null) {
+                    ChunkedUploads.remove(upload);
+                }
+                FileUtils.deleteQuietly(stagingDir);
+                storage.complete(batchDirName);
+                throw e;
+            }
+            
+            inputStream = json("{\"uploadId\":\"" + upload.getId() + "\",\"jobId\":\"" + upload.getJobId() + "\",\"offset\":0}");
+            return SUCCESS;
+        
+        } catch (Exception e) {
+            LOG.error("Error starting chunked upload", e);
+            return error(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Error starting upload");
+        }
+    }
+    
+    /**
+     * Submit the job that processes an upload while its chunks arrive, on the pool kept for such streams
+     */
+    private ProcessingJob submit(BatchStorage storage, ChunkedUpload upload, String batchDirectory, String batchDirName,
+                                 WhitelistIndex index) {
+        return ProcessingJobs.submit(batchDirectory, 1, progress -> {
+            try {
+                return batchProcessor.processStream(batchDirectory, batchDirName, upload.openStream(),
+                                                    upload.getFileName(), progress, index);
+            } finally {
+                ChunkedUploads.remove(upload);
+                new File(batchDirectory, STAGING_DIR).delete();
+                storage.complete(batchDirName);
+            }
+        }, ChunkedUploads.streams());
+    }
+    
+    /**
+     * Append the request body at the given offset; the last chunk completes the upload
+     */
+    public String chunk() {
+        ChunkedUpload upload = ChunkedUploads.get(uploadId);
+        if (upload == null) {
+            return error(HttpServletResponse.SC_NOT_FOUND, "Unknown upload");
+        }
+        
+        try {
+            if (!upload.append(ServletActionContext.getRequest().getInputStream(), offset, MAX_CHUNK_SIZE)) {
+                // Out of order or already received; the client resumes from the reported offset
+                ServletActionContext.getResponse().setStatus(HttpServletResponse.SC_CONFLICT);
+            } else if (last) {
+                upload.complete();
+            }
+            return statusOf(upload);
+        
+        } catch (Exception e) {
+            LOG.error("Error receiving chunk for upload " + uploadId, e);
+            return error(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Error receiving chunk: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Report how much of the upload has been received
+     */
+    public String status() {
+        ChunkedUpload upload = ChunkedUploads.get(uploadId);
+        if (upload == null) {
+            return error(HttpServletResponse.SC_NOT_FOUND, "Unknown upload");
+        }
+        return statusOf(upload);
+    }
+    
+    private String statusOf(ChunkedUpload upload) {
+        StringBuilder body = new StringBuilder();
+        body.append("{\"uploadId\":\"").append(upload.getId()).append("\"");
+        body.append(",\"jobId\":\"").append(upload.getJobId()).append("\"");
+        body.append(",\"offset\":").append(upload.getReceived());
+        body.append(",\"complete\":").append(upload.isComplete());
+        body.append("}");
+        inputStream = json(body.toString());
+        return SUCCESS;
+    }
+    
+    private String error(int status, String message) {
+        ServletActionContext.getResponse().setStatus(status);
+        inputStream = json("{\"error\":" + Json.quote(message) + "}");
+        return SUCCESS;
+    }
+    
+    private static InputStream json(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    // Getters and Setters
+    
+    public String getFileName() {
+        return fileName;
+    }
+    
+    public void setFileName(String fileName) {
+        this.fileName = fileName;
+    }
+    
+    public String getBatchName() {
+        return batchName;
+    }
+    
+    public void setBatchName(String batchName) {
+        this.batchName = batchName;
+    }
+    
+    public String getUploadId() {
+        return uploadId;
+    }
+    
+    public void setUploadId(String uploadId) {
+        this.uploadId = uploadId;
+    }
+    
+    public long getOffset() {
+        return offset;
+    }
+    
+    public void setOffset(long offset) {
+        this.offset = offset;
+    }
+    
+    public boolean isLast() {
+        return last;
+    }
+    
+    public void setLast(boolean last) {
+        this.last = last;
+    }
+    
+    public InputStream getInputStream() {
+        return inputStream;
+    }
+}
\ No newline at end of file
@@ -2,14 +2,27 @@
 package com.smartibf.actions;
 
 import com.opensymphony.xwork2.ActionSupport;
+import com.smartibf.utils.AcceptEncoding;
+import com.smartibf.utils.BatchArchive;
+import com.smartibf.utils.BatchStorage;
+import com.smartibf.utils.ByteRange;
+import com.smartibf.utils.ProcessingMetrics;
+import org.apache.commons.io.output.CountingOutputStream;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.struts2.ServletActionContext;
 
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.GZIPInputStream;
 
 /**
 * Action to handle downloading processed whitelist files
@@ -18,42 +31,174 @@ public class WhitelistDownloadAction extends ActionSupport {
    
    private static final long serialVersionUID = 1L;
    private static final Logger LOG = LogManager.getLogger(WhitelistDownloadAction.class);
+   private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+   private static final int INFLATE_BUFFER_SIZE = 64 * 1024;
    
    private String batchDir;
    private String fileName;
-   private InputStream inputStream;
    
    /**
     * Download a processed file
     */
    public String download() {
+       long start = System.nanoTime();
        try {
-           // Get the application's real path
-           String appPath = ServletActionContext.getServletContext().getRealPath("/");
-           
-           // Validate and construct the file path
-           String filePath = appPath + File.separator + batchDir + File.separator + fileName;
-           File file = new File(filePath);
-           
-           // Security check to prevent directory traversal
-           if (!file.getCanonicalPath().startsWith(new File(appPath).getCanonicalPath())) {
-               addActionError("Invalid file path");
-               return ERROR;
-           }
-           
-           if (!file.exists()) {
+           // Only files indexed by the batch storage can be sent, so no path ever comes from the request
+           BatchStorage storage = BatchStorage.get();
+           BatchStorage.Batch batch = storage.acquire(batchDir);
+           BatchStorage.StoredFile file = batch == null || fileName == null ? null : batch.getFiles().get(fileName);
+           if (file == null) {
+               if (batch != null) {
+                   storage.release(batch);
+               }
                addActionError("File not found: " + fileName);
                return ERROR;
            }
            
-           // Set up the file input stream for download
-           inputStream = new FileInputStream(file);
-           return SUCCESS;
+           // Write the file straight to the response; the batch is not compressed or removed meanwhile
+           try {
+               send(file, ServletActionContext.getRequest(), ServletActionContext.getResponse());
+           } finally {
+               storage.release(batch);
+           }
+           return NONE;
            
        } catch (Exception e) {
            LOG.error("Error downloading file", e);
            addActionError("Error downloading file: " + e.getMessage());
            return ERROR;
+       } finally {
+           ProcessingMetrics.DOWNLOAD_TIME.recordSince(start);
+       }
+   }
+   
+   /**
+    * Download every file of a batch as one ZIP archive, compressed while it is sent
+    */
+   public String downloadBatch() {
+       long start = System.nanoTime();
+       try {
+           BatchStorage storage = BatchStorage.get();
+           BatchStorage.Batch batch = storage.acquire(batchDir);
+           if (batch == null) {
+               addActionError("Batch not found: " + batchDir);
+               return ERROR;
+           }
+           
+           try {
+               HttpServletResponse response = ServletActionContext.getResponse();
+               response.setContentType("application/zip");
+               response.setHeader("Content-Disposition", "attachment;filename=\"" + batch.getName() + ".zip\"");
+               
+               // Entries go straight to the response; no archive is written to disk or held in memory
+               CountingOutputStream sent = new CountingOutputStream(response.getOutputStream());
+               try {
+                   BatchArchive.write(batch, sent);
+               } finally {
+                   ProcessingMetrics.DOWNLOAD_BYTES.add(sent.getByteCount());
+               }
+           } finally {
+               storage.release(batch);
+           }
+           return NONE;
+           
+       } catch (Exception e) {
+           LOG.error("Error downloading batch", e);
+           addActionError("Error downloading batch: " + e.getMessage());
+           return ERROR;
+       } finally {
+           ProcessingMetrics.DOWNLOAD_TIME.recordSince(start);
+       }
+   }
+   
+   /**
+    * Send a file, or the requested byte range of it, without copying it through the heap.
+    * A pre-compressed .gz variant is served instead when the client accepts gzip.
+    * Sizes and dates come from the storage index, so the file is only opened to send it.
+    */
+   private void send(BatchStorage.StoredFile file, HttpServletRequest request, HttpServletResponse response)
+       throws IOException {
+       Path served = file.getPath();
+       long length = file.getLength();
+       boolean gzip = false;
+       if (file.getGzipPath() != null) {
+           response.setHeader("Vary", "Accept-Encoding");
+           gzip = AcceptEncoding.acceptsGzip(request.getHeader("Accept-Encoding"));
+           if (gzip) {
+               served = file.getGzipPath();
+               length = file.getGzipLength();
+               response.setHeader("Content-Encoding", "gzip");
+           }
+       }
+       
+       String etag = "\"" + Long.toHexString(length) + "-" + Long.toHexString(file.getLastModified())
+                     + (gzip ? "-gz\"" : "\"");
+       String contentType = ServletActionContext.getServletContext().getMimeType(fileName);
+       response.setContentType(contentType != null ? contentType : "text/plain");
+       response.setHeader("Content-Disposition", "attachment;filename=\"" + fileName + "\"");
+       response.setDateHeader("Last-Modified", file.getLastModified());
+       
+       // A compressed batch only keeps the gzip copy; inflate it for clients that do not accept gzip.
+       // Without a known length (a large copy found on disk) the response falls back to chunked encoding.
+       if (served == null) {
+           if (file.getLength() >= 0) {
+               response.setContentLengthLong(file.getLength());
+           }
+           if (!"HEAD".equals(request.getMethod())) {
+               CountingOutputStream sent = new CountingOutputStream(response.getOutputStream());
+               try (InputStream in = new GZIPInputStream(Files.newInputStream(file.getGzipPath()), INFLATE_BUFFER_SIZE)) {
+                   in.transferTo(sent);
+               } finally {
+                   ProcessingMetrics.DOWNLOAD_BYTES.add(sent.getByteCount());
+               }
+           }
+           return;
+       }
+       response.setHeader("Accept-Ranges", "bytes");
+       response.setHeader("ETag", etag);
+       
+       // Only resume from the same version of the file
+       String ifRange = request.getHeader("If-Range");
+       ByteRange range = ifRange == null || ifRange.equals(etag)
+           ? ByteRange.parse(request.getHeader("Range"), length) : null;
+       if (range == ByteRange.UNSATISFIABLE) {
+           response.setHeader("Content-Range", "bytes */" + length);
+           response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+           return;
+       }
+       
+       long start = range == null ? 0 : range.getStart();
+       long count = range == null ? length : range.getLength();
+       if (range != null) {
+           response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+           response.setHeader("Content-Range", "bytes " + start + "-" + range.getEnd() + "/" + length);
+       }
+       response.setContentLengthLong(count);
+       
+       if ("HEAD".equals(request.getMethod())) {
+           return;
+       }
+       
+       // Let Tomcat hand the file to the socket with sendfile when it can
+       if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+           request.setAttribute("org.apache.tomcat.sendfile.filename", served.toRealPath().toString());
+           request.setAttribute("org.apache.tomcat.sendfile.start", start);
+           request.setAttribute("org.apache.tomcat.sendfile.end", start + count);
+           ProcessingMetrics.DOWNLOAD_BYTES.add(count);
+           return;
+       }
+       
+       try (FileChannel channel = FileChannel.open(served, StandardOpenOption.READ)) {
+           WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+           long position = start;
+           long end = start + count;
+           try {
+               while (position < end) {
+                   position += channel.transferTo(position, end - position, out);
+               }
+           } finally {
+               ProcessingMetrics.DOWNLOAD_BYTES.add(position - start);
+           }
        }
    }
    
@@ -74,8 +219,4 @@ public class WhitelistDownloadAction extends ActionSupport {
    public void setFileName(String fileName) {
        this.fileName = fileName;
    }
-   
-   public InputStream getInputStream() {
-       return inputStream;
-   }
 }
\ No newline at end of file
@@ -0,0 +1,111 @@
+// src/main/java/com/smartibf/actions/WhitelistJobAction.java
+package com.smartibf.actions;
+
+import com.opensymphony.xwork2.ActionSupport;
+import com.smartibf.utils.ProcessingJob;
+import com.smartibf.utils.ProcessingJobs;
+import com.smartibf.utils.ProcessingProgress;
+import com.smartibf.utils.ProcessingSummary;
+import com.smartibf.utils.WhitelistIndex;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Action to report the progress and results of background processing jobs
+ */
+public class WhitelistJobAction extends ActionSupport {
+    
+    private static final long serialVersionUID = 1L;
+    private static final String PROCESSING = "processing";
+    
+    private String jobId;
+    private ProcessingJob job;
+    private InputStream inputStream;
+    
+    /**
+     * Report job progress as JSON for the polling page
+     */
+    public String status() {
+        job = ProcessingJobs.get(jobId);
+        if (job == null) {
+            inputStream = json("{\"error\":\"Unknown job\"}");
+            return SUCCESS;
+        }
+        
+        ProcessingProgress progress = job.getProgress();
+        StringBuilder body = new StringBuilder();
+        body.append("{\"jobId\":\"").append(job.getId()).append("\"");
+        body.append(",\"state\":\"").append(job.getState()).append("\"");
+        body.append(",\"finished\":").append(job.isFinished());
+        body.append(",\"fileCount\":").append(job.getFileCount());
+        body.append(",\"filesCompleted\":").append(progress.getFilesCompleted());
+        body.append(",\"recordsProcessed\":").append(progress.getRecordsProcessed());
+        body.append(",\"validRecords\":").append(progress.getValidRecords());
+        body.append(",\"invalidRecords\":").append(progress.getInvalidRecords());
+        body.append(",\"duplicateRecords\":").append(progress.getDuplicateRecords());
+        body.append("}");
+        inputStream = json(body.toString());
+        return SUCCESS;
+    }
+    
+    /**
+     * Show the results of a job once it has finished, or the progress page until then
+     */
+    public String result() {
+        job = ProcessingJobs.get(jobId);
+        if (job == null) {
+            addActionError("Processing job not found or expired");
+            return ERROR;
+        }
+        
+        if (!job.isFinished()) {
+            return PROCESSING;
+        }
+        
+        if (job.getState() == ProcessingJob.State.FAILED) {
+            addActionError("Error processing upload: " + job.getErrorMessage());
+            return ERROR;
+        }
+        
+        return SUCCESS;
+    }
+    
+    private static InputStream json(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    // Getters and Setters
+    
+    public String getJobId() {
+        return jobId;
+    }
+    
+    public void setJobId(String jobId) {
+        this.jobId = jobId;
+    }
+    
+    public String getBatchDirectory() {
+        return job == null ? null : job.getBatchDirectory();
+    }
+    
+    public String getBatchDirName() {
+        return job == null ? null : new File(job.getBatchDirectory()).getName();
+    }
+    
+    public List<ProcessingSummary> getSummaries() {
+        return job == null ? Collections.emptyList() : job.getSummaries();
+    }
+    
+    public boolean isIndexEnabled() {
+        return WhitelistIndex.isEnabled();
+    }
+    
+    public InputStream getInputStream() {
+        return inputStream;
+    }
+}
\ No newline at end of file
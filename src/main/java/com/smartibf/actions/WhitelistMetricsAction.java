@@ -0,0 +1,31 @@
+// src/main/java/com/smartibf/actions/WhitelistMetricsAction.java
+package com.smartibf.actions;
+
+import com.opensymphony.xwork2.ActionSupport;
+import com.smartibf.utils.ProcessingMetrics;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Action exposing the processing metrics for a Prometheus scraper
+ */
+public class WhitelistMetricsAction extends ActionSupport {
+    
+    private static final long serialVersionUID = 1L;
+    
+    private InputStream inputStream;
+    
+    /**
+     * Render the current metrics in the Prometheus text format
+     */
+    public String scrape() {
+        inputStream = new ByteArrayInputStream(ProcessingMetrics.scrape().getBytes(StandardCharsets.UTF_8));
+        return SUCCESS;
+    }
+    
+    public InputStream getInputStream() {
+        return inputStream;
+    }
+}
\ No newline at end of file
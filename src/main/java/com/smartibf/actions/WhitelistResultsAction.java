@@ -0,0 +1,183 @@
+// src/main/java/com/smartibf/actions/WhitelistResultsAction.java
+package com.smartibf.actions;
+
+import com.opensymphony.xwork2.ActionSupport;
+import com.smartibf.utils.BatchStorage;
+import com.smartibf.utils.InvalidReason;
+import com.smartibf.utils.Json;
+import com.smartibf.utils.ResultIndex;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.struts2.ServletActionContext;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Action serving pages of the records in a processed output file as JSON.
+ * Pages are read through the file's offset index, so browsing a large result only reads the
+ * requested page instead of loading the whole file.
+ */
+public class WhitelistResultsAction extends ActionSupport {
+    
+    private static final long serialVersionUID = 1L;
+    private static final Logger LOG = LogManager.getLogger(WhitelistResultsAction.class);
+    private static final String VALID = "valid";
+    private static final String INVALID = "invalid";
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 1000;
+    
+    private String batchDir;
+    private String fileName;
+    private String section = VALID;
+    private String reason;
+    private int page = 1;
+    private int pageSize = DEFAULT_PAGE_SIZE;
+    private InputStream inputStream;
+    
+    /**
+     * Return one page of valid records, or of invalid records optionally filtered by reason
+     */
+    public String page() {
+        try {
+            InvalidReason filter = null;
+            if (reason != null && !reason.isEmpty()) {
+                try {
+                    filter = InvalidReason.valueOf(reason);
+                } catch (IllegalArgumentException e) {
+                    return error(HttpServletResponse.SC_BAD_REQUEST, "Unknown reason: " + reason);
+                }
+            }
+            boolean valid = filter == null && VALID.equals(section);
+            if (!valid && filter == null && !INVALID.equals(section)) {
+                return error(HttpServletResponse.SC_BAD_REQUEST, "Unknown section: " + section);
+            }
+            if (page < 1 || pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+                return error(HttpServletResponse.SC_BAD_REQUEST,
+                             "Pages start at 1 and hold at most " + MAX_PAGE_SIZE + " records");
+            }
+            
+            // Only files indexed by the batch storage can be read, so no path ever comes from the request
+            BatchStorage storage = BatchStorage.get();
+            BatchStorage.Batch batch = storage.acquire(batchDir);
+            if (batch == null) {
+                return error(HttpServletResponse.SC_NOT_FOUND, "File not found: " + fileName);
+            }
+            long total;
+            List<ResultIndex.Record> records;
+            try {
+                BatchStorage.StoredFile file = fileName == null ? null : batch.getFiles().get(fileName);
+                if (file == null) {
+                    return error(HttpServletResponse.SC_NOT_FOUND, "File not found: " + fileName);
+                }
+                if (file.getPath() == null) {
+                    file = storage.inflate(batch, fileName);
+                }
+                
+                ResultIndex index = ResultIndex.open(file.getPath());
+                long from = (long) (page - 1) * pageSize;
+                total = valid ? index.getValidCount() : index.getInvalidCount(filter);
+                records = valid ? index.readValid(from, pageSize) : index.readInvalid(filter, from, pageSize);
+            } finally {
+                storage.release(batch);
+            }
+            
+            StringBuilder body = new StringBuilder();
+            body.append("{\"fileName\":").append(Json.quote(fileName));
+            body.append(",\"section\":\"").append(valid ? VALID : INVALID).append("\"");
+            body.append(",\"reason\":").append(filter == null ? "null" : "\"" + filter.name() + "\"");
+            body.append(",\"page\":").append(page);
+            body.append(",\"pageSize\":").append(pageSize);
+            body.append(",\"totalRecords\":").append(total);
+            body.append(",\"totalPages\":").append((total + pageSize - 1) / pageSize);
+            body.append(",\"records\":[");
+            for (int i = 0; i < records.size(); i++) {
+                ResultIndex.Record record = records.get(i);
+                body.append(i == 0 ? "{" : ",{");
+                if (valid) {
+                    body.append("\"number\":").append(Json.quote(record.getLine()));
+                } else {
+                    body.append("\"line\":").append(Json.quote(record.getLine()));
+                    body.append(",\"reason\":").append(record.getReason() == null
+                        ? "null" : "\"" + record.getReason().name() + "\"");
+                    body.append(",\"text\":").append(Json.quote(record.getReasonText()));
+                }
+                body.append("}");
+            }
+            body.append("]}");
+            inputStream = json(body.toString());
+            return SUCCESS;
+        
+        } catch (Exception e) {
+            LOG.error("Error reading results page", e);
+            return error(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Error reading results: " + e.getMessage());
+        }
+    }
+    
+    private String error(int status, String message) {
+        ServletActionContext.getResponse().setStatus(status);
+        inputStream = json("{\"error\":" + Json.quote(message) + "}");
+        return SUCCESS;
+    }
+    
+    private static InputStream json(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    // Getters and Setters
+    
+    public String getBatchDir() {
+        return batchDir;
+    }
+    
+    public void setBatchDir(String batchDir) {
+        this.batchDir = batchDir;
+    }
+    
+    public String getFileName() {
+        return fileName;
+    }
+    
+    public void setFileName(String fileName) {
+        this.fileName = fileName;
+    }
+    
+    public String getSection() {
+        return section;
+    }
+    
+    public void setSection(String section) {
+        this.section = section;
+    }
+    
+    public String getReason() {
+        return reason;
+    }
+    
+    public void setReason(String reason) {
+        this.reason = reason;
+    }
+    
+    public int getPage() {
+        return page;
+    }
+    
+    public void setPage(int page) {
+        this.page = page;
+    }
+    
+    public int getPageSize() {
+        return pageSize;
+    }
+    
+    public void setPageSize(int pageSize) {
+        this.pageSize = pageSize;
+    }
+    
+    public InputStream getInputStream() {
+        return inputStream;
+    }
+}
\ No newline at end of file
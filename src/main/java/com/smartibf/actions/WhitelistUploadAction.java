@@ -2,18 +2,27 @@
 package com.smartibf.actions;
 
 import com.opensymphony.xwork2.ActionSupport;
+import com.smartibf.utils.BatchProcessor;
+import com.smartibf.utils.BatchStorage;
 import com.smartibf.utils.FileProcessor;
-import com.smartibf.utils.FileProcessor.ProcessResult;
-import org.apache.commons.io.FilenameUtils;
+import com.smartibf.utils.OutputFormat;
+import com.smartibf.utils.ProcessingJob;
+import com.smartibf.utils.ProcessingJobs;
+import com.smartibf.utils.ProcessingMetrics;
+import com.smartibf.utils.ProcessingProgress;
+import com.smartibf.utils.ProcessingSummary;
+import com.smartibf.utils.WhitelistIndex;
+import org.apache.commons.io.FileUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.apache.struts2.ServletActionContext;
 
 import java.io.File;
-import java.text.SimpleDateFormat;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.Date;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Action to handle whitelist file uploads and processing
@@ -22,116 +31,153 @@ public class WhitelistUploadAction extends ActionSupport {
     
     private static final long serialVersionUID = 1L;
     private static final Logger LOG = LogManager.getLogger(WhitelistUploadAction.class);
-    private static final String OUTPUT_DIR = "processed_whitelists";
+    private static final String STAGING_DIR = ".uploads";
     
     private List<File> whitelistFiles;
     private List<String> whitelistFilesContentType;
     private List<String> whitelistFilesFileName;
     private String batchName;
+    private List<String> outputFormats;
+    private boolean crossFileDedup;
     
     // Results storage
+    private String batchDirName;
     private String batchDirectory;
     private List<ProcessingSummary> summaries = new ArrayList<>();
     
-    private final FileProcessor fileProcessor = new FileProcessor();
+    private String jobId;
+    
+    private final BatchProcessor batchProcessor = new BatchProcessor(new FileProcessor());
     
     /**
      * Upload and process whitelist files
      */
     public String upload() {
+        long start = System.nanoTime();
         try {
-            if (whitelistFiles == null || whitelistFiles.isEmpty()) {
-                addActionError("No files were uploaded");
-                return INPUT;
+            if (!prepareBatch()) {
+                return whitelistFiles == null || whitelistFiles.isEmpty() ? INPUT : ERROR;
             }
             
-            // Create unique batch directory for this upload
-            String timestamp = new SimpleDateFormat("yyyyMMdd_HHmmss").format(new Date());
-            String batchDirName = batchName == null || batchName.trim().isEmpty() ? 
-                "batch_" + timestamp : batchName.trim() + "_" + timestamp;
-            
-            // Get the application's real path
-            String appPath = ServletActionContext.getServletContext().getRealPath("/");
-            batchDirectory = appPath + File.separator + OUTPUT_DIR + File.separator + batchDirName;
-            
-            // Create directory
-            File batchDir = new File(batchDirectory);
-            if (!batchDir.exists() && !batchDir.mkdirs()) {
-                addActionError("Failed to create output directory");
-                return ERROR;
+            // Process the uploaded files
+            BatchStorage storage = BatchStorage.get();
+            try {
+                summaries = batchProcessor.process(batchDirectory, batchDirName, whitelistFiles, whitelistFilesFileName,
+                                                   new ProcessingProgress(), WhitelistIndex.openConfigured(storage.getRoot()));
+            } finally {
+                storage.complete(batchDirName);
             }
             
-            // Process each uploaded file
-            StringBuilder batchSummary = new StringBuilder();
-            batchSummary.append("Batch Processing Summary\n");
-            batchSummary.append("=======================\n");
-            batchSummary.append("Batch: ").append(batchDirName).append("\n");
-            batchSummary.append("Processed on: ").append(new Date()).append("\n\n");
+            return SUCCESS;
+        
+        } catch (Exception e) {
+            LOG.error("Error in upload process", e);
+            addActionError("Error processing upload: " + e.getMessage());
+            return ERROR;
+        } finally {
+            ProcessingMetrics.UPLOAD_TIME.recordSince(start);
+        }
+    }
+    
+    /**
+     * Upload whitelist files and process them in the background.
+     * Returns immediately with a job id that the status page polls.
+     */
+    public String uploadAsync() {
+        long start = System.nanoTime();
+        try {
+            if (!prepareBatch()) {
+                return whitelistFiles == null || whitelistFiles.isEmpty() ? INPUT : ERROR;
+            }
             
-            for (int i = 0; i < whitelistFiles.size(); i++) {
-                File file = whitelistFiles.get(i);
-                String fileName = whitelistFilesFileName.get(i);
-                
-                try {
-                    // Process the file
-                    ProcessResult result = fileProcessor.processWhitelistFile(file.getAbsolutePath());
-                    
-                    // Create output filename
-                    String baseName = FilenameUtils.getBaseName(fileName);
-                    String outputFileName = baseName + "_cleaned.txt";
-                    String outputPath = batchDirectory + File.separator + outputFileName;
-                    
-                    // Save results to output file
-                    fileProcessor.saveToFile(result, outputPath);
-                    
-                    // Add summary for this file
-                    ProcessingSummary summary = new ProcessingSummary();
-                    summary.setFileName(fileName);
-                    summary.setOutputFileName(outputFileName);
-                    summary.setTotalRecords(result.getTotalRecords());
-                    summary.setValidRecords(result.getValidCount());
-                    summary.setInvalidRecords(result.getInvalidRecords());
-                    summary.setDuplicateRecords(result.getDuplicates());
-                    summaries.add(summary);
-                    
-                    // Add to batch summary
-                    batchSummary.append("File: ").append(fileName).append("\n");
-                    batchSummary.append("  Total records: ").append(result.getTotalRecords()).append("\n");
-                    batchSummary.append("  Valid records: ").append(result.getValidCount()).append("\n");
-                    batchSummary.append("  Invalid records: ").append(result.getInvalidRecords()).append("\n");
-                    batchSummary.append("  Duplicate records: ").append(result.getDuplicates()).append("\n");
-                    batchSummary.append("  Saved to: ").append(outputFileName).append("\n\n");
-                    
-                } catch (Exception e) {
-                    LOG.error("Error processing file: " + fileName, e);
-                    
-                    // Add error summary
-                    ProcessingSummary summary = new ProcessingSummary();
-                    summary.setFileName(fileName);
-                    summary.setError(true);
-                    summary.setErrorMessage(e.getMessage());
-                    summaries.add(summary);
-                    
-                    // Add to batch summary
-                    batchSummary.append("File: ").append(fileName).append("\n");
-                    batchSummary.append("  Error: ").append(e.getMessage()).append("\n\n");
+            // Struts deletes uploaded temp files when the request ends, so keep them for the job
+            File stagingDir = new File(batchDirectory, STAGING_DIR);
+            BatchStorage storage = BatchStorage.get();
+            try {
+                List<File> stagedFiles = new ArrayList<>();
+                for (int i = 0; i < whitelistFiles.size(); i++) {
+                    File staged = new File(stagingDir, i + ".upload");
+                    FileUtils.moveFile(whitelistFiles.get(i), staged);
+                    stagedFiles.add(staged);
                 }
+                
+                // The job runs after the request, so it only uses copies of the fields it needs
+                List<String> fileNames = new ArrayList<>(whitelistFilesFileName);
+                String directory = batchDirectory;
+                String name = batchDirName;
+                WhitelistIndex index = WhitelistIndex.openConfigured(storage.getRoot());
+                ProcessingJob job = ProcessingJobs.submit(batchDirectory, stagedFiles.size(), progress -> {
+                    try {
+                        return batchProcessor.process(directory, name, stagedFiles, fileNames, progress, index);
+                    } finally {
+                        FileUtils.deleteQuietly(stagingDir);
+                        storage.complete(name);
+                    }
+                });
+                jobId = job.getId();
+            } catch (Exception e) {
+                // No job will finish the batch, so finish it here rather than leave it active forever
+                FileUtils.deleteQuietly(stagingDir);
+                storage.complete(batchDirName);
+                throw e;
             }
             
-            // Save batch summary
-            String summaryPath = batchDirectory + File.separator + "_processing_summary.txt";
-            java.nio.file.Files.write(java.nio.file.Paths.get(summaryPath), 
-                                     batchSummary.toString().getBytes());
-            
             return SUCCESS;
-            
+        
         } catch (Exception e) {
             LOG.error("Error in upload process", e);
             addActionError("Error processing upload: " + e.getMessage());
             return ERROR;
+        } finally {
+            ProcessingMetrics.UPLOAD_TIME.recordSince(start);
         }
     }
     
+    /**
+     * Validate the upload and create its batch directory
+     * @return Whether the batch directory was created; otherwise the upload cannot be processed
+     */
+    private boolean prepareBatch() {
+        if (whitelistFiles == null || whitelistFiles.isEmpty()) {
+            addActionError("No files were uploaded");
+            return false;
+        }
+        
+        batchProcessor.setOutputFormats(selectedOutputFormats());
+        batchProcessor.setCrossFileDedup(crossFileDedup);
+        
+        // Create unique batch directory for this upload
+        batchDirName = BatchStorage.newBatchName(batchName);
+        
+        // Create directory
+        try {
+            Path directory = BatchStorage.get().create(batchDirName);
+            batchDirName = directory.getFileName().toString();
+            batchDirectory = directory.toString();
+        } catch (IOException e) {
+            LOG.error("Error creating batch directory " + batchDirName, e);
+            addActionError("Failed to create output directory: " + e.getMessage());
+            return false;
+        }
+        
+        return true;
+    }
+    
+    /**
+     * Map the checked output formats to their enum values, ignoring unknown names
+     */
+    private Set<OutputFormat> selectedOutputFormats() {
+        Set<OutputFormat> formats = EnumSet.noneOf(OutputFormat.class);
+        if (outputFormats != null) {
+            for (OutputFormat format : OutputFormat.values()) {
+                if (outputFormats.contains(format.name())) {
+                    formats.add(format);
+                }
+            }
+        }
+        return formats;
+    }
+    
     // Getters and Setters
     
     public List<File> getWhitelistFiles() {
@@ -166,91 +212,39 @@ public class WhitelistUploadAction extends ActionSupport {
         this.batchName = batchName;
     }
     
+    public List<String> getOutputFormats() {
+        return outputFormats;
+    }
+    
+    public void setOutputFormats(List<String> outputFormats) {
+        this.outputFormats = outputFormats;
+    }
+    
+    public boolean isCrossFileDedup() {
+        return crossFileDedup;
+    }
+    
+    public void setCrossFileDedup(boolean crossFileDedup) {
+        this.crossFileDedup = crossFileDedup;
+    }
+    
     public String getBatchDirectory() {
         return batchDirectory;
     }
     
+    public String getBatchDirName() {
+        return batchDirName;
+    }
+    
     public List<ProcessingSummary> getSummaries() {
         return summaries;
     }
     
-    /**
-     * Inner class to represent file processing summary for the view
-     */
-    public static class ProcessingSummary {
-        private String fileName;
-        private String outputFileName;
-        private int totalRecords;
-        private int validRecords;
-        private int invalidRecords;
-        private int duplicateRecords;
-        private boolean error;
-        private String errorMessage;
-        
-        // Getters and Setters
-        
-        public String getFileName() {
-            return fileName;
-        }
-        
-        public void setFileName(String fileName) {
-            this.fileName = fileName;
-        }
-        
-        public String getOutputFileName() {
-            return outputFileName;
-        }
-        
-        public void setOutputFileName(String outputFileName) {
-            this.outputFileName = outputFileName;
-        }
-        
-        public int getTotalRecords() {
-            return totalRecords;
-        }
-        
-        public void setTotalRecords(int totalRecords) {
-            this.totalRecords = totalRecords;
-        }
-        
-        public int getValidRecords() {
-            return validRecords;
-        }
-        
-        public void setValidRecords(int validRecords) {
-            this.validRecords = validRecords;
-        }
-        
-        public int getInvalidRecords() {
-            return invalidRecords;
-        }
-        
-        public void setInvalidRecords(int invalidRecords) {
-            this.invalidRecords = invalidRecords;
-        }
-        
-        public int getDuplicateRecords() {
-            return duplicateRecords;
-        }
-        
-        public void setDuplicateRecords(int duplicateRecords) {
-            this.duplicateRecords = duplicateRecords;
-        }
-        
-        public boolean isError() {
-            return error;
-        }
-        
-        public void setError(boolean error) {
-            this.error = error;
-        }
-        
-        public String getErrorMessage() {
-            return errorMessage;
-        }
-        
-        public void setErrorMessage(String errorMessage) {
-            this.errorMessage = errorMessage;
-        }
+    public boolean isIndexEnabled() {
+        return WhitelistIndex.isEnabled();
+    }
+    
+    public String getJobId() {
+        return jobId;
     }
 }
\ No newline at end of file
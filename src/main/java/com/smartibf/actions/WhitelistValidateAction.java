@@ -0,0 +1,85 @@
+// src/main/java/com/smartibf/actions/WhitelistValidateAction.java
+package com.smartibf.actions;
+
+import com.opensymphony.xwork2.ActionSupport;
+import com.smartibf.utils.BulkValidator;
+import com.smartibf.utils.FileProcessor;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.struts2.ServletActionContext;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedWriter;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * REST endpoint validating numbers for programmatic clients.
+ * The request body is a JSON array of numbers, or NDJSON with one number per line when sent as
+ * {@code application/x-ndjson}. The response streams one result per number in the same format,
+ * unless the Accept header asks for the other one. Results are written while the request is read
+ * and the connection is never closed by the action, so clients can send many requests over one
+ * keep-alive connection. A malformed request ends the results with an error; it is answered with
+ * 400 if no results have been sent yet.
+ */
+public class WhitelistValidateAction extends ActionSupport {
+    
+    private static final long serialVersionUID = 1L;
+    private static final Logger LOG = LogManager.getLogger(WhitelistValidateAction.class);
+    private static final String NDJSON = "ndjson";
+    private static final String JSON_CONTENT_TYPE = "application/json;charset=UTF-8";
+    private static final String NDJSON_CONTENT_TYPE = "application/x-ndjson;charset=UTF-8";
+    private static final int MAX_RECORDS = Integer.getInteger("whitelist.api.maxRecords", 1_000_000);
+    private static final int RESPONSE_BUFFER_SIZE = 16 * 1024;
+    
+    private final BulkValidator bulkValidator = new BulkValidator(new FileProcessor());
+    
+    /**
+     * Validate the numbers in the request body
+     */
+    public String bulk() {
+        HttpServletRequest request = ServletActionContext.getRequest();
+        HttpServletResponse response = ServletActionContext.getResponse();
+        try {
+            if (!"POST".equals(request.getMethod())) {
+                response.setHeader("Allow", "POST");
+                response.sendError(HttpServletResponse.SC_METHOD_NOT_ALLOWED);
+                return NONE;
+            }
+            
+            String contentType = request.getContentType();
+            boolean ndjsonIn = contentType != null && contentType.contains(NDJSON);
+            String accept = request.getHeader("Accept");
+            boolean ndjsonOut = accept == null || (!accept.contains(NDJSON) && !accept.contains("application/json"))
+                ? ndjsonIn : accept.contains(NDJSON);
+            response.setContentType(ndjsonOut ? NDJSON_CONTENT_TYPE : JSON_CONTENT_TYPE);
+            
+            Reader in = new InputStreamReader(request.getInputStream(), StandardCharsets.UTF_8);
+            Writer out = new BufferedWriter(new OutputStreamWriter(response.getOutputStream(), StandardCharsets.UTF_8),
+                                            RESPONSE_BUFFER_SIZE);
+            BulkValidator.Summary summary = bulkValidator.validate(in, ndjsonIn, out, ndjsonOut,
+                                                                   request.getContentLengthLong(), MAX_RECORDS);
+            if (summary.getErrorMessage() != null) {
+                // Still possible when the error came before a buffer's worth of results
+                if (!response.isCommitted()) {
+                    response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+                }
+                LOG.warn("Bulk validation request cut short after " + summary.getTotalRecords() + " records: "
+                         + summary.getErrorMessage());
+            }
+            return NONE;
+        
+        } catch (Exception e) {
+            LOG.error("Error validating numbers", e);
+            if (!response.isCommitted()) {
+                response.reset();
+                response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+            }
+            return NONE;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,29 @@
+// src/main/java/com/smartibf/listeners/BatchStorageListener.java
+package com.smartibf.listeners;
+
+import com.smartibf.utils.BatchStorage;
+
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+import java.nio.file.Paths;
+
+/**
+ * Points the batch storage at the directory inside the web application where earlier versions
+ * kept processed batches, so an upgraded deployment still finds them
+ */
+public class BatchStorageListener implements ServletContextListener {
+    
+    private static final String LEGACY_OUTPUT_DIR = "processed_whitelists";
+    
+    @Override
+    public void contextInitialized(ServletContextEvent event) {
+        String appPath = event.getServletContext().getRealPath("/");
+        if (appPath != null) {
+            BatchStorage.setLegacyRoot(Paths.get(appPath, LEGACY_OUTPUT_DIR));
+        }
+    }
+    
+    @Override
+    public void contextDestroyed(ServletContextEvent event) {
+    }
+}
\ No newline at end of file
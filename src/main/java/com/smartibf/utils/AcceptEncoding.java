@@ -0,0 +1,60 @@
+// src/main/java/com/smartibf/utils/AcceptEncoding.java
+package com.smartibf.utils;
+
+import java.util.Locale;
+
+/**
+ * Content codings accepted by the client of an HTTP request, as listed in its Accept-Encoding header
+ */
+public final class AcceptEncoding {
+    
+    private AcceptEncoding() {
+    }
+    
+    /**
+     * Tell whether a gzip response is acceptable. Codings are matched by name, not by substring, and a
+     * quality of 0 refuses a coding; {@code *} stands for gzip unless gzip is listed itself.
+     * Malformed qualities refuse the coding they belong to.
+     * @param header The Accept-Encoding header, may be null
+     * @return Whether gzip or x-gzip is accepted; false without a header
+     */
+    public static boolean acceptsGzip(String header) {
+        if (header == null) {
+            return false;
+        }
+        
+        Boolean gzip = null;
+        boolean any = false;
+        for (String element : header.split(",")) {
+            int semicolon = element.indexOf(';');
+            String coding = (semicolon < 0 ? element : element.substring(0, semicolon)).trim().toLowerCase(Locale.ROOT);
+            boolean accepted = semicolon < 0 || quality(element.substring(semicolon + 1)) > 0;
+            if (coding.equals("gzip") || coding.equals("x-gzip")) {
+                // A coding listed twice is accepted if either entry accepts it
+                gzip = accepted || Boolean.TRUE.equals(gzip);
+            } else if (coding.equals("*")) {
+                any |= accepted;
+            }
+        }
+        return gzip != null ? gzip : any;
+    }
+    
+    /**
+     * @param parameters The parameters following a coding, such as {@code q=0.5}
+     * @return The quality they give, 1 if they give none, or 0 if it is malformed
+     */
+    private static double quality(String parameters) {
+        for (String parameter : parameters.split(";")) {
+            int equals = parameter.indexOf('=');
+            if (equals >= 0 && parameter.substring(0, equals).trim().equalsIgnoreCase("q")) {
+                try {
+                    double quality = Double.parseDouble(parameter.substring(equals + 1).trim());
+                    return quality >= 0 && quality <= 1 ? quality : 0;
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+}
\ No newline at end of file
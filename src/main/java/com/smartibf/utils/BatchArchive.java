@@ -0,0 +1,46 @@
+// src/main/java/com/smartibf/utils/BatchArchive.java
+package com.smartibf.utils;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Writes every file of a batch as one ZIP archive, compressing while it is written, so no archive
+ * is ever kept on disk or in memory. Hidden working files are not part of a batch listing and so
+ * never end up in the archive; files of a compressed batch are inflated into it.
+ */
+public final class BatchArchive {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    
+    private BatchArchive() {
+    }
+    
+    /**
+     * @param batch The batch to archive; the caller keeps it from being compressed or removed meanwhile
+     * @param out Receives the archive; flushed, not closed
+     */
+    public static void write(BatchStorage.Batch batch, OutputStream out) throws IOException {
+        ZipOutputStream zip = new ZipOutputStream(new BufferedOutputStream(out, BUFFER_SIZE));
+        for (BatchStorage.StoredFile file : batch.getFiles().values()) {
+            ZipEntry entry = new ZipEntry(file.getName());
+            entry.setTime(file.getLastModified());
+            zip.putNextEntry(entry);
+            if (file.getPath() != null) {
+                Files.copy(file.getPath(), zip);
+            } else {
+                try (InputStream in = new GZIPInputStream(Files.newInputStream(file.getGzipPath()), BUFFER_SIZE)) {
+                    in.transferTo(zip);
+                }
+            }
+            zip.closeEntry();
+        }
+        zip.finish();
+        zip.flush();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,152 @@
+// src/main/java/com/smartibf/utils/BatchDedup.java
+package com.smartibf.utils;
+
+import java.util.BitSet;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.LongPredicate;
+
+/**
+ * Valid numbers of all files in one upload batch, each with the earliest file (in upload order)
+ * that contains it. Files can claim their numbers in parallel and in any order: a claim only ever
+ * lowers the owner, so once every file has been claimed the owner of a number does not depend on
+ * which thread got there first. The numbers are split over independently locked stripes, so
+ * concurrent claims rarely wait for each other. Safe for concurrent use.
+ * <p>
+ * Ownership is decided before any file is written, so an owner can still fail while it is being
+ * processed. Each file therefore remembers which earlier files it left numbers to, and can find out
+ * once those have finished whether it has to be processed again without the failed ones.
+ */
+public class BatchDedup {
+    private static final int STRIPE_BITS = 6;
+    
+    private final LongHashSet[] stripes = new LongHashSet[1 << STRIPE_BITS];
+    private final Map<Integer, BitSet> deferredTo = new ConcurrentHashMap<>();
+    private final Map<Integer, CompletableFuture<Boolean>> outcomes = new ConcurrentHashMap<>();
+    
+    /**
+     * @param expectedSize Number of distinct numbers expected across the batch
+     * @param offHeap Whether the tables are allocated in direct buffers outside the Java heap
+     */
+    public BatchDedup(int expectedSize, boolean offHeap) {
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new LongHashSet(expectedSize / stripes.length, offHeap);
+        }
+    }
+    
+    /**
+     * Record that a file contains a number
+     * @param number A formatted number
+     * @param fileIndex Position of the file in the upload
+     */
+    public void claim(long number, int fileIndex) {
+        LongHashSet stripe = stripeFor(number);
+        synchronized (stripe) {
+            stripe.putIfLower(number, fileIndex);
+        }
+    }
+    
+    /**
+     * @param number A formatted number
+     * @return The earliest file that claimed the number, or {@link LongHashSet#ABSENT} if none did
+     */
+    public int owner(long number) {
+        LongHashSet stripe = stripeFor(number);
+        synchronized (stripe) {
+            return stripe.positionOf(number);
+        }
+    }
+    
+    /**
+     * Test for numbers that an earlier file of the batch keeps. The earlier files the test answers
+     * true for are remembered for {@link #dependsOnFailedFile(int)}.
+     * @param fileIndex Position of a file in the upload
+     * @return Test for numbers that an earlier file of the batch keeps
+     */
+    public LongPredicate inEarlierFile(int fileIndex) {
+        BitSet owners = deferredTo.computeIfAbsent(fileIndex, i -> new BitSet());
+        return number -> {
+            int owner = owner(number);
+            if (owner == LongHashSet.ABSENT || owner >= fileIndex) {
+                return false;
+            }
+            synchronized (owners) {
+                owners.set(owner);
+            }
+            return true;
+        };
+    }
+    
+    /**
+     * Test for numbers that an earlier file of the batch keeps, ignoring earlier files that failed.
+     * Only meant for processing a file again once {@link #dependsOnFailedFile(int)} has returned.
+     * A number owned by a failed file is kept, even if a file between the two also keeps it.
+     * @param fileIndex Position of a file in the upload
+     * @return Test for numbers that an earlier, successfully processed file of the batch keeps
+     */
+    public LongPredicate inEarlierSucceededFile(int fileIndex) {
+        return number -> {
+            int owner = owner(number);
+            return owner != LongHashSet.ABSENT && owner < fileIndex && outcome(owner).getNow(Boolean.TRUE);
+        };
+    }
+    
+    /**
+     * Record how processing a file ended; every file of the batch must report, including failures
+     * @param fileIndex Position of the file in the upload
+     * @param succeeded Whether the file produced its output
+     */
+    public void fileFinished(int fileIndex, boolean succeeded) {
+        outcome(fileIndex).complete(succeeded);
+    }
+    
+    /**
+     * Wait for the earlier files a file left numbers to, and check whether any of them failed.
+     * Files finish in any order but are started in upload order, so the waited for files are
+     * always already running.
+     * @param fileIndex Position of a file in the upload, after it was processed
+     * @return true if numbers of the file were left to a file that failed, and are now missing
+     * @throws InterruptedException If interrupted while waiting
+     */
+    public boolean dependsOnFailedFile(int fileIndex) throws InterruptedException {
+        BitSet owners = deferredTo.getOrDefault(fileIndex, new BitSet());
+        synchronized (owners) {
+            owners = (BitSet) owners.clone();
+        }
+        for (int owner = owners.nextSetBit(0); owner >= 0; owner = owners.nextSetBit(owner + 1)) {
+            try {
+                if (!outcome(owner).get()) {
+                    return true;
+                }
+            } catch (ExecutionException e) {
+                // Never completed exceptionally
+                throw new IllegalStateException(e);
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * @return Number of distinct numbers claimed
+     */
+    public int size() {
+        int size = 0;
+        for (LongHashSet stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.size();
+            }
+        }
+        return size;
+    }
+    
+    private CompletableFuture<Boolean> outcome(int fileIndex) {
+        return outcomes.computeIfAbsent(fileIndex, i -> new CompletableFuture<>());
+    }
+    
+    private LongHashSet stripeFor(long number) {
+        // Top bits of a Fibonacci hash; the sets themselves place entries by the low bits of another hash
+        return stripes[(int) ((number * 0x9E3779B97F4A7C15L) >>> (Long.SIZE - STRIPE_BITS))];
+    }
+}
\ No newline at end of file
@@ -0,0 +1,176 @@
+// src/main/java/com/smartibf/utils/BatchManifest.java
+package com.smartibf.utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Machine-readable record of a batch, one JSON object per line, appended as the batch progresses.
+ * A "batch" line opens the manifest, each file adds a "file" line as soon as it finishes (in
+ * completion order, with its position in the upload), an "index" line follows the whitelist update
+ * and a "complete" line closes it. Every line is written with a single append, so a batch that
+ * dies halfway still leaves a valid manifest of the files it finished.
+ */
+public class BatchManifest implements Closeable {
+    public static final String FILE_NAME = "_manifest.jsonl";
+    private static final int VERSION = 1;
+    private static final int DIGEST_BUFFER_SIZE = 64 * 1024;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    
+    private final OutputStream out;
+    private final long startNanos = System.nanoTime();
+    private final AtomicInteger failedFiles = new AtomicInteger();
+    
+    private BatchManifest(OutputStream out) {
+        this.out = out;
+    }
+    
+    /**
+     * Start the manifest of a batch
+     * @param batchDirectory Directory the manifest is written to
+     * @param batchName Name of the batch
+     * @param fileCount Number of files in the batch
+     * @param crossFileDedup Whether numbers repeated across files are kept by the earliest file only
+     * @return The open manifest
+     * @throws IOException If the manifest cannot be created
+     */
+    public static BatchManifest create(Path batchDirectory, String batchName, int fileCount,
+                                       boolean crossFileDedup) throws IOException {
+        BatchManifest manifest = new BatchManifest(Files.newOutputStream(batchDirectory.resolve(FILE_NAME),
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND));
+        StringBuilder line = new StringBuilder();
+        line.append("{\"type\":\"batch\",\"version\":").append(VERSION);
+        line.append(",\"batch\":").append(Json.quote(batchName));
+        line.append(",\"startedAt\":\"").append(Instant.now()).append("\"");
+        line.append(",\"files\":").append(fileCount);
+        line.append(",\"crossFileDedup\":").append(crossFileDedup);
+        line.append("}");
+        manifest.append(line);
+        return manifest;
+    }
+    
+    /**
+     * Record a finished file
+     * @param fileIndex Position of the file in the upload
+     * @param summary The file's summary, possibly an error summary
+     */
+    public void fileFinished(int fileIndex, ProcessingSummary summary) throws IOException {
+        StringBuilder line = new StringBuilder();
+        line.append("{\"type\":\"file\",\"fileIndex\":").append(fileIndex);
+        line.append(",\"fileName\":").append(Json.quote(summary.getFileName()));
+        line.append(",\"finishedAt\":\"").append(Instant.now()).append("\"");
+        line.append(",\"durationMillis\":").append(summary.getProcessingMillis());
+        if (summary.isError()) {
+            failedFiles.incrementAndGet();
+            line.append(",\"status\":\"error\",\"error\":").append(Json.quote(summary.getErrorMessage()));
+        } else {
+            line.append(",\"status\":\"ok\"");
+            line.append(",\"outputFileName\":").append(Json.quote(summary.getOutputFileName()));
+            line.append(",\"totalRecords\":").append(summary.getTotalRecords());
+            line.append(",\"validRecords\":").append(summary.getValidRecords());
+            line.append(",\"invalidRecords\":").append(summary.getInvalidRecords());
+            line.append(",\"duplicateRecords\":").append(summary.getDuplicateRecords());
+            line.append(",\"crossFileDuplicateRecords\":").append(summary.getCrossFileDuplicateRecords());
+            line.append(",\"newRecords\":").append(summary.getNewRecords());
+            line.append(",\"whitelistedRecords\":").append(summary.getWhitelistedRecords());
+            line.append(",\"rejectedByReason\":{");
+            String separator = "";
+            for (Map.Entry<InvalidReason, Integer> reason : summary.getRejectedByReason().entrySet()) {
+                line.append(separator).append("\"").append(reason.getKey().name()).append("\":").append(reason.getValue());
+                separator = ",";
+            }
+            line.append("}");
+            line.append(",\"inputBytes\":").append(summary.getInputBytes());
+            line.append(",\"outputBytes\":").append(summary.getOutputBytes());
+            line.append(",\"sha256\":{");
+            separator = "";
+            for (Map.Entry<String, String> checksum : summary.getOutputChecksums().entrySet()) {
+                line.append(separator).append(Json.quote(checksum.getKey())).append(":\"").append(checksum.getValue())
+                    .append("\"");
+                separator = ",";
+            }
+            line.append("}");
+        }
+        line.append("}");
+        append(line);
+    }
+    
+    /**
+     * Record the whitelist index update of the batch
+     */
+    public void indexUpdated(WhitelistIndex.Delta delta) throws IOException {
+        StringBuilder line = new StringBuilder();
+        line.append("{\"type\":\"index\"");
+        line.append(",\"newNumbers\":").append(delta.getNewNumbers());
+        line.append(",\"alreadyWhitelisted\":").append(delta.getAlreadyWhitelisted());
+        line.append(",\"removedNumbers\":").append(delta.getRemovedNumbers());
+        line.append(",\"indexSize\":").append(delta.getIndexSize());
+        line.append("}");
+        append(line);
+    }
+    
+    /**
+     * Record that every file of the batch has been processed
+     */
+    public void batchFinished() throws IOException {
+        StringBuilder line = new StringBuilder();
+        line.append("{\"type\":\"complete\"");
+        line.append(",\"finishedAt\":\"").append(Instant.now()).append("\"");
+        line.append(",\"durationMillis\":").append((System.nanoTime() - startNanos) / 1_000_000);
+        line.append(",\"failedFiles\":").append(failedFiles.get());
+        line.append("}");
+        append(line);
+    }
+    
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+    
+    /**
+     * Write one complete line; files finishing on different threads never interleave
+     */
+    private synchronized void append(CharSequence line) throws IOException {
+        out.write((line + "\n").getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+    
+    /**
+     * @return SHA-256 of a file as lowercase hex, as printed by sha256sum
+     */
+    public static String sha256(Path file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+        
+        byte[] buffer = new byte[DIGEST_BUFFER_SIZE];
+        try (InputStream in = Files.newInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        
+        byte[] hash = digest.digest();
+        char[] hex = new char[hash.length * 2];
+        for (int i = 0; i < hash.length; i++) {
+            hex[i * 2] = HEX[(hash[i] >> 4) & 0xf];
+            hex[i * 2 + 1] = HEX[hash[i] & 0xf];
+        }
+        return new String(hex);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,524 @@
+// src/main/java/com/smartibf/utils/BatchProcessor.java
+package com.smartibf.utils;
+
+import org.apache.commons.io.FilenameUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.function.LongPredicate;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Processes the files of an upload batch into a batch directory
+ */
+public class BatchProcessor {
+    private static final Logger LOG = LogManager.getLogger(BatchProcessor.class);
+    public static final String SUMMARY_FILE_NAME = "_processing_summary.txt";
+    private static final String SPILL_DIR = ".spill";
+    private static final long GZIP_MIN_SIZE = 64 * 1024; // smaller outputs are not worth a second copy
+    private static final int GZIP_BUFFER_SIZE = 256 * 1024;
+    
+    private final FileProcessor fileProcessor;
+    private final FileProcessor uncountedProcessor; // metrics are recorded for the final run of each file
+    private Set<OutputFormat> outputFormats = EnumSet.noneOf(OutputFormat.class);
+    private boolean crossFileDedup;
+    
+    public BatchProcessor(FileProcessor fileProcessor) {
+        this.fileProcessor = fileProcessor;
+        this.uncountedProcessor = fileProcessor.withoutMetrics();
+    }
+    
+    /**
+     * @param outputFormats Formats written for each file in addition to the cleaned report
+     */
+    public void setOutputFormats(Set<OutputFormat> outputFormats) {
+        this.outputFormats = outputFormats.isEmpty() ? EnumSet.noneOf(OutputFormat.class) : EnumSet.copyOf(outputFormats);
+    }
+    
+    /**
+     * @param crossFileDedup Whether a number repeated across the files of a batch is only kept by the
+     *                       earliest uploaded file, and reported as a duplicate in the others
+     */
+    public void setCrossFileDedup(boolean crossFileDedup) {
+        this.crossFileDedup = crossFileDedup;
+    }
+    
+    /**
+     * Process the files concurrently and write the batch summary file
+     * @param batchDirectory Directory the cleaned files and summary are written to
+     * @param batchDirName Name of the batch shown in the summary
+     * @param files Files to process
+     * @param fileNames Original names of the files, in the same order
+     * @param progress Receives record counts while the files are processed
+     * @return Summaries in upload order; a failed file gets an error summary
+     * @throws IOException If the batch summary cannot be written
+     */
+    public List<ProcessingSummary> process(String batchDirectory, String batchDirName, List<File> files,
+                                           List<String> fileNames, ProcessingProgress progress) throws IOException {
+        return process(batchDirectory, batchDirName, files, fileNames, progress, null);
+    }
+    
+    /**
+     * Process the files concurrently, then merge the accepted numbers into the whitelist index
+     * and write the batch delta files next to the summary
+     * @param batchDirectory Directory the cleaned files and summary are written to
+     * @param batchDirName Name of the batch shown in the summary
+     * @param files Files to process
+     * @param fileNames Original names of the files, in the same order
+     * @param progress Receives record counts while the files are processed
+     * @param index Whitelist index to compare against and update, may be null
+     * @return Summaries in upload order; a failed file gets an error summary
+     * @throws IOException If the batch summary or the index cannot be written
+     */
+    public List<ProcessingSummary> process(String batchDirectory, String batchDirName, List<File> files,
+                                           List<String> fileNames, ProcessingProgress progress,
+                                           WhitelistIndex index) throws IOException {
+        BatchDedup dedup = crossFileDedup && files.size() > 1 ? claimNumbers(files, fileNames) : null;
+        List<FileInput> inputs = new ArrayList<>();
+        for (int i = 0; i < files.size(); i++) {
+            File file = files.get(i);
+            String fileName = fileNames.get(i);
+            inputs.add((outputPath, fileProgress, writers, inEarlierFile) ->
+                uncountedProcessor.processUploadedFile(file, fileName, outputPath, fileProgress, writers, inEarlierFile));
+        }
+        return processInputs(batchDirectory, batchDirName, inputs, fileNames, progress, index, dedup,
+                             ProcessingExecutor.get());
+    }
+    
+    /**
+     * First pass of a batch without cross-file repeats: every file collects its valid numbers
+     * concurrently and claims them once it has been read completely, leaving each number owned by
+     * the earliest file that contains it. A file that cannot be read claims nothing, not even the
+     * numbers read before the error; the error is reported when it is processed.
+     */
+    private BatchDedup claimNumbers(List<File> files, List<String> fileNames) throws IOException {
+        long expectedSize = 0;
+        for (File file : files) {
+            expectedSize += FileProcessor.expectedRecords(file.length());
+        }
+        BatchDedup dedup = new BatchDedup((int) Math.min(expectedSize, Integer.MAX_VALUE),
+                                          fileProcessor.isOffHeapDedup());
+        
+        List<Future<?>> pending = new ArrayList<>();
+        for (int i = 0; i < files.size(); i++) {
+            File file = files.get(i);
+            String fileName = fileNames.get(i);
+            int fileIndex = i;
+            pending.add(ProcessingExecutor.get().submit(() -> {
+                LongHashSet numbers = new LongHashSet(FileProcessor.expectedRecords(file.length()),
+                                                      fileProcessor.isOffHeapDedup());
+                fileProcessor.forEachValidNumber(file, fileName, numbers::add);
+                numbers.forEach(number -> dedup.claim(number, fileIndex));
+                return null;
+            }));
+        }
+        
+        for (int i = 0; i < pending.size(); i++) {
+            try {
+                pending.get(i).get();
+            } catch (ExecutionException e) {
+                LOG.warn("Could not scan " + fileNames.get(i) + " for numbers repeated across files", e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while processing batch", e);
+            }
+        }
+        return dedup;
+    }
+    
+    /**
+     * Process a single file read from a stream as a batch, such as a chunked upload that is still arriving.
+     * The file is processed on the calling thread, so a stream waiting for data never holds a file worker.
+     * @param batchDirectory Directory the cleaned file and summary are written to
+     * @param batchDirName Name of the batch shown in the summary
+     * @param inputStream Contents of the file
+     * @param fileName Original name of the file
+     * @param progress Receives record counts while the file is processed
+     * @param index Whitelist index to compare against and update, may be null
+     * @return The file's summary; a failed file gets an error summary
+     * @throws IOException If the batch summary or the index cannot be written
+     */
+    public List<ProcessingSummary> processStream(String batchDirectory, String batchDirName, InputStream inputStream,
+                                                 String fileName, ProcessingProgress progress,
+                                                 WhitelistIndex index) throws IOException {
+        FileInput input = (outputPath, fileProgress, writers, inEarlierFile) ->
+            uncountedProcessor.processWhitelistStream(inputStream, fileName, outputPath, fileProgress, writers);
+        return processInputs(batchDirectory, batchDirName, Collections.singletonList(input),
+                             Collections.singletonList(fileName), progress, index, null, Runnable::run);
+    }
+    
+    private List<ProcessingSummary> processInputs(String batchDirectory, String batchDirName, List<FileInput> inputs,
+                                                  List<String> fileNames, ProcessingProgress progress,
+                                                  WhitelistIndex index, BatchDedup dedup,
+                                                  Executor executor) throws IOException {
+        StringBuilder batchSummary = new StringBuilder();
+        batchSummary.append("Batch Processing Summary\n");
+        batchSummary.append("=======================\n");
+        batchSummary.append("Batch: ").append(batchDirName).append("\n");
+        batchSummary.append("Processed on: ").append(new Date()).append("\n");
+        if (crossFileDedup) {
+            batchSummary.append("Numbers repeated across files are kept by the earliest file only\n");
+        }
+        batchSummary.append("\n");
+        
+        try (BatchManifest manifest = BatchManifest.create(Paths.get(batchDirectory), batchDirName, inputs.size(),
+                                                           crossFileDedup)) {
+            List<ProcessingSummary> summaries = processFiles(batchDirectory, inputs, fileNames, progress, index, dedup,
+                                                             executor, manifest, batchSummary);
+            manifest.batchFinished();
+            return summaries;
+        }
+    }
+    
+    private List<ProcessingSummary> processFiles(String batchDirectory, List<FileInput> inputs, List<String> fileNames,
+                                                 ProcessingProgress progress, WhitelistIndex index, BatchDedup dedup,
+                                                 Executor executor, BatchManifest manifest,
+                                                 StringBuilder batchSummary) throws IOException {
+        // Process the files concurrently; results are collected in upload order,
+        // while the manifest records each file as soon as it finishes
+        List<Future<ProcessingSummary>> pending = new ArrayList<>();
+        Set<String> outputFileNames = new HashSet<>();
+        NumberSpill[] acceptedNumbers = new NumberSpill[inputs.size()];
+        for (int i = 0; i < inputs.size(); i++) {
+            FileInput input = inputs.get(i);
+            String fileName = fileNames.get(i);
+            String outputPath = batchDirectory + File.separator + uniqueOutputFileName(fileName, outputFileNames);
+            int fileIndex = i;
+            FutureTask<ProcessingSummary> task = new FutureTask<>(() -> {
+                long start = System.nanoTime();
+                long runStart = start;
+                ProcessingSummary summary = null;
+                try {
+                    LongPredicate inEarlierFile = dedup == null ? null : dedup.inEarlierFile(fileIndex);
+                    summary = processFile(input, fileName, outputPath, progress, index, inEarlierFile,
+                                          acceptedNumbers, fileIndex);
+                    if (dedup != null && !summary.isError() && dedup.dependsOnFailedFile(fileIndex)) {
+                        // Numbers left to a failed file would be missing; the first run's records were
+                        // already counted, so the second one reports to a progress nobody reads
+                        LOG.info("Processing " + fileName + " again without the failed files of the batch");
+                        runStart = System.nanoTime();
+                        summary = processFile(input, fileName, outputPath, new ProcessingProgress(), index,
+                                              dedup.inEarlierSucceededFile(fileIndex), acceptedNumbers, fileIndex);
+                    }
+                    if (!summary.isError()) {
+                        recordMetrics(summary, runStart);
+                    }
+                } finally {
+                    if (dedup != null) {
+                        dedup.fileFinished(fileIndex, summary != null && !summary.isError());
+                    }
+                    progress.fileCompleted();
+                }
+                summary.setProcessingMillis((System.nanoTime() - start) / 1_000_000);
+                try {
+                    manifest.fileFinished(fileIndex, summary);
+                } catch (IOException e) {
+                    LOG.warn("Could not add " + fileName + " to the batch manifest", e);
+                }
+                return summary;
+            });
+            executor.execute(task);
+            pending.add(task);
+        }
+        
+        List<ProcessingSummary> summaries = new ArrayList<>();
+        for (int i = 0; i < pending.size(); i++) {
+            ProcessingSummary summary;
+            try {
+                summary = pending.get(i).get();
+            } catch (ExecutionException e) {
+                summary = errorSummary(fileNames.get(i), e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while processing batch", e);
+            }
+            summaries.add(summary);
+            
+            // Add to batch summary
+            batchSummary.append("File: ").append(summary.getFileName()).append("\n");
+            if (summary.isError()) {
+                batchSummary.append("  Error: ").append(summary.getErrorMessage()).append("\n\n");
+            } else {
+                batchSummary.append("  Total records: ").append(summary.getTotalRecords()).append("\n");
+                batchSummary.append("  Valid records: ").append(summary.getValidRecords()).append("\n");
+                batchSummary.append("  Invalid records: ").append(summary.getInvalidRecords()).append("\n");
+                batchSummary.append("  Duplicate records: ").append(summary.getDuplicateRecords()).append("\n");
+                if (crossFileDedup) {
+                    batchSummary.append("  Duplicates of earlier files: ").append(summary.getCrossFileDuplicateRecords())
+                                .append("\n");
+                }
+                for (Map.Entry<InvalidReason, Integer> reason : summary.getRejectedByReason().entrySet()) {
+                    batchSummary.append("    ").append(reason.getKey().getLabel()).append(": ")
+                                .append(reason.getValue()).append("\n");
+                }
+                if (index != null) {
+                    batchSummary.append("  New numbers: ").append(summary.getNewRecords()).append("\n");
+                    batchSummary.append("  Already whitelisted: ").append(summary.getWhitelistedRecords()).append("\n");
+                }
+                batchSummary.append("  Saved to: ").append(summary.getOutputFileName()).append("\n\n");
+            }
+        }
+        
+        if (index != null) {
+            WhitelistIndex.Delta delta = updateIndex(index, acceptedNumbers, Paths.get(batchDirectory));
+            batchSummary.append("Whitelist Index\n");
+            batchSummary.append("  New numbers: ").append(delta.getNewNumbers()).append("\n");
+            batchSummary.append("  Already whitelisted: ").append(delta.getAlreadyWhitelisted()).append("\n");
+            batchSummary.append("  Removed since the previous batch: ").append(delta.getRemovedNumbers()).append("\n");
+            batchSummary.append("  Whitelisted numbers: ").append(delta.getIndexSize()).append("\n\n");
+            manifest.indexUpdated(delta);
+            LOG.info("Whitelist index: " + index.getLookups() + " lookups, " + index.getFilterRejections()
+                     + " answered by the Bloom filter (" + index.getFilterBytes() + " bytes, observed false positive rate "
+                     + index.getObservedFalsePositiveRate() + ", expected " + index.getExpectedFalsePositiveRate() + ")");
+        }
+        
+        // Save batch summary
+        String summaryPath = batchDirectory + File.separator + SUMMARY_FILE_NAME;
+        Files.write(Paths.get(summaryPath), batchSummary.toString().getBytes());
+        
+        return summaries;
+    }
+    
+    /**
+     * Process a single uploaded file; failures are reported in the returned summary
+     */
+    private ProcessingSummary processFile(FileInput input, String fileName, String outputPath, ProcessingProgress progress,
+                                          WhitelistIndex index, LongPredicate inEarlierFile, NumberSpill[] acceptedNumbers,
+                                          int fileIndex) {
+        List<ResultWriter> writers = new ArrayList<>();
+        AcceptedNumbers accepted = null;
+        try {
+            // Every format is written in the same pass as the cleaned report
+            String outputFileName = new File(outputPath).getName();
+            List<String> formatFileNames = new ArrayList<>();
+            for (OutputFormat format : outputFormats) {
+                String formatFileName = format.outputFileName(outputFileName);
+                writers.add(format.open(Paths.get(outputPath).resolveSibling(formatFileName)));
+                formatFileNames.add(formatFileName);
+            }
+            if (index != null) {
+                accepted = new AcceptedNumbers(index, new NumberSpill(
+                    Paths.get(outputPath).resolveSibling(SPILL_DIR), "accepted_" + fileIndex + "_"));
+                writers.add(accepted);
+            }
+            
+            // Process the file, streaming results to the output file
+            FileProcessor.StreamSummary result = input.process(outputPath, progress, writers, inEarlierFile);
+            closeAll(writers);
+            writeGzipVariant(Paths.get(outputPath));
+            
+            ProcessingSummary summary = new ProcessingSummary();
+            summary.setFileName(fileName);
+            summary.setOutputFileName(outputFileName);
+            summary.setFormatFileNames(formatFileNames);
+            summary.setTotalRecords(result.getTotalRecords());
+            summary.setValidRecords(result.getValidCount());
+            summary.setInvalidRecords(result.getInvalidRecords());
+            summary.setDuplicateRecords(result.getDuplicates());
+            summary.setCrossFileDuplicateRecords(result.getCrossFileDuplicates());
+            summary.setRejectedByReason(result.getRejectedByReason());
+            summary.setInputBytes(result.getInputBytes());
+            summary.setOutputBytes(result.getOutputBytes());
+            
+            Map<String, String> checksums = new LinkedHashMap<>();
+            checksums.put(outputFileName, BatchManifest.sha256(Paths.get(outputPath)));
+            for (String formatFileName : formatFileNames) {
+                checksums.put(formatFileName, BatchManifest.sha256(Paths.get(outputPath).resolveSibling(formatFileName)));
+            }
+            summary.setOutputChecksums(checksums);
+            
+            // Compared against the whitelist as it was before this batch
+            if (accepted != null) {
+                summary.setWhitelistedRecords(accepted.whitelisted);
+                summary.setNewRecords(accepted.count - accepted.whitelisted);
+                // A file processed again replaces the numbers of its first run
+                NumberSpill replaced = acceptedNumbers[fileIndex];
+                acceptedNumbers[fileIndex] = accepted.spill;
+                accepted = null;
+                if (replaced != null) {
+                    replaced.close();
+                }
+            }
+            return summary;
+        
+        } catch (Exception e) {
+            closeQuietly(writers);
+            return errorSummary(fileName, e);
+        } finally {
+            if (accepted != null) {
+                deleteQuietly(accepted.spill);
+            }
+        }
+    }
+    
+    /**
+     * Count a processed file in the processing metrics. A file may be processed twice, so its runs
+     * leave the metrics alone and only the run that produced its summary is counted.
+     * @param start When that run started, from {@link System#nanoTime()}
+     */
+    private static void recordMetrics(ProcessingSummary summary, long start) {
+        int[] rejectedByReason = new int[InvalidReason.values().length];
+        summary.getRejectedByReason().forEach((reason, count) -> rejectedByReason[reason.ordinal()] = count);
+        ProcessingMetrics.INPUT_BYTES.add(summary.getInputBytes());
+        ProcessingMetrics.OUTPUT_BYTES.add(summary.getOutputBytes());
+        ProcessingMetrics.recordFile(summary.getValidRecords(), rejectedByReason);
+        ProcessingMetrics.PROCESS_TIME.recordSince(start);
+    }
+    
+    /**
+     * Merge the accepted numbers of every file into the whitelist index, then delete them
+     */
+    private static WhitelistIndex.Delta updateIndex(WhitelistIndex index, NumberSpill[] acceptedNumbers,
+                                                    Path batchDirectory) throws IOException {
+        List<NumberSpill> spills = new ArrayList<>();
+        for (NumberSpill spill : acceptedNumbers) {
+            if (spill != null) {
+                spills.add(spill);
+            }
+        }
+        
+        try (NumberSpill.Merge merged = NumberSpill.merge(spills)) {
+            return index.update(merged, batchDirectory);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            for (NumberSpill spill : spills) {
+                deleteQuietly(spill);
+            }
+            try {
+                Files.deleteIfExists(batchDirectory.resolve(SPILL_DIR));
+            } catch (IOException e) {
+                LOG.warn("Could not delete " + batchDirectory.resolve(SPILL_DIR), e);
+            }
+        }
+    }
+    
+    private static void deleteQuietly(NumberSpill spill) {
+        try {
+            spill.close();
+        } catch (IOException e) {
+            LOG.warn("Could not delete spilled numbers", e);
+        }
+    }
+    
+    private static void closeAll(List<ResultWriter> writers) throws IOException {
+        IOException failure = null;
+        for (ResultWriter writer : writers) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+    
+    private static void closeQuietly(List<ResultWriter> writers) {
+        try {
+            closeAll(writers);
+        } catch (IOException e) {
+            LOG.warn("Error closing output writers", e);
+        }
+    }
+    
+    /**
+     * Write a pre-compressed copy next to a large output file so downloads can be served as gzip
+     */
+    private static void writeGzipVariant(Path outputPath) throws IOException {
+        if (Files.size(outputPath) < GZIP_MIN_SIZE) {
+            return;
+        }
+        
+        Path gzipPath = Paths.get(outputPath + ".gz");
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(gzipPath), GZIP_BUFFER_SIZE)) {
+            Files.copy(outputPath, out);
+        }
+    }
+    
+    private ProcessingSummary errorSummary(String fileName, Throwable e) {
+        LOG.error("Error processing file: " + fileName, e);
+        
+        ProcessingSummary summary = new ProcessingSummary();
+        summary.setFileName(fileName);
+        summary.setError(true);
+        summary.setErrorMessage(e.getMessage());
+        return summary;
+    }
+    
+    /**
+     * Build the output filename, numbering repeats so files processed in parallel never share an output
+     */
+    private static String uniqueOutputFileName(String fileName, Set<String> used) {
+        String baseName = FilenameUtils.getBaseName(fileName);
+        String outputFileName = baseName + "_cleaned.txt";
+        for (int n = 2; !used.add(outputFileName); n++) {
+            outputFileName = baseName + "_" + n + "_cleaned.txt";
+        }
+        return outputFileName;
+    }
+    
+    /**
+     * Spills the accepted numbers of a file and counts those already whitelisted
+     */
+    private static final class AcceptedNumbers implements ResultWriter {
+        private final WhitelistIndex index;
+        private final NumberSpill spill;
+        private int count;
+        private int whitelisted;
+        
+        AcceptedNumbers(WhitelistIndex index, NumberSpill spill) {
+            this.index = index;
+            this.spill = spill;
+        }
+        
+        @Override
+        public void writeValid(long number) throws IOException {
+            spill.add(number);
+            count++;
+            if (index.contains(number)) {
+                whitelisted++;
+            }
+        }
+        
+        @Override
+        public void close() throws IOException {
+            spill.finish();
+        }
+    }
+    
+    /**
+     * One file of a batch, processed into the given output path. A file on disk may be processed again
+     * when an earlier file it left numbers to has failed.
+     */
+    private interface FileInput {
+        FileProcessor.StreamSummary process(String outputPath, ProcessingProgress progress, List<ResultWriter> writers,
+                                            LongPredicate inEarlierFile) throws IOException;
+    }
+}
\ No newline at end of file
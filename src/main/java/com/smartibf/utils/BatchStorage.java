@@ -0,0 +1,733 @@
+// src/main/java/com/smartibf/utils/BatchStorage.java
+package com.smartibf.utils;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Storage of processed batches, one directory per batch under a root kept outside the web application.
+ * The batches and their files are indexed in memory when the storage starts and whenever a batch
+ * finishes, so listing batches and resolving downloads never touch the filesystem.
+ * A background sweep removes batches older than the retention period, then the oldest batches
+ * while the storage is over its quota, and gzips batches that nobody has read for a while.
+ * Configured with the {@code whitelist.storage.*} system properties; retention, the quota and
+ * compression are off unless set. Batches still being processed or currently read are never removed or compressed,
+ * and files taken out of the listing are only deleted by the following sweep, so a download that
+ * was handed to the container just before is not cut off.
+ */
+public class BatchStorage {
+    private static final Logger LOG = LogManager.getLogger(BatchStorage.class);
+    public static final String GZIP_SUFFIX = ".gz";
+    private static final int GZIP_BUFFER_SIZE = 256 * 1024;
+    private static final String DEFAULT_DIR_NAME = "processed_whitelists";
+    private static final int GZIP_TRAILER_LENGTH = 18; // smallest gzip file: header and trailer
+    private static final int MAX_NAME_ATTEMPTS = 100;
+    private static final long MAX_EXACT_GZIP_LENGTH = (1L << 32) / 1032; // deflate inflates at most 1032:1
+    private static volatile BatchStorage instance;
+    private static volatile Path legacyRoot;
+    
+    private final Path root;
+    private final long retentionMillis;
+    private final long compressAfterMillis;
+    private final long maxBytes;
+    private final Map<String, Batch> batches = new ConcurrentHashMap<>();
+    private final Map<String, Integer> readers = new HashMap<>(); // guarded by itself
+    private final List<Path> retired = new ArrayList<>(); // deleted by the next sweep
+    
+    /**
+     * @param root Directory holding one directory per batch
+     * @param retentionMillis Age after which a batch is removed, 0 to keep batches forever
+     * @param compressAfterMillis Time without reads after which a batch is gzipped, 0 to never compress
+     * @param maxBytes Size the storage is kept under by removing the oldest batches, 0 for no quota
+     */
+    BatchStorage(Path root, long retentionMillis, long compressAfterMillis, long maxBytes) throws IOException {
+        this.root = root;
+        this.retentionMillis = retentionMillis;
+        this.compressAfterMillis = compressAfterMillis;
+        this.maxBytes = maxBytes;
+        Files.createDirectories(root);
+        
+        try (DirectoryStream<Path> directories = Files.newDirectoryStream(root, BatchStorage::isBatchDirectory)) {
+            for (Path directory : directories) {
+                Batch batch = Batch.scan(directory, false);
+                batches.put(batch.getName(), batch);
+            }
+        }
+    }
+    
+    /**
+     * @return The storage configured by the system properties, with its sweep running
+     * @throws IOException If the configuration is invalid or the storage cannot be opened; the next call tries again
+     */
+    public static BatchStorage get() throws IOException {
+        BatchStorage storage = instance;
+        if (storage == null) {
+            synchronized (BatchStorage.class) {
+                if (instance == null) {
+                    instance = open();
+                }
+                storage = instance;
+            }
+        }
+        return storage;
+    }
+    
+    /**
+     * Tell the configured storage where batches were kept before it existed, inside the web application.
+     * Has no effect once the storage has been opened.
+     * @param root The legacy batch directory, which may not exist
+     * @see #chooseRoot(String, Path, Path)
+     */
+    public static void setLegacyRoot(Path root) {
+        legacyRoot = root;
+    }
+    
+    /**
+     * Pick the storage root. A configured directory always wins. Otherwise a legacy directory that
+     * still holds batches is kept as the root, so an upgrade does not lose them from view; new
+     * installations use the default directory.
+     * @param configured Value of the {@code whitelist.storage.dir} system property, may be null
+     * @param legacy The legacy batch directory, may be null
+     * @param defaultRoot Root used when there is neither
+     * @return The root to open
+     */
+    static Path chooseRoot(String configured, Path legacy, Path defaultRoot) throws IOException {
+        if (configured != null) {
+            return Paths.get(configured);
+        }
+        if (legacy != null && Files.isDirectory(legacy)) {
+            try (DirectoryStream<Path> directories = Files.newDirectoryStream(legacy, BatchStorage::isBatchDirectory)) {
+                if (directories.iterator().hasNext()) {
+                    LOG.warn("Keeping batches in " + legacy + " inside the web application; set whitelist.storage.dir "
+                             + "and move them there so they survive a redeployment");
+                    return legacy;
+                }
+            }
+        }
+        return defaultRoot;
+    }
+    
+    /**
+     * @return Bytes held by the configured storage, 0 if it has not been used yet
+     */
+    static double storedBytes() {
+        BatchStorage storage = instance;
+        return storage == null ? 0 : storage.getStoredBytes();
+    }
+    
+    /**
+     * Name a new batch after the time of the upload
+     * @param batchName Name given with the upload, may be null or blank
+     * @return The name followed by the upload time, such as {@code march_20240301_101500},
+     *         or {@code batch_} and the upload time if no name was given
+     */
+    public static String newBatchName(String batchName) {
+        String timestamp = new SimpleDateFormat("yyyyMMdd_HHmmss").format(new Date());
+        return batchName == null || batchName.trim().isEmpty() ? "batch_" + timestamp : batchName.trim() + "_" + timestamp;
+    }
+    
+    /**
+     * Create the directory of a new batch; it is left alone by the sweep until it is completed.
+     * Batch names only have second resolution, so a name already taken gets a suffix instead of
+     * sharing the directory of another batch.
+     * @param name Name of the batch
+     * @return The batch directory, named after the batch or, if that name is taken, followed by
+     *         {@code _2}, {@code _3} and so on; its file name is the name of the batch
+     * @throws IOException If the directory cannot be created
+     */
+    public Path create(String name) throws IOException {
+        Path directory = root.resolve(name).normalize();
+        if (!directory.getParent().equals(root.normalize()) || !isBatchDirectoryName(name)) {
+            throw new IOException("Invalid batch name: " + name);
+        }
+        for (int attempt = 1; attempt <= MAX_NAME_ATTEMPTS; attempt++) {
+            String candidate = attempt == 1 ? name : name + "_" + attempt;
+            directory = root.resolve(candidate);
+            try {
+                Files.createDirectory(directory);
+            } catch (FileAlreadyExistsException e) {
+                continue;
+            }
+            batches.put(candidate, Batch.scan(directory, true));
+            return directory;
+        }
+        throw new IOException("Too many batches named " + name);
+    }
+    
+    /**
+     * Index the files a batch has written; call once processing has finished, successfully or not
+     * @param name Name of the batch
+     */
+    public void complete(String name) {
+        try {
+            batches.put(name, Batch.scan(root.resolve(name), false));
+        } catch (IOException e) {
+            LOG.warn("Could not index batch " + name, e);
+        }
+    }
+    
+    /**
+     * @return The batch with the given name, or null if it is unknown or has been removed
+     */
+    public Batch getBatch(String name) {
+        Batch batch = name == null ? null : batches.get(name);
+        if (batch != null) {
+            batch.touch();
+        }
+        return batch;
+    }
+    
+    /**
+     * @return A file of a batch, or null if either is unknown; hidden working files are never returned
+     */
+    public StoredFile find(String batchName, String fileName) {
+        Batch batch = getBatch(batchName);
+        return batch == null || fileName == null ? null : batch.getFiles().get(fileName);
+    }
+    
+    /**
+     * Start reading the files of a batch. Until it is released, the batch is neither compressed nor
+     * removed, so every file in its listing stays on disk.
+     * @param name Name of the batch
+     * @return The batch, or null if it is unknown or has been removed
+     */
+    public Batch acquire(String name) {
+        if (name == null) {
+            return null;
+        }
+        synchronized (readers) {
+            Batch batch = batches.get(name);
+            if (batch != null) {
+                batch.touch();
+                readers.merge(name, 1, Integer::sum);
+            }
+            return batch;
+        }
+    }
+    
+    /**
+     * Finish reading a batch returned by {@link #acquire(String)}
+     */
+    public void release(Batch batch) {
+        synchronized (readers) {
+            readers.computeIfPresent(batch.getName(), (name, count) -> count == 1 ? null : count - 1);
+        }
+    }
+    
+    /**
+     * @return Every batch, newest first
+     */
+    public List<Batch> list() {
+        List<Batch> list = new ArrayList<>(batches.values());
+        list.sort(Comparator.comparingLong(Batch::getLastModified).reversed());
+        return list;
+    }
+    
+    public Path getRoot() {
+        return root;
+    }
+    
+    public long getStoredBytes() {
+        long bytes = 0;
+        for (Batch batch : batches.values()) {
+            bytes += batch.getBytes();
+        }
+        return bytes;
+    }
+    
+    /**
+     * Delete what the previous sweep took out of the listing, then apply retention, then the quota,
+     * then compress cold batches
+     */
+    void sweep() {
+        deleteRetired();
+        long now = System.currentTimeMillis();
+        List<Batch> completed = new ArrayList<>();
+        for (Batch batch : batches.values()) {
+            if (!batch.isActive()) {
+                completed.add(batch);
+            }
+        }
+        completed.sort(Comparator.comparingLong(Batch::getLastModified));
+        
+        long bytes = getStoredBytes();
+        for (Batch batch : completed) {
+            boolean expired = retentionMillis > 0 && batch.getLastModified() < now - retentionMillis;
+            boolean overQuota = maxBytes > 0 && bytes > maxBytes;
+            if (expired || overQuota) {
+                if (remove(batch)) {
+                    bytes -= batch.getBytes();
+                }
+            } else if (compressAfterMillis > 0 && !batch.getFiles().isEmpty() && !batch.isCompressed()
+                       && batch.getLastAccess() < now - compressAfterMillis && !isRead(batch)) {
+                compress(batch);
+            }
+        }
+    }
+    
+    private boolean isRead(Batch batch) {
+        synchronized (readers) {
+            return readers.containsKey(batch.getName());
+        }
+    }
+    
+    private boolean remove(Batch batch) {
+        // Forget the batch first so no new download starts on files about to be deleted
+        synchronized (readers) {
+            if (readers.containsKey(batch.getName()) || !batches.remove(batch.getName(), batch)) {
+                return false;
+            }
+        }
+        retired.add(batch.getDirectory());
+        ProcessingMetrics.BATCHES_REMOVED.increment();
+        LOG.info("Removed batch " + batch.getName() + " (" + batch.getBytes() + " bytes)");
+        return true;
+    }
+    
+    /**
+     * Replace the output files of a batch with their gzip copies. The manifest and the delta files stay
+     * plain for the tools reading them, and the offset indexes are kept for {@link #inflate(Batch, String)}.
+     */
+    private void compress(Batch batch) {
+        if (batch.getFiles().values().stream().noneMatch(BatchStorage::isCompressible)) {
+            return;
+        }
+        try {
+            for (StoredFile file : batch.getFiles().values()) {
+                if (isCompressible(file) && file.getGzipPath() == null) {
+                    Path gzipPath = Paths.get(file.getPath() + GZIP_SUFFIX);
+                    Path temp = Paths.get(gzipPath + ".tmp");
+                    try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(temp), GZIP_BUFFER_SIZE)) {
+                        Files.copy(file.getPath(), out);
+                    }
+                    Files.setLastModifiedTime(temp, FileTime.fromMillis(file.getLastModified()));
+                    Files.move(temp, gzipPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                }
+            }
+            
+            // Swap in the compressed listing unless a reader arrived meanwhile; the plain files go next sweep
+            Batch compressed = batch.withoutPlainFiles();
+            synchronized (readers) {
+                if (readers.containsKey(batch.getName()) || !batches.replace(batch.getName(), batch, compressed)) {
+                    // Index the new gzip copies so the next attempt does not write them again
+                    complete(batch.getName());
+                    return;
+                }
+            }
+            for (StoredFile file : batch.getFiles().values()) {
+                if (isCompressible(file)) {
+                    retired.add(file.getPath());
+                }
+            }
+            ProcessingMetrics.BATCHES_COMPRESSED.increment();
+            LOG.info("Compressed batch " + batch.getName() + " (" + batch.getBytes() + " bytes before)");
+        } catch (IOException e) {
+            LOG.warn("Could not compress batch " + batch.getName(), e);
+            complete(batch.getName());
+        }
+    }
+    
+    private static boolean isCompressible(StoredFile file) {
+        String name = file.getName();
+        return file.getPath() != null && !name.equals(BatchManifest.FILE_NAME)
+               && !name.equals(WhitelistIndex.NEW_NUMBERS_FILE_NAME) && !name.equals(WhitelistIndex.REMOVED_NUMBERS_FILE_NAME);
+    }
+    
+    /**
+     * Bring back the plain copy of a compressed file, so its results can be paged again; the sweep
+     * compresses it again once the batch has gone unread for long enough
+     * @param batch A batch acquired by the caller
+     * @param fileName Name of one of its files
+     * @return The file with its plain copy, or null if the batch has no such file
+     * @throws IOException If the gzip copy cannot be inflated
+     */
+    public StoredFile inflate(Batch batch, String fileName) throws IOException {
+        StoredFile file = batch.getFiles().get(fileName);
+        if (file == null || file.getPath() != null) {
+            return file;
+        }
+        Path plain = batch.getDirectory().resolve(fileName);
+        Path temp = Files.createTempFile(batch.getDirectory(), "." + fileName, ".tmp");
+        try {
+            try (InputStream in = new GZIPInputStream(Files.newInputStream(file.getGzipPath()), GZIP_BUFFER_SIZE)) {
+                Files.copy(in, temp, StandardCopyOption.REPLACE_EXISTING);
+            }
+            Files.setLastModifiedTime(temp, FileTime.fromMillis(file.getLastModified()));
+            Files.move(temp, plain, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        
+        Batch inflated = Batch.scan(batch.getDirectory(), false);
+        inflated.touch();
+        batches.put(batch.getName(), inflated);
+        ProcessingMetrics.BATCHES_INFLATED.increment();
+        return inflated.getFiles().get(fileName);
+    }
+    
+    private void deleteRetired() {
+        Map<String, Long> freed = new HashMap<>();
+        for (Path path : retired) {
+            try {
+                if (Files.isDirectory(path)) {
+                    // A batch of the same name created since then keeps its directory
+                    if (!batches.containsKey(path.getFileName().toString())) {
+                        FileUtils.deleteDirectory(path.toFile());
+                    }
+                } else if (Files.exists(path)) {
+                    long size = Files.size(path);
+                    Files.delete(path);
+                    freed.merge(path.getParent().getFileName().toString(), size, Long::sum);
+                }
+            } catch (IOException e) {
+                LOG.warn("Could not delete " + path, e);
+            }
+        }
+        retired.clear();
+        
+        // Compressed batches only count their gzip copies from now on
+        freed.forEach((name, bytes) -> batches.computeIfPresent(name, (key, batch) -> batch.withoutBytes(bytes)));
+    }
+    
+    private static boolean isBatchDirectory(Path path) {
+        return Files.isDirectory(path) && isBatchDirectoryName(path.getFileName().toString());
+    }
+    
+    /**
+     * Hidden directories under the root, such as the whitelist index, are not batches
+     */
+    private static boolean isBatchDirectoryName(String name) {
+        return !name.isEmpty() && !name.startsWith(".");
+    }
+    
+    /**
+     * A batch directory and the files in it, as of the last time it was indexed
+     */
+    public static final class Batch {
+        private final String name;
+        private final Path directory;
+        private final Map<String, StoredFile> files;
+        private final long bytes;
+        private final long lastModified;
+        private final boolean active;
+        private volatile long lastAccess;
+        
+        private Batch(String name, Path directory, Map<String, StoredFile> files, long bytes, long lastModified,
+                      boolean active, long lastAccess) {
+            this.name = name;
+            this.directory = directory;
+            this.files = Collections.unmodifiableMap(files);
+            this.bytes = bytes;
+            this.lastModified = lastModified;
+            this.active = active;
+            this.lastAccess = lastAccess;
+        }
+        
+        /**
+         * Index a batch directory. A file and its .gz copy share one entry under the plain name;
+         * hidden files only count towards the size.
+         */
+        static Batch scan(Path directory, boolean active) throws IOException {
+            Map<String, Path> plain = new TreeMap<>();
+            Map<String, Path> gzipped = new TreeMap<>();
+            Map<Path, BasicFileAttributes> attributes = new HashMap<>();
+            long bytes = 0;
+            long lastModified = 0;
+            try (Stream<Path> paths = Files.walk(directory)) {
+                for (Path path : (Iterable<Path>) paths::iterator) {
+                    BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class);
+                    if (!attrs.isRegularFile()) {
+                        continue;
+                    }
+                    bytes += attrs.size();
+                    lastModified = Math.max(lastModified, attrs.lastModifiedTime().toMillis());
+                    String fileName = path.getFileName().toString();
+                    if (!path.getParent().equals(directory) || fileName.startsWith(".")) {
+                        continue;
+                    }
+                    attributes.put(path, attrs);
+                    if (fileName.endsWith(GZIP_SUFFIX)) {
+                        gzipped.put(fileName.substring(0, fileName.length() - GZIP_SUFFIX.length()), path);
+                    } else {
+                        plain.put(fileName, path);
+                    }
+                }
+            }
+            
+            if (lastModified == 0) {
+                lastModified = Files.getLastModifiedTime(directory).toMillis();
+            }
+            
+            Map<String, StoredFile> files = new TreeMap<>();
+            for (Map.Entry<String, Path> entry : plain.entrySet()) {
+                Path gzipPath = gzipped.remove(entry.getKey());
+                BasicFileAttributes attrs = attributes.get(entry.getValue());
+                files.put(entry.getKey(), new StoredFile(entry.getKey(), entry.getValue(), attrs.size(), gzipPath,
+                    gzipPath == null ? 0 : attributes.get(gzipPath).size(), attrs.lastModifiedTime().toMillis()));
+            }
+            for (Map.Entry<String, Path> entry : gzipped.entrySet()) {
+                BasicFileAttributes attrs = attributes.get(entry.getValue());
+                long length = uncompressedLength(entry.getValue(), attrs.size());
+                files.put(entry.getKey(), new StoredFile(entry.getKey(), null, length, entry.getValue(), attrs.size(),
+                                                         attrs.lastModifiedTime().toMillis()));
+            }
+            return new Batch(directory.getFileName().toString(), directory, files, bytes, lastModified, active,
+                             lastModified);
+        }
+        
+        private Batch withoutPlainFiles() throws IOException {
+            Map<String, StoredFile> compressed = new TreeMap<>();
+            long written = 0;
+            for (StoredFile file : files.values()) {
+                if (!isCompressible(file)) {
+                    compressed.put(file.getName(), file);
+                    continue;
+                }
+                Path gzipPath = file.getGzipPath();
+                long gzipLength = file.getGzipLength();
+                if (gzipPath == null) {
+                    gzipPath = Paths.get(file.getPath() + GZIP_SUFFIX);
+                    gzipLength = Files.size(gzipPath);
+                    written += gzipLength;
+                }
+                compressed.put(file.getName(), new StoredFile(file.getName(), null, file.getLength(), gzipPath,
+                                                              gzipLength, file.getLastModified()));
+            }
+            return new Batch(name, directory, compressed, bytes + written, lastModified, active, lastAccess);
+        }
+        
+        private Batch withoutBytes(long removed) {
+            return new Batch(name, directory, files, bytes - removed, lastModified, active, lastAccess);
+        }
+        
+        /**
+         * Read the uncompressed length from the gzip trailer. The trailer only keeps it modulo 4 GiB,
+         * so it is only trusted for copies too small to inflate to more than that.
+         * @return The uncompressed length, or -1 if it cannot be known without inflating the file
+         */
+        static long uncompressedLength(Path gzipPath, long gzipLength) throws IOException {
+            if (gzipLength < GZIP_TRAILER_LENGTH || gzipLength > MAX_EXACT_GZIP_LENGTH) {
+                return -1;
+            }
+            ByteBuffer size = ByteBuffer.allocate(Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            try (FileChannel channel = FileChannel.open(gzipPath, StandardOpenOption.READ)) {
+                while (size.hasRemaining()) {
+                    if (channel.read(size, gzipLength - Integer.BYTES + size.position()) < 0) {
+                        return -1;
+                    }
+                }
+            }
+            return Integer.toUnsignedLong(size.getInt(0));
+        }
+        
+        void touch() {
+            lastAccess = System.currentTimeMillis();
+        }
+        
+        public String getName() {
+            return name;
+        }
+        
+        public Path getDirectory() {
+            return directory;
+        }
+        
+        /**
+         * @return The downloadable files by name, in name order
+         */
+        public Map<String, StoredFile> getFiles() {
+            return files;
+        }
+        
+        /**
+         * @return Bytes on disk, including hidden working files and gzip copies
+         */
+        public long getBytes() {
+            return bytes;
+        }
+        
+        /**
+         * @return When a file of the batch was last written
+         */
+        public long getLastModified() {
+            return lastModified;
+        }
+        
+        public long getLastAccess() {
+            return lastAccess;
+        }
+        
+        /**
+         * @return Whether the batch is still being processed
+         */
+        public boolean isActive() {
+            return active;
+        }
+        
+        /**
+         * @return Whether some file of the batch is only kept gzipped
+         */
+        public boolean isCompressed() {
+            for (StoredFile file : files.values()) {
+                if (file.getPath() == null) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+    
+    /**
+     * A downloadable file of a batch: the plain file, its gzip copy, or both
+     */
+    public static final class StoredFile {
+        private final String name;
+        private final Path path;
+        private final long length;
+        private final Path gzipPath;
+        private final long gzipLength;
+        private final long lastModified;
+        
+        StoredFile(String name, Path path, long length, Path gzipPath, long gzipLength, long lastModified) {
+            this.name = name;
+            this.path = path;
+            this.length = length;
+            this.gzipPath = gzipPath;
+            this.gzipLength = gzipLength;
+            this.lastModified = lastModified;
+        }
+        
+        public String getName() {
+            return name;
+        }
+        
+        /**
+         * @return The plain file, or null once its batch has been compressed
+         */
+        public Path getPath() {
+            return path;
+        }
+        
+        /**
+         * @return Length of the plain content, also once only the gzip copy is kept; -1 if a gzip copy
+         *         found on disk is too large for its length to be known without inflating it
+         */
+        public long getLength() {
+            return length;
+        }
+        
+        /**
+         * @return The gzip copy, or null if there is none
+         */
+        public Path getGzipPath() {
+            return gzipPath;
+        }
+        
+        public long getGzipLength() {
+            return gzipLength;
+        }
+        
+        public long getLastModified() {
+            return lastModified;
+        }
+    }
+    
+    /**
+     * Open the configured storage and schedule its sweep
+     */
+    private static BatchStorage open() throws IOException {
+        long retentionMillis = TimeUnit.HOURS.toMillis(getSetting("whitelist.storage.retentionHours", 0, 0));
+        long compressAfterMillis = TimeUnit.HOURS.toMillis(getSetting("whitelist.storage.compressAfterHours", 0, 0));
+        long maxBytes = getSetting("whitelist.storage.maxMegabytes", 0, 0) * 1024 * 1024;
+        long sweepMinutes = getSetting("whitelist.storage.sweepMinutes", 10, 1);
+        
+        Path root;
+        try {
+            root = chooseRoot(System.getProperty("whitelist.storage.dir"), legacyRoot,
+                              Paths.get(System.getProperty("user.home"), DEFAULT_DIR_NAME));
+        } catch (InvalidPathException e) {
+            throw new IOException("Invalid whitelist.storage.dir: " + e.getMessage(), e);
+        }
+        BatchStorage storage;
+        try {
+            storage = new BatchStorage(root, retentionMillis, compressAfterMillis, maxBytes);
+        } catch (IOException e) {
+            throw new IOException("Cannot open batch storage at " + root + ": " + e.getMessage(), e);
+        }
+        if (!Files.isWritable(root)) {
+            throw new IOException("Batch storage at " + root + " is not writable");
+        }
+        
+        ScheduledExecutorService sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "whitelist-storage");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sweeper.scheduleWithFixedDelay(() -> {
+            try {
+                storage.sweep();
+            } catch (RuntimeException e) {
+                LOG.error("Error sweeping batch storage", e);
+            }
+        }, sweepMinutes, sweepMinutes, TimeUnit.MINUTES);
+        LOG.info("Batch storage at " + root + " holds " + storage.batches.size() + " batches");
+        return storage;
+    }
+    
+    /**
+     * @return A whole-number system property, or its default when unset
+     * @throws IOException If the property is set to something else or to less than the minimum
+     */
+    static long getSetting(String property, long defaultValue, long minimum) throws IOException {
+        String value = System.getProperty(property);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            long setting = Long.parseLong(value.trim());
+            if (setting >= minimum) {
+                return setting;
+            }
+        } catch (NumberFormatException e) {
+            // Reported below
+        }
+        throw new IOException("Invalid " + property + ": '" + value + "' (expected a whole number of at least "
+                              + minimum + ")");
+    }
+}
\ No newline at end of file
@@ -0,0 +1,102 @@
+// src/main/java/com/smartibf/utils/BloomFilter.java
+package com.smartibf.utils;
+
+/**
+ * Bloom filter over primitive longs, used to skip exact lookups for numbers that are certainly absent.
+ * The bit array is sized from the expected number of entries and the target false-positive rate.
+ * Adding is not thread-safe; once filled, the filter can be read from any thread.
+ */
+public class BloomFilter {
+    private static final double LN2 = Math.log(2);
+    
+    private final long[] bits;
+    private final long bitCount;
+    private final int hashCount;
+    private long size;
+    
+    /**
+     * @param expectedEntries Number of entries the filter is sized for
+     * @param falsePositiveRate Target false-positive rate at the expected size, between 0 and 1
+     */
+    public BloomFilter(long expectedEntries, double falsePositiveRate) {
+        if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("False positive rate must be between 0 and 1: " + falsePositiveRate);
+        }
+        
+        long entries = Math.max(expectedEntries, 1);
+        long optimalBits = (long) Math.ceil(-entries * Math.log(falsePositiveRate) / (LN2 * LN2));
+        int words = (int) Math.min((optimalBits + 63) / 64, Integer.MAX_VALUE - 8);
+        this.bits = new long[Math.max(words, 1)];
+        this.bitCount = (long) bits.length * 64;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / entries * LN2));
+    }
+    
+    /**
+     * Adds a value to the filter
+     * @param value The value to add
+     */
+    public void add(long value) {
+        long hash = mix(value);
+        long h1 = hash & 0xFFFFFFFFL;
+        long h2 = hash >>> 32;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = ((h1 + i * h2) & Long.MAX_VALUE) % bitCount;
+            bits[(int) (bit >>> 6)] |= 1L << bit;
+        }
+        size++;
+    }
+    
+    /**
+     * Checks whether a value may have been added
+     * @param value The value to look up
+     * @return false if the value was certainly never added
+     */
+    public boolean mightContain(long value) {
+        long hash = mix(value);
+        long h1 = hash & 0xFFFFFFFFL;
+        long h2 = hash >>> 32;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = ((h1 + i * h2) & Long.MAX_VALUE) % bitCount;
+            if ((bits[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * @return Number of values added
+     */
+    public long size() {
+        return size;
+    }
+    
+    /**
+     * @return Bytes used by the bit array
+     */
+    public long getMemoryBytes() {
+        return (long) bits.length * Long.BYTES;
+    }
+    
+    public int getHashCount() {
+        return hashCount;
+    }
+    
+    /**
+     * @return Expected false-positive rate for the values added so far
+     */
+    public double getExpectedFalsePositiveRate() {
+        return Math.pow(1 - Math.exp(-hashCount * (double) size / bitCount), hashCount);
+    }
+    
+    private static long mix(long value) {
+        // Murmur3 finalizer, as in LongHashSet
+        long h = value;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
\ No newline at end of file
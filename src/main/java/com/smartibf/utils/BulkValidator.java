@@ -0,0 +1,207 @@
+// src/main/java/com/smartibf/utils/BulkValidator.java
+package com.smartibf.utils;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+
+/**
+ * Validates the numbers of a bulk request and streams one result per number, in request order.
+ * Each number is read, validated, checked against the earlier numbers of the request and written
+ * before the next one is read, so the response starts while the request is still arriving and
+ * neither side is ever held in memory. Results are JSON objects, either as the elements of a
+ * {@code results} array followed by the counts, or as NDJSON lines:
+ * <pre>
+ * {"valid":true,"number":"639171234567"}
+ * {"valid":false,"input":"0917123","reason":"TOO_SHORT","text":"Too short (should be 12 digits)"}
+ * {"valid":false,"input":"09171234567","reason":"DUPLICATE","text":"Duplicate of","number":"639171234567","first":0}
+ * </pre>
+ * {@code first} is the zero-based position of the number's first occurrence in the request.
+ */
+public class BulkValidator {
+    private static final int NUMBER_BUFFER_SIZE = 20;
+    
+    private final FileProcessor fileProcessor;
+    
+    public BulkValidator(FileProcessor fileProcessor) {
+        this.fileProcessor = fileProcessor;
+    }
+    
+    /**
+     * Validate a request body into a response body.
+     * A malformed request ends the results with an {@code error} member, or an {@code error} line for
+     * NDJSON, after the results of the records read before the error.
+     * @param in The request body
+     * @param ndjsonIn Whether the request is NDJSON rather than a JSON array
+     * @param out The response body; flushed, not closed
+     * @param ndjsonOut Whether to answer with NDJSON rather than a JSON object
+     * @param requestBytes Length of the request body if known, to size the duplicate set; -1 if unknown
+     * @param maxRecords Records accepted per request; the rest of the request is rejected
+     * @return The counts of the request
+     */
+    public Summary validate(Reader in, boolean ndjsonIn, Writer out, boolean ndjsonOut, long requestBytes,
+                            int maxRecords) throws IOException {
+        long start = System.nanoTime();
+        ResponseHandler handler = new ResponseHandler(out, ndjsonOut);
+        JsonRecordReader records = new JsonRecordReader(in, ndjsonIn);
+        String error = null;
+        if (!ndjsonOut) {
+            out.write("{\"results\":[");
+        }
+        
+        try {
+            fileProcessor.processRecords(() -> {
+                String record = records.next();
+                if (record != null && handler.total == maxRecords) {
+                    throw new IllegalArgumentException("More than " + maxRecords + " records in one request");
+                }
+                return record;
+            }, handler, FileProcessor.expectedRecords(Math.max(requestBytes, 0)));
+        } catch (IllegalArgumentException e) {
+            error = e.getMessage();
+        }
+        
+        if (ndjsonOut) {
+            if (error != null) {
+                out.write("{\"error\":");
+                Json.quote(out, error);
+                out.write("}\n");
+            }
+        } else {
+            out.write("]");
+            if (error != null) {
+                out.write(",\"error\":");
+                Json.quote(out, error);
+            }
+            out.write(",\"total\":" + handler.total + ",\"valid\":" + handler.valid + ",\"invalid\":" + handler.invalid
+                      + ",\"duplicates\":" + handler.duplicates + "}");
+        }
+        out.flush();
+        
+        ProcessingMetrics.VALID_RECORDS.add(handler.valid);
+        ProcessingMetrics.INVALID_RECORDS.add(handler.invalid);
+        ProcessingMetrics.DUPLICATE_RECORDS.add(handler.duplicates);
+        ProcessingMetrics.BULK_VALIDATE_TIME.recordSince(start);
+        return new Summary(handler.total, handler.valid, handler.invalid, handler.duplicates, error);
+    }
+    
+    /**
+     * Writes the result of each record as it is dispatched
+     */
+    private static class ResponseHandler implements FileProcessor.RecordHandler {
+        private final Writer out;
+        private final boolean ndjson;
+        private final char[] digits = new char[NUMBER_BUFFER_SIZE];
+        private int total;
+        private int valid;
+        private int invalid;
+        private int duplicates;
+        
+        ResponseHandler(Writer out, boolean ndjson) {
+            this.out = out;
+            this.ndjson = ndjson;
+        }
+        
+        @Override
+        public void onValid(long number) throws IOException {
+            begin();
+            valid++;
+            out.write("{\"valid\":true,\"number\":\"");
+            FileProcessor.writeNumber(out, digits, number);
+            out.write("\"}");
+            end();
+        }
+        
+        @Override
+        public void onInvalid(String line, InvalidReason reason) throws IOException {
+            begin();
+            invalid++;
+            writeRejected(line, reason);
+            out.write("}");
+            end();
+        }
+        
+        @Override
+        public void onDuplicate(String line, long number, int firstLineIndex) throws IOException {
+            begin();
+            duplicates++;
+            writeRejected(line, InvalidReason.DUPLICATE);
+            out.write(",\"number\":\"");
+            FileProcessor.writeNumber(out, digits, number);
+            out.write("\",\"first\":");
+            out.write(Integer.toString(firstLineIndex));
+            out.write("}");
+            end();
+        }
+        
+        @Override
+        public void onDuplicateInBatch(String line, long number) throws IOException {
+            // Requests are validated on their own
+            onDuplicate(line, number, -1);
+        }
+        
+        private void writeRejected(String line, InvalidReason reason) throws IOException {
+            out.write("{\"valid\":false,\"input\":");
+            Json.quote(out, line);
+            out.write(",\"reason\":\"");
+            out.write(reason.name());
+            out.write("\",\"text\":");
+            Json.quote(out, reason.getText());
+        }
+        
+        private void begin() throws IOException {
+            if (!ndjson && total > 0) {
+                out.write(',');
+            }
+            total++;
+        }
+        
+        private void end() throws IOException {
+            if (ndjson) {
+                out.write('\n');
+            }
+        }
+    }
+    
+    /**
+     * Counts of one bulk request
+     */
+    public static class Summary {
+        private final int totalRecords;
+        private final int validRecords;
+        private final int invalidRecords;
+        private final int duplicateRecords;
+        private final String errorMessage;
+        
+        Summary(int totalRecords, int validRecords, int invalidRecords, int duplicateRecords, String errorMessage) {
+            this.totalRecords = totalRecords;
+            this.validRecords = validRecords;
+            this.invalidRecords = invalidRecords;
+            this.duplicateRecords = duplicateRecords;
+            this.errorMessage = errorMessage;
+        }
+        
+        public int getTotalRecords() {
+            return totalRecords;
+        }
+        
+        public int getValidRecords() {
+            return validRecords;
+        }
+        
+        public int getInvalidRecords() {
+            return invalidRecords;
+        }
+        
+        public int getDuplicateRecords() {
+            return duplicateRecords;
+        }
+        
+        /**
+         * @return Why the request was cut short, or null if every record was read
+         */
+        public String getErrorMessage() {
+            return errorMessage;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,76 @@
+// src/main/java/com/smartibf/utils/ByteRange.java
+package com.smartibf.utils;
+
+/**
+ * A single byte range of an HTTP Range request, resolved against the length of the file served
+ */
+public class ByteRange {
+    /** Returned by {@link #parse(String, long)} when the range cannot be satisfied */
+    public static final ByteRange UNSATISFIABLE = new ByteRange(-1, -1);
+    
+    private final long start;
+    private final long end;
+    
+    private ByteRange(long start, long end) {
+        this.start = start;
+        this.end = end;
+    }
+    
+    /**
+     * Parse a Range header. Only a single range is honoured; multiple ranges and
+     * malformed headers are ignored so the whole file is served.
+     * @param header The Range header, may be null
+     * @param length Length of the file served
+     * @return The range, null to serve the whole file, or UNSATISFIABLE
+     */
+    public static ByteRange parse(String header, long length) {
+        if (header == null || !header.startsWith("bytes=") || header.indexOf(',') >= 0) {
+            return null;
+        }
+        
+        String spec = header.substring("bytes=".length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return null;
+        }
+        
+        try {
+            String first = spec.substring(0, dash).trim();
+            String last = spec.substring(dash + 1).trim();
+            
+            if (first.isEmpty()) {
+                // Suffix range: the last N bytes
+                long suffix = Long.parseLong(last);
+                if (suffix <= 0 || length == 0) {
+                    return UNSATISFIABLE;
+                }
+                return new ByteRange(Math.max(0, length - suffix), length - 1);
+            }
+            
+            long start = Long.parseLong(first);
+            long end = last.isEmpty() ? length - 1 : Math.min(Long.parseLong(last), length - 1);
+            if (start >= length || end < start) {
+                return UNSATISFIABLE;
+            }
+            return new ByteRange(start, end);
+        
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+    
+    public long getStart() {
+        return start;
+    }
+    
+    /**
+     * @return Last byte of the range, inclusive
+     */
+    public long getEnd() {
+        return end;
+    }
+    
+    public long getLength() {
+        return end - start + 1;
+    }
+}
\ No newline at end of file
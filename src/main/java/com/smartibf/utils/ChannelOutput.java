@@ -0,0 +1,125 @@
+// src/main/java/com/smartibf/utils/ChannelOutput.java
+package com.smartibf.utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Encodes output straight into a large direct buffer that is written to a file channel when full.
+ * Numbers are rendered as ASCII digits in place, so no String or char[] is created per record.
+ */
+final class ChannelOutput implements Closeable {
+    private static final int BUFFER_SIZE = 256 * 1024;
+    private static final int MAX_NUMBER_LENGTH = 20; // digits of Long.MAX_VALUE
+    
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    
+    ChannelOutput(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                        StandardOpenOption.TRUNCATE_EXISTING);
+    }
+    
+    /**
+     * Write a non-negative number as decimal digits
+     */
+    void putNumber(long number) throws IOException {
+        ensure(MAX_NUMBER_LENGTH);
+        int length = 1;
+        for (long n = number / 10; n > 0; n /= 10) {
+            length++;
+        }
+        
+        int end = buffer.position() + length;
+        for (int i = end - 1; i >= buffer.position(); i--) {
+            buffer.put(i, (byte) ('0' + number % 10));
+            number /= 10;
+        }
+        buffer.position(end);
+    }
+    
+    void putByte(char c) throws IOException {
+        ensure(1);
+        buffer.put((byte) c);
+    }
+    
+    void putInt(int value) throws IOException {
+        ensure(Integer.BYTES);
+        buffer.putInt(value);
+    }
+    
+    void putLong(long value) throws IOException {
+        ensure(Long.BYTES);
+        buffer.putLong(value);
+    }
+    
+    /**
+     * Write text as UTF-8
+     */
+    void putText(CharSequence text) throws IOException {
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) >= 0x80) {
+                putBytes(text.toString().getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+        }
+        
+        // ASCII, one byte per char, a buffer's worth at a time
+        int offset = 0;
+        while (offset < text.length()) {
+            ensure(1);
+            int end = offset + Math.min(buffer.remaining(), text.length() - offset);
+            for (; offset < end; offset++) {
+                buffer.put((byte) text.charAt(offset));
+            }
+        }
+    }
+    
+    /**
+     * Overwrite bytes already written at a position of the file
+     */
+    void putAt(long position, ByteBuffer bytes) throws IOException {
+        flush();
+        while (bytes.hasRemaining()) {
+            position += channel.write(bytes, position);
+        }
+    }
+    
+    void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+    
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+    
+    private void putBytes(byte[] bytes) throws IOException {
+        int offset = 0;
+        while (offset < bytes.length) {
+            ensure(1);
+            int count = Math.min(buffer.remaining(), bytes.length - offset);
+            buffer.put(bytes, offset, count);
+            offset += count;
+        }
+    }
+    
+    private void ensure(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            flush();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,240 @@
+// src/main/java/com/smartibf/utils/ChunkedUpload.java
+package com.smartibf.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A file uploaded as a sequence of chunks that can be read while it is still arriving.
+ * Chunks are appended to a spool file at the offset the client sends; a chunk that does
+ * not start at the current end is refused so the client can resume from there. The stream
+ * returned by {@link #openStream()} blocks until more bytes arrive or the upload completes,
+ * so processing overlaps the upload.
+ */
+public class ChunkedUpload {
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+    private static final long STALL_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(30);
+    
+    private final String id;
+    private final String fileName;
+    private final Path spoolFile;
+    private final FileChannel channel;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition dataAvailable = lock.newCondition();
+    private final Object appendLock = new Object();
+    private long received;
+    private boolean complete;
+    private volatile boolean closed;
+    private volatile long lastActivity = System.currentTimeMillis();
+    private volatile String jobId;
+    
+    /**
+     * @param id Upload id
+     * @param fileName Original name of the uploaded file
+     * @param spoolFile File the chunks are written to
+     * @throws IOException If the spool file cannot be created
+     */
+    public ChunkedUpload(String id, String fileName, Path spoolFile) throws IOException {
+        this.id = id;
+        this.fileName = fileName;
+        this.spoolFile = spoolFile;
+        Files.createDirectories(spoolFile.getParent());
+        this.channel = FileChannel.open(spoolFile, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                                        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    }
+    
+    /**
+     * Append a chunk. Bytes are made readable as they are written, so a chunk that is cut off
+     * still counts up to the last byte received.
+     * @param body Chunk contents
+     * @param offset Offset of the chunk in the file
+     * @param maxBytes Largest chunk accepted
+     * @return false if the offset is not the current end of the upload and nothing was written
+     * @throws IOException If the chunk is too large, the upload is closed or the chunk cannot be written
+     */
+    public boolean append(InputStream body, long offset, long maxBytes) throws IOException {
+        synchronized (appendLock) {
+            if (isComplete()) {
+                throw new IOException("Upload " + id + " is already complete");
+            }
+            if (offset != getReceived()) {
+                return false;
+            }
+            
+            byte[] bytes = new byte[COPY_BUFFER_SIZE];
+            long position = offset;
+            int read;
+            while ((read = body.read(bytes)) > 0) {
+                if (position + read - offset > maxBytes) {
+                    throw new IOException("Chunk larger than " + maxBytes + " bytes");
+                }
+                ByteBuffer buffer = ByteBuffer.wrap(bytes, 0, read);
+                while (buffer.hasRemaining()) {
+                    checkOpen();
+                    position += channel.write(buffer, position);
+                }
+                advance(position);
+            }
+            return true;
+        }
+    }
+    
+    /**
+     * Mark the upload as complete; readers see the end of the stream once they have read every byte
+     */
+    public void complete() {
+        lock.lock();
+        try {
+            complete = true;
+            dataAvailable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Release the spool file; readers and writers still waiting fail
+     */
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            closed = true;
+            dataAvailable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        channel.close();
+        Files.deleteIfExists(spoolFile);
+    }
+    
+    /**
+     * Open a stream over the upload from its first byte
+     * @return A stream that blocks until more bytes arrive, and ends once the upload is complete
+     */
+    public InputStream openStream() {
+        return new InputStream() {
+            private long position;
+            
+            @Override
+            public int read() throws IOException {
+                byte[] single = new byte[1];
+                return read(single, 0, 1) < 0 ? -1 : single[0] & 0xFF;
+            }
+            
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                if (len == 0) {
+                    return 0;
+                }
+                long available = awaitData(position);
+                if (available == 0) {
+                    return -1;
+                }
+                
+                ByteBuffer buffer = ByteBuffer.wrap(b, off, (int) Math.min(len, available));
+                while (buffer.hasRemaining()) {
+                    int n = channel.read(buffer, position + buffer.position() - off);
+                    if (n < 0) {
+                        throw new IOException("Upload spool truncated");
+                    }
+                }
+                int count = buffer.position() - off;
+                position += count;
+                return count;
+            }
+        };
+    }
+    
+    public String getId() {
+        return id;
+    }
+    
+    public String getFileName() {
+        return fileName;
+    }
+    
+    /**
+     * @return Number of bytes received so far, which is the offset of the next chunk
+     */
+    public long getReceived() {
+        lock.lock();
+        try {
+            return received;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    public boolean isComplete() {
+        lock.lock();
+        try {
+            return complete;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    public long getLastActivity() {
+        return lastActivity;
+    }
+    
+    public String getJobId() {
+        return jobId;
+    }
+    
+    public void setJobId(String jobId) {
+        this.jobId = jobId;
+    }
+    
+    private void advance(long position) {
+        lock.lock();
+        try {
+            received = position;
+            lastActivity = System.currentTimeMillis();
+            dataAvailable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Wait until bytes past the position are available
+     * @return Number of bytes readable at the position, or 0 at the end of a complete upload
+     */
+    private long awaitData(long position) throws IOException {
+        lock.lock();
+        try {
+            long deadline = System.currentTimeMillis() + STALL_TIMEOUT_MILLIS;
+            while (received == position && !complete) {
+                checkOpen();
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    throw new IOException("Upload stalled: no data received for "
+                                          + TimeUnit.MILLISECONDS.toMinutes(STALL_TIMEOUT_MILLIS) + " minutes");
+                }
+                dataAvailable.await(remaining, TimeUnit.MILLISECONDS);
+            }
+            checkOpen();
+            return received - position;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for upload data", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    private void checkOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Upload " + id + " is closed");
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,101 @@
+// src/main/java/com/smartibf/utils/ChunkedUploads.java
+package com.smartibf.utils;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Registry of chunked uploads in progress.
+ * Uploads that receive no chunk for an hour are closed and forgotten by a periodic sweep.
+ * Uploads are processed while they arrive on a pool of their own, sized with the
+ * {@code whitelist.chunked.streams} system property, so clients that send slowly or stop
+ * sending never hold the job pool or the file worker pool.
+ */
+public final class ChunkedUploads {
+    private static final Logger LOG = LogManager.getLogger(ChunkedUploads.class);
+    private static final long IDLE_MILLIS = TimeUnit.HOURS.toMillis(1);
+    private static final long SWEEP_MINUTES = 5;
+    private static final int MAX_STREAMS = Integer.getInteger("whitelist.chunked.streams", 4);
+    private static final Map<String, ChunkedUpload> UPLOADS = new ConcurrentHashMap<>();
+    private static final ExecutorService STREAMS = Executors.newFixedThreadPool(
+        MAX_STREAMS, ProcessingExecutor.threadFactory("whitelist-stream-"));
+    private static final ScheduledExecutorService SWEEPER = Executors.newSingleThreadScheduledExecutor(
+        ProcessingExecutor.threadFactory("whitelist-upload-sweep-"));
+    
+    static {
+        SWEEPER.scheduleWithFixedDelay(() -> {
+            try {
+                evictIdle(System.currentTimeMillis());
+            } catch (RuntimeException e) {
+                LOG.error("Error evicting idle uploads", e);
+            }
+        }, SWEEP_MINUTES, SWEEP_MINUTES, TimeUnit.MINUTES);
+    }
+    
+    private ChunkedUploads() {
+    }
+    
+    /**
+     * @return The executor that processes uploads while they arrive
+     */
+    public static Executor streams() {
+        return STREAMS;
+    }
+    
+    /**
+     * Start an upload
+     * @param fileName Original name of the file being uploaded
+     * @param stagingDirectory Directory the upload is spooled to
+     * @return The new upload
+     * @throws IOException If the spool file cannot be created
+     */
+    public static ChunkedUpload create(String fileName, Path stagingDirectory) throws IOException {
+        String id = UUID.randomUUID().toString();
+        ChunkedUpload upload = new ChunkedUpload(id, fileName, stagingDirectory.resolve(id + ".upload"));
+        UPLOADS.put(id, upload);
+        return upload;
+    }
+    
+    /**
+     * @return The upload with the given id, or null if it is unknown or finished
+     */
+    public static ChunkedUpload get(String uploadId) {
+        return uploadId == null ? null : UPLOADS.get(uploadId);
+    }
+    
+    /**
+     * Forget an upload and release its spool file
+     */
+    public static void remove(ChunkedUpload upload) {
+        UPLOADS.remove(upload.getId());
+        try {
+            upload.close();
+        } catch (IOException e) {
+            LOG.warn("Error closing upload " + upload.getId(), e);
+        }
+    }
+    
+    /**
+     * Close and forget the uploads idle for too long; a job still reading one fails
+     * @param now Current time in milliseconds
+     */
+    static void evictIdle(long now) {
+        long cutoff = now - IDLE_MILLIS;
+        for (ChunkedUpload upload : UPLOADS.values()) {
+            if (upload.getLastActivity() < cutoff) {
+                remove(upload);
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,147 @@
+// src/main/java/com/smartibf/utils/FileChunker.java
+package com.smartibf.utils;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.function.ToLongFunction;
+
+/**
+ * Splits a file into byte ranges that end on a newline and classifies the lines of each range.
+ * Because ranges only end after '\n', every line (including "\r\n" pairs and multi-byte
+ * UTF-8 characters) falls entirely within one range.
+ */
+final class FileChunker {
+    private static final int SCAN_BUFFER_SIZE = 4096;
+    
+    private FileChunker() {
+    }
+    
+    /**
+     * @return Ranges as {start, end} pairs (end exclusive), in file order
+     */
+    static List<long[]> split(FileChannel channel, int chunkSize) throws IOException {
+        List<long[]> ranges = new ArrayList<>();
+        long size = channel.size();
+        long start = 0;
+        
+        while (start < size) {
+            long end = start + chunkSize >= size ? size : nextLineStart(channel, start + chunkSize - 1, size);
+            ranges.add(new long[] {start, end});
+            start = end;
+        }
+        
+        return ranges;
+    }
+    
+    /**
+     * Reads a range and classifies each of its lines
+     */
+    static Chunk read(FileChannel channel, long start, long end, ToLongFunction<String> classifier) throws IOException {
+        byte[] bytes = new byte[(int) (end - start)];
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, start + buffer.position()) < 0) {
+                throw new IOException("File truncated while reading");
+            }
+        }
+        
+        // Same strict decoding as Files.newBufferedReader
+        Chunk chunk = new Chunk(bytes.length / 13 + 1); // "639XXXXXXXXX\n" per line
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new ByteArrayInputStream(bytes), StandardCharsets.UTF_8.newDecoder()))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                chunk.add(line, classifier.applyAsLong(line));
+            }
+        }
+        return chunk;
+    }
+    
+    /**
+     * Waits for a chunk or pipeline stage, rethrowing the failure of the task that produced it
+     */
+    static <T> T await(Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while processing file", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) cause).getCause();
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+    
+    private static long nextLineStart(FileChannel channel, long from, long size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+        long position = from;
+        
+        while (position < size) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+    
+    /**
+     * Lines of one range with their classification outcomes
+     */
+    static final class Chunk {
+        private final List<String> lines;
+        private long[] outcomes;
+        
+        Chunk(int expectedLines) {
+            this.lines = new ArrayList<>(expectedLines);
+            this.outcomes = new long[expectedLines];
+        }
+        
+        void add(String line, long outcome) {
+            if (lines.size() == outcomes.length) {
+                outcomes = Arrays.copyOf(outcomes, outcomes.length * 2);
+            }
+            outcomes[lines.size()] = outcome;
+            lines.add(line);
+        }
+        
+        int size() {
+            return lines.size();
+        }
+        
+        String line(int index) {
+            return lines.get(index);
+        }
+        
+        long outcome(int index) {
+            return outcomes[index];
+        }
+    }
+}
\ No newline at end of file
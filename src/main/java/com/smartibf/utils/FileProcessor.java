@@ -2,8 +2,18 @@
 package com.smartibf.utils;
 
 import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.LongStream;
+import java.util.concurrent.Future;
+import java.util.function.LongConsumer;
+import java.util.function.LongPredicate;
+import java.util.function.LongSupplier;
 
 /**
  * Handles file processing operations for phone whitelist files
@@ -11,10 +21,57 @@ import java.util.*;
 public class FileProcessor {
     private static final long MAX_FILE_SIZE = 1024 * 1024; // 1MB
     private static final String ALLOWED_EXTENSION = ".txt";
+    private static final int STREAM_BUFFER_SIZE = 64 * 1024;
+    private static final int BYTES_PER_RECORD_ESTIMATE = 13; // "639XXXXXXXXX\n"
+    private static final int DEFAULT_EXPECTED_RECORDS = 1024;
+    private static final int MAX_PRESIZED_RECORDS = 1 << 20; // larger sets grow on demand
+    private static final int PARALLEL_CHUNK_SIZE = 256 * 1024;
+    private static final long EMPTY_LINE = Long.MIN_VALUE; // classify() outcome for blank lines
+    static final int NUMBER_BUFFER_SIZE = 20; // digits of Long.MAX_VALUE
+    private static final int PIPELINE_DEPTH = 4; // blocks in flight between two stages
+    private static final int PIPELINE_BLOCK_SIZE = 4096; // records per block
     private final PhoneNumberValidator validator;
+    private final boolean offHeapDedup;
+    private final boolean recordsMetrics;
     
     public FileProcessor() {
-        this.validator = new PhoneNumberValidator();
+        this(false);
+    }
+    
+    /**
+     * @param offHeapDedup Whether the duplicate detection set is kept outside the Java heap
+     */
+    public FileProcessor(boolean offHeapDedup) {
+        this(PhoneNumberValidator.configured(), offHeapDedup);
+    }
+    
+    /**
+     * @param validator Validator for the numbering plans to accept
+     * @param offHeapDedup Whether the duplicate detection set is kept outside the Java heap
+     */
+    public FileProcessor(PhoneNumberValidator validator, boolean offHeapDedup) {
+        this(validator, offHeapDedup, true);
+    }
+    
+    private FileProcessor(PhoneNumberValidator validator, boolean offHeapDedup, boolean recordsMetrics) {
+        this.validator = validator;
+        this.offHeapDedup = offHeapDedup;
+        this.recordsMetrics = recordsMetrics;
+    }
+    
+    /**
+     * @return A processor like this one that leaves the processing metrics alone, for files processed again
+     *         whose first run was already counted
+     */
+    public FileProcessor withoutMetrics() {
+        return new FileProcessor(validator, offHeapDedup, false);
+    }
+    
+    /**
+     * @return Whether duplicate detection sets are kept outside the Java heap
+     */
+    public boolean isOffHeapDedup() {
+        return offHeapDedup;
     }
     
     /**
@@ -27,54 +84,41 @@ public class FileProcessor {
         Path path = Paths.get(filePath);
         
         // Validate file extension
-        if (!filePath.toLowerCase().endsWith(ALLOWED_EXTENSION)) {
-            throw new IllegalArgumentException("Only .txt files are supported");
-        }
+        validateExtension(filePath);
         
         // Validate file size
         if (Files.size(path) > MAX_FILE_SIZE) {
             throw new IllegalArgumentException("File size exceeds 1MB limit");
         }
         
-        // Read all lines from the file first
-        List<String> allLines = Files.readAllLines(path);
-        
-        Map<String, String> validNumbers = new LinkedHashMap<>(); // Maintains order with validation info
-        Map<String, String> invalidNumbers = new LinkedHashMap<>(); // Invalid numbers with reasons
-        int totalRecords = allLines.size();
-        int invalidRecords = 0;
-        int duplicates = 0;
-        
-        // Process each line
-        Set<String> seenNumbers = new HashSet<>();
-        
-        for (String line : allLines) {
-            String originalLine = line;
-            
-            // Skip empty lines
-            if (line.trim().isEmpty()) {
-                invalidNumbers.put(originalLine, "Empty line");
-                invalidRecords++;
-                continue;
-            }
-            
-            PhoneNumberValidator.ValidationResult validationResult = validator.validateAndFormatWithReason(line);
-            
-            if (!validationResult.isValid()) {
-                // Invalid phone number
-                invalidNumbers.put(originalLine, validationResult.getReason());
-                invalidRecords++;
-            } else if (!seenNumbers.add(validationResult.getFormattedNumber())) {
-                // Duplicate number
-                invalidNumbers.put(originalLine, "Duplicate of " + validationResult.getFormattedNumber());
-                duplicates++;
-            } else {
-                // Valid number
-                validNumbers.put(validationResult.getFormattedNumber(), "Valid");
-            }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            recordInputBytes(channel.size());
+            return collect(handler -> processMapped(channel, handler, expectedRecords(channel.size()), null));
+        }
+    }
+    
+    /**
+     * Process a whitelist file with its chunks validated in parallel.
+     * The result is identical to {@link #processWhitelistFile(String)}.
+     * @param filePath Path to the whitelist file
+     * @return ProcessResult containing processing statistics and all numbers (valid and invalid with reasons)
+     * @throws IOException If file operations fail
+     */
+    public ProcessResult processWhitelistFileParallel(String filePath) throws IOException {
+        return processWhitelistFileParallel(filePath, PARALLEL_CHUNK_SIZE);
+    }
+    
+    ProcessResult processWhitelistFileParallel(String filePath, int chunkSize) throws IOException {
+        Path path = Paths.get(filePath);
+        validateExtension(filePath);
+        if (Files.size(path) > MAX_FILE_SIZE) {
+            throw new IllegalArgumentException("File size exceeds 1MB limit");
         }
         
-        return new ProcessResult(validNumbers, invalidNumbers, totalRecords, invalidRecords, duplicates);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            recordInputBytes(channel.size());
+            return collect(handler -> processChunks(channel, chunkSize, handler, expectedRecords(channel.size())));
+        }
     }
     
     /**
@@ -86,25 +130,157 @@ public class FileProcessor {
      */
     public ProcessResult processWhitelistStream(InputStream inputStream, String fileName) throws IOException {
         // Validate file extension
-        if (!fileName.toLowerCase().endsWith(ALLOWED_EXTENSION)) {
-            throw new IllegalArgumentException("Only .txt files are supported");
+        validateExtension(fileName);
+        
+        // Read straight from the stream; the size limit is enforced while reading
+        SizeLimitedInputStream limited = new SizeLimitedInputStream(inputStream, MAX_FILE_SIZE);
+        BufferedReader reader = new BufferedReader(new InputStreamReader(limited, StandardCharsets.UTF_8));
+        try {
+            return collect(handler -> processLines(reader, handler, DEFAULT_EXPECTED_RECORDS));
+        } finally {
+            recordInputBytes(limited.getCount());
         }
+    }
+    
+    /**
+     * Process a whitelist file in streaming mode, writing the cleaned output as records are read.
+     * Heap use does not depend on the file size, so no size limit is applied.
+     * @param filePath Path to the whitelist file
+     * @param outputPath Path to save the output file
+     * @return StreamSummary containing processing statistics
+     * @throws IOException If file operations fail
+     */
+    public StreamSummary processWhitelistFile(String filePath, String outputPath) throws IOException {
+        return processUploadedFile(new File(filePath), filePath, outputPath, null);
+    }
+    
+    /**
+     * Process a file already on local disk (such as an upload temp file) in streaming mode.
+     * The file is memory-mapped and scanned as bytes; only invalid lines are decoded into Strings.
+     * @param file The file on disk
+     * @param fileName Original filename for extension validation
+     * @param outputPath Path to save the output file
+     * @param progress Receives record counts as records are processed, may be null
+     * @return StreamSummary containing processing statistics
+     * @throws IOException If file operations fail
+     */
+    public StreamSummary processUploadedFile(File file, String fileName, String outputPath,
+                                             ProcessingProgress progress) throws IOException {
+        return processUploadedFile(file, fileName, outputPath, progress, Collections.emptyList());
+    }
+    
+    /**
+     * Process a file already on local disk in streaming mode, also passing every record to extra writers
+     * (such as the machine-readable output formats) in the same pass.
+     * @param file The file on disk
+     * @param fileName Original filename for extension validation
+     * @param outputPath Path to save the output file
+     * @param progress Receives record counts as records are processed, may be null
+     * @param writers Receive every record in file order; the caller closes them
+     * @return StreamSummary containing processing statistics
+     * @throws IOException If file operations fail
+     */
+    public StreamSummary processUploadedFile(File file, String fileName, String outputPath,
+                                             ProcessingProgress progress, List<ResultWriter> writers) throws IOException {
+        return processUploadedFile(file, fileName, outputPath, progress, writers, null);
+    }
+    
+    /**
+     * Process a file already on local disk in streaming mode as one file of a batch.
+     * Valid numbers that an earlier file of the batch keeps are reported as duplicates.
+     * @param file The file on disk
+     * @param fileName Original filename for extension validation
+     * @param outputPath Path to save the output file
+     * @param progress Receives record counts as records are processed, may be null
+     * @param writers Receive every record in file order; the caller closes them
+     * @param inEarlierFile Tests whether an earlier file of the batch keeps a number, may be null
+     * @return StreamSummary containing processing statistics
+     * @throws IOException If file operations fail
+     */
+    public StreamSummary processUploadedFile(File file, String fileName, String outputPath, ProcessingProgress progress,
+                                             List<ResultWriter> writers, LongPredicate inEarlierFile) throws IOException {
+        validateExtension(fileName);
         
-        // Create a temporary file to process
-        Path tempFile = Files.createTempFile("whitelist_upload_", ".txt");
-        Files.copy(inputStream, tempFile, StandardCopyOption.REPLACE_EXISTING);
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            recordInputBytes(channel.size());
+            long size = channel.size();
+            int expectedRecords = expectedRecords(size);
+            return streamToFile(handler -> processMapped(channel, handler, expectedRecords, inEarlierFile), outputPath,
+                                progress, writers, () -> size);
+        }
+    }
+    
+    /**
+     * Pass every valid number of a file on local disk to an action, repeats included.
+     * Nothing is written; this is the first pass of a batch that removes numbers repeated across files.
+     * @param file The file on disk
+     * @param fileName Original filename for extension validation
+     * @param action Receives each valid number in file order
+     * @throws IOException If the file cannot be read
+     */
+    public void forEachValidNumber(File file, String fileName, LongConsumer action) throws IOException {
+        validateExtension(fileName);
         
-        // Validate file size
-        if (Files.size(tempFile) > MAX_FILE_SIZE) {
-            Files.delete(tempFile);
-            throw new IllegalArgumentException("File size exceeds 1MB limit");
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            MappedLineReader.forEachLine(channel, line -> {
+                long outcome = classify(line);
+                if (outcome >= 0) {
+                    action.accept(outcome);
+                }
+            });
         }
+    }
+    
+    /**
+     * Process an input stream in streaming mode, writing the cleaned output as records are read.
+     * @param inputStream The input stream containing whitelist data
+     * @param fileName Original filename for extension validation
+     * @param outputPath Path to save the output file
+     * @return StreamSummary containing processing statistics
+     * @throws IOException If stream operations fail
+     */
+    public StreamSummary processWhitelistStream(InputStream inputStream, String fileName, String outputPath) throws IOException {
+        return processWhitelistStream(inputStream, fileName, outputPath, null);
+    }
+    
+    /**
+     * Process an input stream in streaming mode, reporting record counts while it runs.
+     * @param inputStream The input stream containing whitelist data
+     * @param fileName Original filename for extension validation
+     * @param outputPath Path to save the output file
+     * @param progress Receives record counts as records are processed, may be null
+     * @return StreamSummary containing processing statistics
+     * @throws IOException If stream operations fail
+     */
+    public StreamSummary processWhitelistStream(InputStream inputStream, String fileName, String outputPath,
+                                                ProcessingProgress progress) throws IOException {
+        return processWhitelistStream(inputStream, fileName, outputPath, progress, Collections.emptyList());
+    }
+    
+    /**
+     * Process an input stream in streaming mode, also passing every record to extra writers in the same pass.
+     * Records are processed as soon as their bytes can be read, so a stream that is still arriving
+     * (such as a chunked upload) is processed while it is being received.
+     * @param inputStream The input stream containing whitelist data
+     * @param fileName Original filename for extension validation
+     * @param outputPath Path to save the output file
+     * @param progress Receives record counts as records are processed, may be null
+     * @param writers Receive every record in file order; the caller closes them
+     * @return StreamSummary containing processing statistics
+     * @throws IOException If stream operations fail
+     */
+    public StreamSummary processWhitelistStream(InputStream inputStream, String fileName, String outputPath,
+                                                ProcessingProgress progress, List<ResultWriter> writers) throws IOException {
+        validateExtension(fileName);
         
+        SizeLimitedInputStream counted = new SizeLimitedInputStream(inputStream, Long.MAX_VALUE);
+        BufferedReader reader = new BufferedReader(
+            new InputStreamReader(counted, StandardCharsets.UTF_8), STREAM_BUFFER_SIZE);
         try {
-            return processWhitelistFile(tempFile.toString());
+            return streamToFile(handler -> processLines(reader, handler, DEFAULT_EXPECTED_RECORDS), outputPath,
+                                progress, writers, counted::getCount);
         } finally {
-            // Clean up temp file
-            Files.deleteIfExists(tempFile);
+            recordInputBytes(counted.getCount());
         }
     }
     
@@ -115,31 +291,24 @@ public class FileProcessor {
      * @throws IOException If file operations fail
      */
     public void saveToFile(ProcessResult result, String outputPath) throws IOException {
+        long start = System.nanoTime();
+        
         // Ensure parent directories exist
         Path outputFilePath = Paths.get(outputPath);
         Files.createDirectories(outputFilePath.getParent());
+        // Rebuilt from the new contents when a page is first requested
+        Files.deleteIfExists(ResultIndex.indexPath(outputFilePath));
         
         try (BufferedWriter writer = Files.newBufferedWriter(outputFilePath)) {
-            // Header
-            writer.write("# Phone Whitelist Processing Results");
-            writer.newLine();
-            writer.write("# Processed on: " + new Date());
-            writer.newLine();
-            writer.write("# Total records: " + result.getTotalRecords());
-            writer.newLine();
-            writer.write("# Valid records: " + result.getValidCount());
-            writer.newLine();
-            writer.write("# Invalid records: " + result.getInvalidRecords());
-            writer.newLine();
-            writer.write("# Duplicate records: " + result.getDuplicates());
-            writer.newLine();
-            writer.newLine();
+            writeHeader(writer, result.getTotalRecords(), result.getValidCount(),
+                        result.getInvalidRecords(), result.getDuplicates());
             
             // Valid numbers section
             writer.write("## VALID NUMBERS");
             writer.newLine();
-            for (String number : result.getValidNumbers()) {
-                writer.write(number);
+            char[] digits = new char[NUMBER_BUFFER_SIZE];
+            for (int i = 0; i < result.getValidCount(); i++) {
+                writeNumber(writer, digits, result.getValidNumber(i));
                 writer.newLine();
             }
             
@@ -148,38 +317,920 @@ public class FileProcessor {
             // Invalid numbers section
             writer.write("## INVALID NUMBERS (with reasons)");
             writer.newLine();
-            for (Map.Entry<String, String> entry : result.getInvalidNumbersWithReasons().entrySet()) {
-                writer.write(entry.getKey() + " # " + entry.getValue());
+            for (int i = 0; i < result.getInvalidLineCount(); i++) {
+                writer.write(result.getInvalidLine(i));
+                writer.write(" # ");
+                writer.write(result.getInvalidReasonText(i));
                 writer.newLine();
             }
         }
+        
+        if (recordsMetrics) {
+            ProcessingMetrics.OUTPUT_BYTES.add(Files.size(outputFilePath));
+            ProcessingMetrics.SAVE_TIME.recordSince(start);
+        }
+    }
+    
+    /**
+     * Render a number's digits into a reused buffer instead of creating a String per record
+     * @return Number of digits written
+     */
+    static int writeNumber(Writer writer, char[] digits, long number) throws IOException {
+        int pos = digits.length;
+        do {
+            digits[--pos] = (char) ('0' + number % 10);
+            number /= 10;
+        } while (number > 0);
+        writer.write(digits, pos, digits.length - pos);
+        return digits.length - pos;
+    }
+    
+    /**
+     * @return Length of the text encoded as UTF-8, with unpaired surrogates counted as the one-byte replacement
+     */
+    static int utf8Length(String text) {
+        int length = text.length();
+        int bytes = length;
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                continue;
+            }
+            if (c < 0x800) {
+                bytes += 1;
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(text.charAt(i + 1))) {
+                bytes += 2; // four bytes for the pair
+                i++;
+            } else if (!Character.isSurrogate(c)) {
+                bytes += 2;
+            }
+        }
+        return bytes;
+    }
+    
+    static int expectedRecords(long fileSize) {
+        return (int) Math.min(MAX_PRESIZED_RECORDS, fileSize / BYTES_PER_RECORD_ESTIMATE + 1);
+    }
+    
+    private void validateExtension(String fileName) {
+        if (!fileName.toLowerCase().endsWith(ALLOWED_EXTENSION)) {
+            throw new IllegalArgumentException("Only .txt files are supported");
+        }
+    }
+    
+    private void writeHeader(BufferedWriter writer, int totalRecords, int validCount,
+                             int invalidRecords, int duplicates) throws IOException {
+        writer.write("# Phone Whitelist Processing Results");
+        writer.newLine();
+        writer.write("# Processed on: " + new Date());
+        writer.newLine();
+        writer.write("# Total records: " + totalRecords);
+        writer.newLine();
+        writer.write("# Valid records: " + validCount);
+        writer.newLine();
+        writer.write("# Invalid records: " + invalidRecords);
+        writer.newLine();
+        writer.write("# Duplicate records: " + duplicates);
+        writer.newLine();
+        writer.newLine();
+    }
+    
+    /**
+     * Runs every line of the reader through validation and duplicate detection.
+     * Lines are read and decoded on a separate stage thread and handed over in blocks through a
+     * bounded queue, so reading the input overlaps validating it.
+     * @return Number of lines read
+     */
+    private int processLines(BufferedReader reader, RecordHandler handler, int expectedRecords) throws IOException {
+        Dispatcher dispatcher = new Dispatcher(new LongHashSet(expectedRecords, offHeapDedup), handler);
+        StageQueue<String[]> queue = new StageQueue<>(PIPELINE_DEPTH, () -> new String[PIPELINE_BLOCK_SIZE]);
+        Future<Void> readStage = ProcessingExecutor.stages().submit(() -> readLines(reader, queue));
+        int totalRecords = 0;
+        
+        try {
+            String[] lines;
+            while ((lines = queue.take()) != null) {
+                // A block that is not full ends at the first null
+                for (int i = 0; i < lines.length && lines[i] != null; i++) {
+                    totalRecords++;
+                    dispatcher.dispatch(lines[i], classify(lines[i]));
+                    lines[i] = null;
+                }
+                queue.release(lines);
+            }
+            FileChunker.await(readStage);
+        } finally {
+            // Stops the reader if validation failed
+            readStage.cancel(true);
+        }
+        
+        return totalRecords;
     }
     
     /**
-     * Class representing the result of processing a whitelist file
+     * Read stage: fills blocks of lines until the end of the input
+     */
+    private static Void readLines(BufferedReader reader, StageQueue<String[]> queue) throws IOException {
+        try {
+            String[] lines = queue.acquire();
+            int count = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines[count++] = line;
+                if (count == lines.length) {
+                    queue.publish(lines);
+                    lines = queue.acquire();
+                    count = 0;
+                }
+            }
+            if (count > 0) {
+                queue.publish(lines);
+            }
+            return null;
+        } finally {
+            queue.close();
+        }
+    }
+    
+    /**
+     * Validates a line without touching any shared state, so it can run on any thread
+     * @return The formatted number, a negative failure code, or EMPTY_LINE
+     */
+    long classify(String line) {
+        // Skip empty lines
+        if (line.trim().isEmpty()) {
+            return EMPTY_LINE;
+        }
+        return validator.validateToLong(line);
+    }
+    
+    /**
+     * Runs every line of a memory-mapped file through validation and duplicate detection.
+     * Lines are validated directly on the mapped bytes; a String is only created for lines
+     * that are reported as invalid or duplicate.
+     * @return Number of lines read
+     */
+    private int processMapped(FileChannel channel, RecordHandler handler, int expectedRecords,
+                              LongPredicate inEarlierFile) throws IOException {
+        Dispatcher dispatcher = new Dispatcher(new LongHashSet(expectedRecords, offHeapDedup), handler, inEarlierFile);
+        
+        return MappedLineReader.forEachLine(channel, line -> {
+            long outcome = classify(line);
+            // Valid numbers seen for the first time need no String
+            if (!dispatcher.dispatchNew(outcome)) {
+                dispatcher.dispatch(line.decode(), outcome);
+            }
+        });
+    }
+    
+    private long classify(MappedLineReader.Line line) throws IOException {
+        if (line.isNonAscii()) {
+            // Multi-byte characters are rare; validate the decoded text
+            return classify(line.decode());
+        }
+        if (line.isBlank()) {
+            return EMPTY_LINE;
+        }
+        return validator.validateToLong(line);
+    }
+    
+    /**
+     * Validates newline-aligned chunks of the file in parallel and dispatches their lines in file order.
+     * Only a bounded window of chunks is in flight, and duplicate detection runs on the calling thread
+     * in file order, so the first occurrence of a number always wins.
+     * @return Number of lines read
+     */
+    private int processChunks(FileChannel channel, int chunkSize, RecordHandler handler, int expectedRecords) throws IOException {
+        Dispatcher dispatcher = new Dispatcher(new LongHashSet(expectedRecords, offHeapDedup), handler);
+        Iterator<long[]> ranges = FileChunker.split(channel, chunkSize).iterator();
+        Deque<Future<FileChunker.Chunk>> window = new ArrayDeque<>();
+        int maxInFlight = ForkJoinPool.getCommonPoolParallelism() * 2;
+        int totalRecords = 0;
+        
+        try {
+            while (ranges.hasNext() || !window.isEmpty()) {
+                while (ranges.hasNext() && window.size() < maxInFlight) {
+                    long[] range = ranges.next();
+                    window.add(ForkJoinPool.commonPool().submit(
+                        () -> FileChunker.read(channel, range[0], range[1], this::classify)));
+                }
+                
+                FileChunker.Chunk chunk = FileChunker.await(window.poll());
+                for (int i = 0; i < chunk.size(); i++) {
+                    dispatcher.dispatch(chunk.line(i), chunk.outcome(i));
+                }
+                totalRecords += chunk.size();
+            }
+        } finally {
+            for (Future<FileChunker.Chunk> pending : window) {
+                pending.cancel(true);
+            }
+        }
+        
+        return totalRecords;
+    }
+    
+    /**
+     * Validate records read one at a time, such as the entries of a request body, with the same
+     * duplicate detection as a file. Each outcome is reported as soon as its record has been read.
+     * @return Number of records read
+     */
+    int processRecords(RecordReader records, RecordHandler handler, int expectedRecords) throws IOException {
+        Dispatcher dispatcher = new Dispatcher(new LongHashSet(expectedRecords, offHeapDedup), handler);
+        int totalRecords = 0;
+        String record;
+        while ((record = records.next()) != null) {
+            totalRecords++;
+            dispatcher.dispatch(record, classify(record));
+        }
+        return totalRecords;
+    }
+    
+    private ProcessResult collect(RecordSource source) throws IOException {
+        long start = System.nanoTime();
+        ResultCollector collector = new ResultCollector();
+        int totalRecords = source.process(collector);
+        recordFile(collector.validCount, collector.rejectedByReason, start);
+        return collector.build(totalRecords);
+    }
+    
+    private void recordInputBytes(long bytes) {
+        if (recordsMetrics) {
+            ProcessingMetrics.INPUT_BYTES.add(bytes);
+        }
+    }
+    
+    private void recordFile(int valid, int[] rejectedByReason, long start) {
+        if (recordsMetrics) {
+            ProcessingMetrics.recordFile(valid, rejectedByReason);
+            ProcessingMetrics.PROCESS_TIME.recordSince(start);
+        }
+    }
+    
+    /**
+     * Streams records into two spool files next to the output (valid and invalid sections),
+     * then assembles the output as header plus both sections once the counts are known.
+     * Records are written by a separate stage thread, so writing overlaps reading and validating.
+     * Every invalid line is written, including repeats of the same raw line.
+     * @param inputBytes Bytes of input consumed, read once all records have been processed
+     */
+    private StreamSummary streamToFile(RecordSource source, String outputPath, ProcessingProgress progress,
+                                       List<ResultWriter> writers, LongSupplier inputBytes) throws IOException {
+        long start = System.nanoTime();
+        Path outputFilePath = Paths.get(outputPath);
+        Files.createDirectories(outputFilePath.getParent());
+        Path validSpool = Paths.get(outputPath + ".valid.tmp");
+        Path invalidSpool = Paths.get(outputPath + ".invalid.tmp");
+        
+        try {
+            StreamingHandler handler;
+            int totalRecords;
+            long outputBytes;
+            
+            try (BufferedWriter validWriter = new BufferedWriter(
+                        new OutputStreamWriter(Files.newOutputStream(validSpool), StandardCharsets.UTF_8), STREAM_BUFFER_SIZE);
+                 BufferedWriter invalidWriter = new BufferedWriter(
+                        new OutputStreamWriter(Files.newOutputStream(invalidSpool), StandardCharsets.UTF_8), STREAM_BUFFER_SIZE)) {
+                handler = new StreamingHandler(validWriter, invalidWriter, progress, writers);
+                try (PipelinedHandler pipeline = new PipelinedHandler(handler)) {
+                    totalRecords = source.process(pipeline);
+                    pipeline.finish();
+                }
+                handler.reportProgress();
+            }
+            
+            try (FileChannel out = FileChannel.open(outputFilePath, StandardOpenOption.CREATE,
+                        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                BufferedWriter writer = new BufferedWriter(Channels.newWriter(out, StandardCharsets.UTF_8));
+                writeHeader(writer, totalRecords, handler.validCount, handler.invalidRecords, handler.duplicates);
+                writer.write("## VALID NUMBERS");
+                writer.newLine();
+                writer.flush();
+                long validStart = out.position();
+                appendFile(validSpool, out);
+                
+                writer.newLine();
+                writer.write("## INVALID NUMBERS (with reasons)");
+                writer.newLine();
+                writer.flush();
+                long invalidStart = out.position();
+                appendFile(invalidSpool, out);
+                outputBytes = out.size();
+                if (recordsMetrics) {
+                    ProcessingMetrics.OUTPUT_BYTES.add(outputBytes);
+                }
+                handler.index.setSectionStarts(validStart, invalidStart);
+            }
+            handler.index.write(outputFilePath);
+            
+            recordFile(handler.validCount, handler.rejectedByReason, start);
+            return new StreamSummary(totalRecords, handler.validCount, handler.invalidRecords, handler.duplicates,
+                                     handler.rejectedByReason, inputBytes.getAsLong(), outputBytes);
+        } finally {
+            Files.deleteIfExists(validSpool);
+            Files.deleteIfExists(invalidSpool);
+        }
+    }
+    
+    private static void appendFile(Path source, FileChannel target) throws IOException {
+        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ)) {
+            long position = 0;
+            long size = in.size();
+            while (position < size) {
+                position += in.transferTo(position, size - position, target);
+            }
+        }
+    }
+    
+    /**
+     * Source of lines that feeds each classified record to a handler
+     */
+    private interface RecordSource {
+        int process(RecordHandler handler) throws IOException;
+    }
+    
+    /**
+     * Supplies records one at a time
+     */
+    interface RecordReader {
+        /**
+         * @return The next record, or null at the end
+         */
+        String next() throws IOException;
+    }
+    
+    /**
+     * Callback for the outcome of each processed line
+     */
+    interface RecordHandler {
+        void onValid(long number) throws IOException;
+        void onInvalid(String line, InvalidReason reason) throws IOException;
+        
+        /**
+         * @param firstLineIndex Zero-based line on which the number first appeared
+         */
+        void onDuplicate(String line, long number, int firstLineIndex) throws IOException;
+        
+        /**
+         * A valid number seen for the first time in this file that an earlier file of the batch keeps
+         */
+        void onDuplicateInBatch(String line, long number) throws IOException;
+    }
+    
+    /**
+     * Applies duplicate detection to classified lines in file order and reports their outcome.
+     * The dedup set remembers the line each number first appeared on, so a duplicate refers to
+     * its first occurrence by index instead of carrying any text.
+     */
+    private static class Dispatcher {
+        private final LongHashSet seenNumbers;
+        private final RecordHandler handler;
+        private final LongPredicate inEarlierFile;
+        private int lineIndex;
+        
+        Dispatcher(LongHashSet seenNumbers, RecordHandler handler) {
+            this(seenNumbers, handler, null);
+        }
+        
+        /**
+         * @param inEarlierFile Tests whether an earlier file of the batch keeps a number, may be null
+         */
+        Dispatcher(LongHashSet seenNumbers, RecordHandler handler, LongPredicate inEarlierFile) {
+            this.seenNumbers = seenNumbers;
+            this.handler = handler;
+            this.inEarlierFile = inEarlierFile;
+        }
+        
+        /**
+         * Reports the next line if it is a valid number seen for the first time
+         * @return false if the line still has to be passed to {@link #dispatch(String, long)}
+         */
+        boolean dispatchNew(long outcome) throws IOException {
+            if (outcome >= 0 && !isInEarlierFile(outcome)
+                && seenNumbers.putIfAbsent(outcome, lineIndex) == LongHashSet.ABSENT) {
+                lineIndex++;
+                handler.onValid(outcome);
+                return true;
+            }
+            return false;
+        }
+        
+        void dispatch(String line, long outcome) throws IOException {
+            int index = lineIndex++;
+            if (outcome == EMPTY_LINE) {
+                handler.onInvalid(line, InvalidReason.EMPTY_LINE);
+            } else if (outcome < 0) {
+                // Invalid phone number
+                handler.onInvalid(line, InvalidReason.fromValidationCode(outcome));
+            } else {
+                int firstLineIndex = seenNumbers.putIfAbsent(outcome, index);
+                if (firstLineIndex != LongHashSet.ABSENT) {
+                    // Duplicate number
+                    handler.onDuplicate(line, outcome, firstLineIndex);
+                } else if (isInEarlierFile(outcome)) {
+                    // Kept by an earlier file of the batch
+                    handler.onDuplicateInBatch(line, outcome);
+                } else {
+                    // Valid number
+                    handler.onValid(outcome);
+                }
+            }
+        }
+        
+        private boolean isInEarlierFile(long number) {
+            return inEarlierFile != null && inEarlierFile.test(number);
+        }
+    }
+    
+    /**
+     * Hands records to a write stage on another thread in blocks, through a bounded queue.
+     * The producer waits when the writer falls behind. After a write failure the writer keeps
+     * releasing blocks unprocessed, so the producer never waits forever, and the failure is
+     * reported to the producer on its next block.
+     */
+    private static class PipelinedHandler implements RecordHandler, Closeable {
+        private final StageQueue<RecordBlock> queue = new StageQueue<>(PIPELINE_DEPTH, RecordBlock::new);
+        private final Future<Void> writeStage;
+        private volatile Throwable writeFailure;
+        private RecordBlock block;
+        
+        PipelinedHandler(RecordHandler delegate) throws IOException {
+            this.writeStage = ProcessingExecutor.stages().submit(() -> write(delegate));
+            this.block = queue.acquire();
+        }
+        
+        @Override
+        public void onValid(long number) throws IOException {
+            block.add(RecordBlock.VALID, number, 0, null);
+            publishIfFull();
+        }
+        
+        @Override
+        public void onInvalid(String line, InvalidReason reason) throws IOException {
+            block.add((byte) reason.ordinal(), 0, 0, line);
+            publishIfFull();
+        }
+        
+        @Override
+        public void onDuplicate(String line, long number, int firstLineIndex) throws IOException {
+            block.add((byte) InvalidReason.DUPLICATE.ordinal(), number, firstLineIndex, line);
+            publishIfFull();
+        }
+        
+        @Override
+        public void onDuplicateInBatch(String line, long number) throws IOException {
+            block.add((byte) InvalidReason.DUPLICATE_IN_BATCH.ordinal(), number, 0, line);
+            publishIfFull();
+        }
+        
+        private void publishIfFull() throws IOException {
+            if (block.size == PIPELINE_BLOCK_SIZE) {
+                queue.publish(block);
+                block = queue.acquire();
+                if (writeFailure != null) {
+                    queue.close();
+                    FileChunker.await(writeStage);
+                }
+            }
+        }
+        
+        /**
+         * Write the remaining records and wait until the writer is done
+         */
+        void finish() throws IOException {
+            if (block.size > 0) {
+                queue.publish(block);
+            }
+            queue.close();
+            FileChunker.await(writeStage);
+        }
+        
+        /**
+         * Stop the writer, waiting for it so nothing writes after the outputs are closed
+         */
+        @Override
+        public void close() {
+            queue.close();
+            try {
+                writeStage.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                // Already reported by finish(), or superseded by the producer's own failure
+            }
+        }
+        
+        /**
+         * Write stage: replays each block into the delegate in order
+         */
+        private Void write(RecordHandler delegate) throws IOException {
+            RecordBlock records;
+            while ((records = queue.take()) != null) {
+                try {
+                    if (writeFailure == null) {
+                        records.replay(delegate);
+                    }
+                } catch (IOException | RuntimeException e) {
+                    writeFailure = e;
+                } finally {
+                    records.clear();
+                    queue.release(records);
+                }
+            }
+            if (writeFailure instanceof IOException) {
+                throw (IOException) writeFailure;
+            }
+            if (writeFailure != null) {
+                throw (RuntimeException) writeFailure;
+            }
+            return null;
+        }
+    }
+    
+    /**
+     * Records in columnar arrays, the unit handed between pipeline stages
+     */
+    private static class RecordBlock {
+        static final byte VALID = -1; // otherwise the InvalidReason ordinal
+        private final byte[] kinds = new byte[PIPELINE_BLOCK_SIZE];
+        private final long[] numbers = new long[PIPELINE_BLOCK_SIZE];
+        private final int[] firstLineIndexes = new int[PIPELINE_BLOCK_SIZE];
+        private final String[] lines = new String[PIPELINE_BLOCK_SIZE];
+        private int size;
+        
+        void add(byte kind, long number, int firstLineIndex, String line) {
+            kinds[size] = kind;
+            numbers[size] = number;
+            firstLineIndexes[size] = firstLineIndex;
+            lines[size] = line;
+            size++;
+        }
+        
+        void replay(RecordHandler handler) throws IOException {
+            for (int i = 0; i < size; i++) {
+                byte kind = kinds[i];
+                if (kind == VALID) {
+                    handler.onValid(numbers[i]);
+                } else if (kind == InvalidReason.DUPLICATE.ordinal()) {
+                    handler.onDuplicate(lines[i], numbers[i], firstLineIndexes[i]);
+                } else if (kind == InvalidReason.DUPLICATE_IN_BATCH.ordinal()) {
+                    handler.onDuplicateInBatch(lines[i], numbers[i]);
+                } else {
+                    handler.onInvalid(lines[i], InvalidReason.fromOrdinal(kind));
+                }
+            }
+        }
+        
+        void clear() {
+            Arrays.fill(lines, 0, size, null);
+            size = 0;
+        }
+    }
+    
+    /**
+     * Builds the columnar arrays of a ProcessResult as records arrive
+     */
+    private static class ResultCollector implements RecordHandler {
+        private long[] validNumbers = new long[DEFAULT_EXPECTED_RECORDS];
+        private int validCount;
+        private int[] invalidLineIndexes = new int[64];
+        private byte[] invalidReasons = new byte[64];
+        private long[] invalidNumbers = new long[64];
+        private int[] firstLineIndexes = new int[64];
+        private String[] invalidLines = new String[64];
+        private final int[] rejectedByReason = new int[InvalidReason.values().length];
+        private int invalidLineCount;
+        private int invalidRecords;
+        private int duplicates;
+        private int lineIndex;
+        
+        @Override
+        public void onValid(long number) {
+            if (validCount == validNumbers.length) {
+                validNumbers = Arrays.copyOf(validNumbers, validCount * 2);
+            }
+            validNumbers[validCount++] = number;
+            lineIndex++;
+        }
+        
+        @Override
+        public void onInvalid(String line, InvalidReason reason) {
+            addInvalid(line, reason, 0, -1);
+            invalidRecords++;
+        }
+        
+        @Override
+        public void onDuplicate(String line, long number, int firstLineIndex) {
+            addInvalid(line, InvalidReason.DUPLICATE, number, firstLineIndex);
+            duplicates++;
+        }
+        
+        @Override
+        public void onDuplicateInBatch(String line, long number) {
+            addInvalid(line, InvalidReason.DUPLICATE_IN_BATCH, number, -1);
+            duplicates++;
+        }
+        
+        private void addInvalid(String line, InvalidReason reason, long number, int firstLineIndex) {
+            if (invalidLineCount == invalidLines.length) {
+                int capacity = invalidLineCount * 2;
+                invalidLineIndexes = Arrays.copyOf(invalidLineIndexes, capacity);
+                invalidReasons = Arrays.copyOf(invalidReasons, capacity);
+                invalidNumbers = Arrays.copyOf(invalidNumbers, capacity);
+                firstLineIndexes = Arrays.copyOf(firstLineIndexes, capacity);
+                invalidLines = Arrays.copyOf(invalidLines, capacity);
+            }
+            invalidLineIndexes[invalidLineCount] = lineIndex++;
+            invalidReasons[invalidLineCount] = (byte) reason.ordinal();
+            invalidNumbers[invalidLineCount] = number;
+            firstLineIndexes[invalidLineCount] = firstLineIndex;
+            invalidLines[invalidLineCount] = line;
+            invalidLineCount++;
+            rejectedByReason[reason.ordinal()]++;
+        }
+        
+        ProcessResult build(int totalRecords) {
+            return new ProcessResult(validNumbers, validCount, invalidLineIndexes, invalidReasons, invalidNumbers,
+                                     firstLineIndexes, invalidLines, invalidLineCount, rejectedByReason,
+                                     totalRecords, invalidRecords, duplicates);
+        }
+    }
+    
+    /**
+     * Writes each record to its spool file as soon as it has been classified
+     */
+    private static class StreamingHandler implements RecordHandler {
+        private static final int PROGRESS_INTERVAL = 4096;
+        private static final int LINE_SEPARATOR_BYTES = System.lineSeparator().length();
+        private static final int REASON_SEPARATOR_BYTES = " # ".length(); // reason texts are ASCII
+        private final BufferedWriter validWriter;
+        private final BufferedWriter invalidWriter;
+        private final ProcessingProgress progress;
+        private final ResultWriter[] writers;
+        private final char[] digits = new char[NUMBER_BUFFER_SIZE];
+        private final int[] rejectedByReason = new int[InvalidReason.values().length];
+        private final ResultIndex.Builder index = new ResultIndex.Builder();
+        private int validCount;
+        private int invalidRecords;
+        private int duplicates;
+        private int reportedValid;
+        private int reportedInvalid;
+        private int reportedDuplicates;
+        private int untilReport = PROGRESS_INTERVAL;
+        
+        StreamingHandler(BufferedWriter validWriter, BufferedWriter invalidWriter, ProcessingProgress progress,
+                         List<ResultWriter> writers) {
+            this.validWriter = validWriter;
+            this.invalidWriter = invalidWriter;
+            this.progress = progress;
+            this.writers = writers.toArray(new ResultWriter[0]);
+        }
+        
+        @Override
+        public void onValid(long number) throws IOException {
+            int digitCount = writeNumber(validWriter, digits, number);
+            validWriter.newLine();
+            index.addValid(digitCount + LINE_SEPARATOR_BYTES);
+            for (ResultWriter writer : writers) {
+                writer.writeValid(number);
+            }
+            validCount++;
+            recordDone();
+        }
+        
+        @Override
+        public void onInvalid(String line, InvalidReason reason) throws IOException {
+            writeInvalid(line, reason.getText());
+            index.addInvalid(reason, utf8Length(line) + REASON_SEPARATOR_BYTES + reason.getText().length()
+                                     + LINE_SEPARATOR_BYTES);
+            for (ResultWriter writer : writers) {
+                writer.writeInvalid(line, reason);
+            }
+            invalidRecords++;
+            rejectedByReason[reason.ordinal()]++;
+            recordDone();
+        }
+        
+        @Override
+        public void onDuplicate(String line, long number, int firstLineIndex) throws IOException {
+            writeDuplicate(line, number, InvalidReason.DUPLICATE);
+        }
+        
+        @Override
+        public void onDuplicateInBatch(String line, long number) throws IOException {
+            writeDuplicate(line, number, InvalidReason.DUPLICATE_IN_BATCH);
+        }
+        
+        private void writeDuplicate(String line, long number, InvalidReason reason) throws IOException {
+            invalidWriter.write(line);
+            invalidWriter.write(" # ");
+            invalidWriter.write(reason.getText());
+            invalidWriter.write(' ');
+            int digitCount = writeNumber(invalidWriter, digits, number);
+            invalidWriter.newLine();
+            index.addInvalid(reason, utf8Length(line) + REASON_SEPARATOR_BYTES + reason.getText().length() + 1
+                                     + digitCount + LINE_SEPARATOR_BYTES);
+            for (ResultWriter writer : writers) {
+                writer.writeDuplicate(line, number, reason);
+            }
+            duplicates++;
+            rejectedByReason[reason.ordinal()]++;
+            recordDone();
+        }
+        
+        private void recordDone() {
+            if (--untilReport == 0) {
+                reportProgress();
+            }
+        }
+        
+        /**
+         * Publishes the counts accumulated since the last report
+         */
+        void reportProgress() {
+            untilReport = PROGRESS_INTERVAL;
+            if (progress != null) {
+                progress.add(validCount - reportedValid, invalidRecords - reportedInvalid, duplicates - reportedDuplicates);
+                reportedValid = validCount;
+                reportedInvalid = invalidRecords;
+                reportedDuplicates = duplicates;
+            }
+        }
+        
+        private void writeInvalid(String line, String reason) throws IOException {
+            invalidWriter.write(line);
+            invalidWriter.write(" # ");
+            invalidWriter.write(reason);
+            invalidWriter.newLine();
+        }
+    
+    }
+    
+    /**
+     * Input stream wrapper that counts the bytes read and rejects input larger than the given limit
+     */
+    private static class SizeLimitedInputStream extends FilterInputStream {
+        private final long limit;
+        private long count;
+        
+        SizeLimitedInputStream(InputStream in, long limit) {
+            super(in);
+            this.limit = limit;
+        }
+        
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                advance(1);
+            }
+            return b;
+        }
+        
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                advance(n);
+            }
+            return n;
+        }
+        
+        private void advance(long n) {
+            count += n;
+            if (count > limit) {
+                throw new IllegalArgumentException("File size exceeds 1MB limit");
+            }
+        }
+        
+        long getCount() {
+            return count;
+        }
+    }
+    
+    /**
+     * Class representing the result of processing a whitelist file.
+     * Records are stored column by column: valid numbers as longs, and invalid lines as their
+     * line index, reason code, duplicated number and raw text. Accessors read the arrays in place.
      */
     public static class ProcessResult {
-        private final Map<String, String> validNumbers;
-        private final Map<String, String> invalidNumbers;
+        private final long[] validNumbers;
+        private final int validCount;
+        private final int[] invalidLineIndexes;
+        private final byte[] invalidReasons;
+        private final long[] invalidNumbers;
+        private final int[] firstLineIndexes;
+        private final String[] invalidLines;
+        private final int invalidLineCount;
+        private final int[] rejectedByReason;
         private final int totalRecords;
         private final int invalidRecords;
         private final int duplicates;
         
-        public ProcessResult(Map<String, String> validNumbers, Map<String, String> invalidNumbers, 
-                            int totalRecords, int invalidRecords, int duplicates) {
+        ProcessResult(long[] validNumbers, int validCount, int[] invalidLineIndexes, byte[] invalidReasons,
+                      long[] invalidNumbers, int[] firstLineIndexes, String[] invalidLines, int invalidLineCount,
+                      int[] rejectedByReason, int totalRecords, int invalidRecords, int duplicates) {
             this.validNumbers = validNumbers;
+            this.validCount = validCount;
+            this.invalidLineIndexes = invalidLineIndexes;
+            this.invalidReasons = invalidReasons;
             this.invalidNumbers = invalidNumbers;
+            this.firstLineIndexes = firstLineIndexes;
+            this.invalidLines = invalidLines;
+            this.invalidLineCount = invalidLineCount;
+            this.rejectedByReason = rejectedByReason;
             this.totalRecords = totalRecords;
             this.invalidRecords = invalidRecords;
             this.duplicates = duplicates;
         }
         
+        /**
+         * @return Read-only view of the valid numbers in file order; each element is formatted on access
+         */
         public List<String> getValidNumbers() {
-            return new ArrayList<>(validNumbers.keySet());
+            return new AbstractList<String>() {
+                @Override
+                public String get(int index) {
+                    return PhoneNumberValidator.format(getValidNumber(index));
+                }
+                
+                @Override
+                public int size() {
+                    return validCount;
+                }
+            };
+        }
+        
+        /**
+         * @return The valid numbers in file order, without copying
+         */
+        public LongStream validNumberStream() {
+            return Arrays.stream(validNumbers, 0, validCount);
         }
         
+        public long getValidNumber(int index) {
+            Objects.checkIndex(index, validCount);
+            return validNumbers[index];
+        }
+        
+        /**
+         * Builds a map from raw line to reason text. Repeated lines keep their first position
+         * and their last reason; use the indexed accessors to see every invalid line.
+         * @return Invalid lines with their reasons
+         */
         public Map<String, String> getInvalidNumbersWithReasons() {
-            return invalidNumbers;
+            Map<String, String> invalidNumbersWithReasons = new LinkedHashMap<>();
+            for (int i = 0; i < invalidLineCount; i++) {
+                invalidNumbersWithReasons.put(invalidLines[i], getInvalidReasonText(i));
+            }
+            return invalidNumbersWithReasons;
+        }
+        
+        /**
+         * @return Number of rejected lines, including duplicates
+         */
+        public int getInvalidLineCount() {
+            return invalidLineCount;
+        }
+        
+        public String getInvalidLine(int index) {
+            Objects.checkIndex(index, invalidLineCount);
+            return invalidLines[index];
+        }
+        
+        /**
+         * @return Zero-based line number of the rejected line in the input
+         */
+        public int getInvalidLineIndex(int index) {
+            Objects.checkIndex(index, invalidLineCount);
+            return invalidLineIndexes[index];
+        }
+        
+        public InvalidReason getInvalidReason(int index) {
+            Objects.checkIndex(index, invalidLineCount);
+            return InvalidReason.fromOrdinal(invalidReasons[index]);
+        }
+        
+        /**
+         * @return Zero-based line number of the first occurrence for a duplicate, or -1 for other reasons
+         */
+        public int getFirstOccurrenceLineIndex(int index) {
+            Objects.checkIndex(index, invalidLineCount);
+            return firstLineIndexes[index];
+        }
+        
+        /**
+         * Render the report text of a rejected line; the text is not stored
+         */
+        public String getInvalidReasonText(int index) {
+            return getInvalidReason(index).describe(invalidNumbers[index]);
+        }
+        
+        /**
+         * @return Rejected lines per reason, including duplicates, for reasons that occurred
+         */
+        public Map<InvalidReason, Integer> getRejectedByReason() {
+            return InvalidReason.histogram(rejectedByReason);
         }
         
         public int getTotalRecords() {
@@ -195,7 +1246,80 @@ public class FileProcessor {
         }
         
         public int getValidCount() {
-            return validNumbers.size();
+            return validCount;
+        }
+    }
+    
+    /**
+     * Class representing the statistics of a whitelist file processed in streaming mode
+     */
+    public static class StreamSummary {
+        private final int totalRecords;
+        private final int validCount;
+        private final int invalidRecords;
+        private final int duplicates;
+        private final int[] rejectedByReason;
+        private final long inputBytes;
+        private final long outputBytes;
+        
+        public StreamSummary(int totalRecords, int validCount, int invalidRecords, int duplicates,
+                             int[] rejectedByReason) {
+            this(totalRecords, validCount, invalidRecords, duplicates, rejectedByReason, 0, 0);
+        }
+        
+        public StreamSummary(int totalRecords, int validCount, int invalidRecords, int duplicates,
+                             int[] rejectedByReason, long inputBytes, long outputBytes) {
+            this.totalRecords = totalRecords;
+            this.validCount = validCount;
+            this.invalidRecords = invalidRecords;
+            this.duplicates = duplicates;
+            this.rejectedByReason = rejectedByReason;
+            this.inputBytes = inputBytes;
+            this.outputBytes = outputBytes;
+        }
+        
+        public int getTotalRecords() {
+            return totalRecords;
+        }
+        
+        public int getValidCount() {
+            return validCount;
+        }
+        
+        public int getInvalidRecords() {
+            return invalidRecords;
+        }
+        
+        public int getDuplicates() {
+            return duplicates;
+        }
+        
+        /**
+         * @return Duplicates of numbers kept by an earlier file of the batch, included in {@link #getDuplicates()}
+         */
+        public int getCrossFileDuplicates() {
+            return rejectedByReason[InvalidReason.DUPLICATE_IN_BATCH.ordinal()];
+        }
+        
+        /**
+         * @return Rejected lines per reason, including duplicates, for reasons that occurred
+         */
+        public Map<InvalidReason, Integer> getRejectedByReason() {
+            return InvalidReason.histogram(rejectedByReason);
+        }
+        
+        /**
+         * @return Bytes of input read
+         */
+        public long getInputBytes() {
+            return inputBytes;
+        }
+        
+        /**
+         * @return Bytes of the cleaned output file
+         */
+        public long getOutputBytes() {
+            return outputBytes;
         }
     }
 }
\ No newline at end of file
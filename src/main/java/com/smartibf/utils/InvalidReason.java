@@ -0,0 +1,92 @@
+// src/main/java/com/smartibf/utils/InvalidReason.java
+package com.smartibf.utils;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Reasons a whitelist line is rejected, with the text shown in reports
+ */
+public enum InvalidReason {
+    NULL_INPUT("Null input"),
+    EMPTY_AFTER_WHITESPACE("Empty after removing whitespace"),
+    ALPHABETIC("Contains alphabetic characters"),
+    INVALID_PREFIX("Does not start with '639'"),
+    TOO_SHORT("Too short (should be 12 digits)"),
+    TOO_LONG("Too long (should be 12 digits)"),
+    NO_MATCHING_PLAN("Does not match any numbering plan"),
+    UNKNOWN_OPERATOR("Not an assigned operator prefix"),
+    EMPTY_LINE("Empty line"),
+    DUPLICATE("Duplicate of"),
+    DUPLICATE_IN_BATCH("Duplicate in an earlier file of");
+    
+    private static final InvalidReason[] VALUES = values();
+    
+    private final String text;
+    
+    InvalidReason(String text) {
+        this.text = text;
+    }
+    
+    /**
+     * @return The report text; for duplicates the number is appended by {@link #describe(long)}
+     */
+    public String getText() {
+        return text;
+    }
+    
+    /**
+     * @return Short name of the reason for per-reason counts
+     */
+    public String getLabel() {
+        switch (this) {
+            case DUPLICATE:
+                return "Duplicate";
+            case DUPLICATE_IN_BATCH:
+                return "Duplicate in an earlier file";
+            default:
+                return text;
+        }
+    }
+    
+    /**
+     * Render the report text for a record
+     * @param number The formatted number the record duplicates, only used for duplicates
+     */
+    public String describe(long number) {
+        return isDuplicate() ? text + " " + PhoneNumberValidator.format(number) : text;
+    }
+    
+    /**
+     * @return true for repeats of a valid number, within the file or from an earlier file of the batch
+     */
+    public boolean isDuplicate() {
+        return this == DUPLICATE || this == DUPLICATE_IN_BATCH;
+    }
+    
+    /**
+     * Map a negative failure code of {@link PhoneNumberValidator#validateToLong(CharSequence)}
+     */
+    public static InvalidReason fromValidationCode(long code) {
+        return VALUES[(int) (-code - 1)];
+    }
+    
+    static InvalidReason fromOrdinal(int ordinal) {
+        return VALUES[ordinal];
+    }
+    
+    /**
+     * Turn counts indexed by ordinal into a map, leaving out reasons that did not occur
+     * @param counts Count per reason, indexed by {@link #ordinal()}
+     * @return The non-zero counts in declaration order
+     */
+    static Map<InvalidReason, Integer> histogram(int[] counts) {
+        Map<InvalidReason, Integer> histogram = new EnumMap<>(InvalidReason.class);
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0) {
+                histogram.put(VALUES[i], counts[i]);
+            }
+        }
+        return histogram;
+    }
+}
\ No newline at end of file
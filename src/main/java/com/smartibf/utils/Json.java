@@ -0,0 +1,69 @@
+// src/main/java/com/smartibf/utils/Json.java
+package com.smartibf.utils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+
+/**
+ * JSON string literals for the hand-built JSON responses and files.
+ * Quotes and backslashes are escaped and control characters written as hex escapes;
+ * everything else, including non-ASCII text, is written as is.
+ */
+public final class Json {
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    
+    private Json() {
+    }
+    
+    /**
+     * @param value Any text, may be null
+     * @return The text as a JSON string literal, or {@code null} for null
+     */
+    public static String quote(CharSequence value) {
+        StringBuilder quoted = new StringBuilder(value == null ? 4 : value.length() + 2);
+        try {
+            quote(quoted, value);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // never thrown by a StringBuilder
+        }
+        return quoted.toString();
+    }
+    
+    /**
+     * Write text as a JSON string literal, copying the runs between escapes in one call each
+     * @param out Receives the literal
+     * @param value Any text, may be null for {@code null}
+     */
+    public static void quote(Appendable out, CharSequence value) throws IOException {
+        if (value == null) {
+            out.append("null");
+            return;
+        }
+        out.append('"');
+        int start = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\' || c < 0x20) {
+                appendRun(out, value, start, i);
+                if (c < 0x20) {
+                    out.append("\\u00").append(HEX[c >> 4]).append(HEX[c & 0xf]);
+                } else {
+                    out.append('\\').append(c);
+                }
+                start = i + 1;
+            }
+        }
+        appendRun(out, value, start, value.length());
+        out.append('"');
+    }
+    
+    private static void appendRun(Appendable out, CharSequence value, int start, int end) throws IOException {
+        if (out instanceof Writer && value instanceof String) {
+            // Writer.append would copy the run into a substring first
+            ((Writer) out).write((String) value, start, end - start);
+        } else {
+            out.append(value, start, end);
+        }
+    }
+}
\ No newline at end of file
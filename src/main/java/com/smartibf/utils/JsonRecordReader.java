@@ -0,0 +1,227 @@
+// src/main/java/com/smartibf/utils/JsonRecordReader.java
+package com.smartibf.utils;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Pull parser for the numbers of a bulk validation request: either one JSON array of strings and
+ * numbers, or NDJSON with one string or number per line. Values are read one at a time from a
+ * small buffer as the request body arrives; no document is ever built.
+ * JSON numbers are returned as their literal text and null as an empty record, so both go through
+ * validation like any other line. Anything else is rejected with an {@link IllegalArgumentException}.
+ */
+public class JsonRecordReader {
+    private static final int BUFFER_SIZE = 8192;
+    
+    private final Reader reader;
+    private final boolean ndjson;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private final StringBuilder value = new StringBuilder();
+    private int position;
+    private int limit;
+    private long offset;
+    private boolean started;
+    private boolean finished;
+    
+    /**
+     * @param reader The request body
+     * @param ndjson Whether the body is NDJSON rather than a single JSON array
+     */
+    public JsonRecordReader(Reader reader, boolean ndjson) {
+        this.reader = reader;
+        this.ndjson = ndjson;
+    }
+    
+    /**
+     * @return The next record, or null at the end of the input
+     * @throws IllegalArgumentException If the input is not an array or lines of strings and numbers
+     */
+    public String next() throws IOException {
+        if (finished) {
+            return null;
+        }
+        return ndjson ? nextLine() : nextElement();
+    }
+    
+    private String nextElement() throws IOException {
+        int c = skipWhitespace();
+        if (!started) {
+            if (c != '[') {
+                throw unexpected(c, "'['");
+            }
+            started = true;
+            c = skipWhitespace();
+            if (c == ']') {
+                return end();
+            }
+        } else if (c == ',') {
+            c = skipWhitespace();
+        } else if (c == ']') {
+            return end();
+        } else {
+            throw unexpected(c, "',' or ']'");
+        }
+        return readValue(c);
+    }
+    
+    private String nextLine() throws IOException {
+        int c;
+        // Blank lines between records are allowed
+        do {
+            c = read();
+        } while (c == ' ' || c == '\t' || c == '\r' || c == '\n');
+        if (c < 0) {
+            finished = true;
+            return null;
+        }
+        
+        String record = readValue(c);
+        do {
+            c = read();
+        } while (c == ' ' || c == '\t' || c == '\r');
+        if (c >= 0 && c != '\n') {
+            throw unexpected(c, "end of line");
+        }
+        return record;
+    }
+    
+    private String end() throws IOException {
+        int c = skipWhitespace();
+        if (c >= 0) {
+            throw unexpected(c, "end of input");
+        }
+        finished = true;
+        return null;
+    }
+    
+    private String readValue(int c) throws IOException {
+        if (c == '"') {
+            return readString();
+        }
+        if (c == '-' || (c >= '0' && c <= '9')) {
+            return readNumber(c);
+        }
+        if (c == 'n') {
+            expect("ull");
+            return "";
+        }
+        throw unexpected(c, "a string or number");
+    }
+    
+    private String readString() throws IOException {
+        value.setLength(0);
+        while (true) {
+            // Copy runs of plain characters straight from the buffer
+            int start = position;
+            while (position < limit && buffer[position] != '"' && buffer[position] != '\\' && buffer[position] >= 0x20) {
+                position++;
+            }
+            value.append(buffer, start, position - start);
+            offset += position - start;
+            
+            int c = read();
+            if (c == '"') {
+                return value.toString();
+            } else if (c == '\\') {
+                value.append(readEscape());
+            } else if (c < 0) {
+                throw unexpected(c, "'\"'");
+            } else if (c < 0x20) {
+                throw unexpected(c, "an escaped control character");
+            } else {
+                value.append((char) c);
+            }
+        }
+    }
+    
+    private char readEscape() throws IOException {
+        int c = read();
+        switch (c) {
+            case '"':
+            case '\\':
+            case '/':
+                return (char) c;
+            case 'b':
+                return '\b';
+            case 'f':
+                return '\f';
+            case 'n':
+                return '\n';
+            case 'r':
+                return '\r';
+            case 't':
+                return '\t';
+            case 'u':
+                int code = 0;
+                for (int i = 0; i < 4; i++) {
+                    int digit = Character.digit(read(), 16);
+                    if (digit < 0) {
+                        throw new IllegalArgumentException("Invalid \\u escape at offset " + offset);
+                    }
+                    code = code * 16 + digit;
+                }
+                return (char) code;
+            default:
+                throw unexpected(c, "an escape character");
+        }
+    }
+    
+    private String readNumber(int first) throws IOException {
+        value.setLength(0);
+        value.append((char) first);
+        while (true) {
+            if (position == limit && !fill()) {
+                return value.toString();
+            }
+            char c = buffer[position];
+            if ((c >= '0' && c <= '9') || c == '.' || c == 'e' || c == 'E' || c == '+' || c == '-') {
+                value.append(c);
+                position++;
+                offset++;
+            } else {
+                return value.toString();
+            }
+        }
+    }
+    
+    private void expect(String rest) throws IOException {
+        for (int i = 0; i < rest.length(); i++) {
+            int c = read();
+            if (c != rest.charAt(i)) {
+                throw unexpected(c, "'" + rest.charAt(i) + "'");
+            }
+        }
+    }
+    
+    private int skipWhitespace() throws IOException {
+        int c;
+        do {
+            c = read();
+        } while (c == ' ' || c == '\t' || c == '\r' || c == '\n');
+        return c;
+    }
+    
+    private int read() throws IOException {
+        if (position == limit && !fill()) {
+            return -1;
+        }
+        offset++;
+        return buffer[position++];
+    }
+    
+    private boolean fill() throws IOException {
+        int read = reader.read(buffer, 0, buffer.length);
+        if (read <= 0) {
+            return false;
+        }
+        position = 0;
+        limit = read;
+        return true;
+    }
+    
+    private IllegalArgumentException unexpected(int c, String expected) {
+        String found = c < 0 ? "end of input" : "'" + (char) c + "'";
+        return new IllegalArgumentException("Expected " + expected + " but found " + found + " at offset " + offset);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,247 @@
+// src/main/java/com/smartibf/utils/LongHashSet.java
+package com.smartibf.utils;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.function.LongConsumer;
+
+/**
+ * Open-addressing hash set of primitive longs, used for duplicate detection of formatted numbers.
+ * Each entry takes one 8-byte slot plus the 4-byte position it was first added at (no boxing,
+ * no per-entry objects). The tables can be kept on the Java heap or in direct buffers outside it.
+ * Not thread-safe.
+ */
+public class LongHashSet {
+    /** Returned by {@link #putIfAbsent(long, int)} when the value was added */
+    public static final int ABSENT = -1;
+    private static final long EMPTY = 0L; // slot marker; the key 0 is tracked separately
+    private static final int MIN_CAPACITY = 16;
+    private static final int MAX_CAPACITY = 1 << 27; // 1GB table, the largest direct buffer size that fits an int
+    private static final double LOAD_FACTOR = 0.75;
+    
+    private final boolean offHeap;
+    private LongBuffer table;
+    private IntBuffer positions;
+    private int mask;
+    private int size;
+    private int resizeThreshold;
+    private boolean containsZero;
+    private int zeroPosition;
+    
+    public LongHashSet() {
+        this(MIN_CAPACITY, false);
+    }
+    
+    /**
+     * @param expectedSize Number of entries the set should hold without resizing
+     * @param offHeap Whether the table is allocated in a direct buffer outside the Java heap
+     */
+    public LongHashSet(int expectedSize, boolean offHeap) {
+        this.offHeap = offHeap;
+        allocate(capacityFor(expectedSize));
+    }
+    
+    /**
+     * Adds a value to the set
+     * @param value The value to add
+     * @return true if the value was not already present
+     */
+    public boolean add(long value) {
+        return putIfAbsent(value, 0) == ABSENT;
+    }
+    
+    /**
+     * Adds a value together with the position it was seen at, such as its line in the input
+     * @param value The value to add
+     * @param position A non-negative position
+     * @return {@link #ABSENT} if the value was added, otherwise the position it was first added with
+     */
+    public int putIfAbsent(long value, int position) {
+        if (value == EMPTY) {
+            if (containsZero) {
+                return zeroPosition;
+            }
+            containsZero = true;
+            zeroPosition = position;
+            size++;
+            return ABSENT;
+        }
+        
+        int slot = slotFor(value);
+        long current;
+        while ((current = table.get(slot)) != EMPTY) {
+            if (current == value) {
+                return positions.get(slot);
+            }
+            slot = (slot + 1) & mask;
+        }
+        
+        table.put(slot, value);
+        positions.put(slot, position);
+        if (++size > resizeThreshold) {
+            resize();
+        }
+        return ABSENT;
+    }
+    
+    /**
+     * Adds a value with a position, or lowers the position of a value already present
+     * @param value The value to add
+     * @param position A non-negative position
+     * @return {@link #ABSENT} if the value was added, otherwise its position before the call
+     */
+    public int putIfLower(long value, int position) {
+        if (value == EMPTY) {
+            if (containsZero) {
+                int previous = zeroPosition;
+                zeroPosition = Math.min(previous, position);
+                return previous;
+            }
+            return putIfAbsent(value, position);
+        }
+        
+        int slot = slotFor(value);
+        long current;
+        while ((current = table.get(slot)) != EMPTY) {
+            if (current == value) {
+                int previous = positions.get(slot);
+                positions.put(slot, Math.min(previous, position));
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+        
+        table.put(slot, value);
+        positions.put(slot, position);
+        if (++size > resizeThreshold) {
+            resize();
+        }
+        return ABSENT;
+    }
+    
+    /**
+     * @param value The value to look up
+     * @return The position the value was added with, or {@link #ABSENT} if it is not in the set
+     */
+    public int positionOf(long value) {
+        if (value == EMPTY) {
+            return containsZero ? zeroPosition : ABSENT;
+        }
+        
+        int slot = slotFor(value);
+        long current;
+        while ((current = table.get(slot)) != EMPTY) {
+            if (current == value) {
+                return positions.get(slot);
+            }
+            slot = (slot + 1) & mask;
+        }
+        return ABSENT;
+    }
+    
+    /**
+     * Checks whether a value is in the set
+     * @param value The value to look up
+     * @return true if the value is present
+     */
+    public boolean contains(long value) {
+        if (value == EMPTY) {
+            return containsZero;
+        }
+        
+        int slot = slotFor(value);
+        long current;
+        while ((current = table.get(slot)) != EMPTY) {
+            if (current == value) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    /**
+     * Pass every value to an action, in no particular order
+     * @param action Receives each value once
+     */
+    public void forEach(LongConsumer action) {
+        if (containsZero) {
+            action.accept(EMPTY);
+        }
+        for (int i = 0; i < table.capacity(); i++) {
+            long value = table.get(i);
+            if (value != EMPTY) {
+                action.accept(value);
+            }
+        }
+    }
+    
+    /**
+     * @return Bytes used by the slot and position tables
+     */
+    public long getTableBytes() {
+        return (long) table.capacity() * (Long.BYTES + Integer.BYTES);
+    }
+    
+    public boolean isOffHeap() {
+        return offHeap;
+    }
+    
+    private int slotFor(long value) {
+        // Murmur3 finalizer; formatted numbers share their leading digits
+        long h = value;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return (int) h & mask;
+    }
+    
+    private void resize() {
+        if (table.capacity() >= MAX_CAPACITY) {
+            throw new IllegalStateException("Duplicate detection set is full (" + size + " entries)");
+        }
+        
+        LongBuffer old = table;
+        IntBuffer oldPositions = positions;
+        allocate(old.capacity() * 2);
+        for (int i = 0; i < old.capacity(); i++) {
+            long value = old.get(i);
+            if (value != EMPTY) {
+                int slot = slotFor(value);
+                while (table.get(slot) != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                table.put(slot, value);
+                positions.put(slot, oldPositions.get(i));
+            }
+        }
+    }
+    
+    private void allocate(int capacity) {
+        table = offHeap
+            ? ByteBuffer.allocateDirect(capacity * Long.BYTES).order(ByteOrder.nativeOrder()).asLongBuffer()
+            : LongBuffer.allocate(capacity);
+        positions = offHeap
+            ? ByteBuffer.allocateDirect(capacity * Integer.BYTES).order(ByteOrder.nativeOrder()).asIntBuffer()
+            : IntBuffer.allocate(capacity);
+        mask = capacity - 1;
+        resizeThreshold = (int) (capacity * LOAD_FACTOR);
+    }
+    
+    private static int capacityFor(int expectedSize) {
+        long needed = (long) Math.ceil(Math.max(expectedSize, 1) / LOAD_FACTOR);
+        int capacity = MIN_CAPACITY;
+        while (capacity < needed && capacity < MAX_CAPACITY) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+}
\ No newline at end of file
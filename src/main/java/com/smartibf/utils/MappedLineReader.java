@@ -0,0 +1,140 @@
+// src/main/java/com/smartibf/utils/MappedLineReader.java
+package com.smartibf.utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads the lines of a file through memory-mapped windows without decoding them into Strings.
+ * Lines are split exactly like BufferedReader.readLine ("\n", "\r" or "\r\n") and are handed
+ * to the visitor as a reusable CharSequence over the mapped bytes. A line only becomes a
+ * String when {@link Line#decode()} is called.
+ */
+final class MappedLineReader {
+    private static final int WINDOW_SIZE = 64 * 1024 * 1024;
+    
+    private MappedLineReader() {
+    }
+    
+    /**
+     * Callback for each line of the file
+     */
+    interface LineVisitor {
+        void visit(Line line) throws IOException;
+    }
+    
+    /**
+     * Visit every line of the file in order
+     * @return Number of lines read
+     */
+    static int forEachLine(FileChannel channel, LineVisitor visitor) throws IOException {
+        Line line = new Line();
+        int count = 0;
+        
+        // Windows end right after a '\n', so no line or "\r\n" pair spans two mappings
+        for (long[] range : FileChunker.split(channel, WINDOW_SIZE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, range[0], range[1] - range[0]);
+            int limit = buffer.limit();
+            int start = 0;
+            boolean nonAscii = false;
+            
+            for (int i = 0; i < limit; i++) {
+                byte b = buffer.get(i);
+                if (b == '\n' || b == '\r') {
+                    line.set(buffer, start, i, nonAscii);
+                    visitor.visit(line);
+                    count++;
+                    if (b == '\r' && i + 1 < limit && buffer.get(i + 1) == '\n') {
+                        i++;
+                    }
+                    start = i + 1;
+                    nonAscii = false;
+                } else if (b < 0) {
+                    nonAscii = true;
+                }
+            }
+            
+            if (start < limit) {
+                line.set(buffer, start, limit, nonAscii);
+                visitor.visit(line);
+                count++;
+            }
+        }
+        
+        return count;
+    }
+    
+    /**
+     * A line of the mapped file, valid only during the visit. Its chars are the raw bytes,
+     * which is exact for ASCII lines; lines with other bytes must be decoded first.
+     */
+    static final class Line implements CharSequence {
+        private ByteBuffer buffer;
+        private int start;
+        private int end;
+        private boolean nonAscii;
+        
+        void set(ByteBuffer buffer, int start, int end, boolean nonAscii) {
+            this.buffer = buffer;
+            this.start = start;
+            this.end = end;
+            this.nonAscii = nonAscii;
+        }
+        
+        /**
+         * @return true if the line contains bytes outside ASCII (multi-byte UTF-8 characters)
+         */
+        boolean isNonAscii() {
+            return nonAscii;
+        }
+        
+        /**
+         * @return true if the line only holds control characters and spaces, like String.trim().isEmpty()
+         */
+        boolean isBlank() {
+            for (int i = start; i < end; i++) {
+                int b = buffer.get(i) & 0xFF;
+                if (b > ' ') {
+                    return false;
+                }
+            }
+            return true;
+        }
+        
+        /**
+         * Decode the line as strict UTF-8, the same way Files.newBufferedReader does
+         */
+        String decode() throws IOException {
+            ByteBuffer slice = buffer.duplicate();
+            slice.position(start).limit(end);
+            return StandardCharsets.UTF_8.newDecoder().decode(slice).toString();
+        }
+        
+        @Override
+        public int length() {
+            return end - start;
+        }
+        
+        @Override
+        public char charAt(int index) {
+            return (char) (buffer.get(start + index) & 0xFF);
+        }
+        
+        @Override
+        public CharSequence subSequence(int from, int to) {
+            return toString().substring(from, to);
+        }
+        
+        @Override
+        public String toString() {
+            byte[] bytes = new byte[end - start];
+            for (int i = 0; i < bytes.length; i++) {
+                bytes[i] = buffer.get(start + i);
+            }
+            return new String(bytes, StandardCharsets.ISO_8859_1);
+        }
+    }
+}
\ No newline at end of file
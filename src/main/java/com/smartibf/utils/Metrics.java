@@ -0,0 +1,248 @@
+// src/main/java/com/smartibf/utils/Metrics.java
+package com.smartibf.utils;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Process-wide metrics registry rendered in the Prometheus text exposition format.
+ * Counters and histograms are backed by LongAdders, so recording never allocates and
+ * scales across threads. Metrics are looked up once and kept in fields; asking for the
+ * same name and labels again returns the same instance.
+ */
+public final class Metrics {
+    /** Histogram bucket upper bounds, in seconds */
+    private static final double[] BUCKETS = {0.0001, 0.001, 0.005, 0.01, 0.05, 0.1, 0.5, 1, 5, 10, 30, 60, 300};
+    private static final double NANOS_PER_SECOND = 1e9;
+    private static final Map<String, Family> FAMILIES = new LinkedHashMap<>();
+    
+    private Metrics() {
+    }
+    
+    /**
+     * Get or create a counter
+     * @param name Metric name, ending in _total
+     * @param help Description shown by the scrape endpoint
+     * @param labels Label names and values, alternating
+     * @return The counter
+     */
+    public static Counter counter(String name, String help, String... labels) {
+        return (Counter) register(name, help, "counter", labels, Counter::new);
+    }
+    
+    /**
+     * Get or create a latency histogram
+     * @param name Metric name, ending in _seconds
+     * @param help Description shown by the scrape endpoint
+     * @param labels Label names and values, alternating
+     * @return The histogram
+     */
+    public static Histogram histogram(String name, String help, String... labels) {
+        return histogram(name, help, BUCKETS, labels);
+    }
+    
+    /**
+     * Get or create a latency histogram with its own buckets, for stages far faster or slower than the default ones
+     * @param name Metric name, ending in _seconds
+     * @param help Description shown by the scrape endpoint
+     * @param buckets Bucket upper bounds in seconds, ascending
+     * @param labels Label names and values, alternating
+     * @return The histogram; an existing one keeps the buckets it was created with
+     */
+    public static Histogram histogram(String name, String help, double[] buckets, String... labels) {
+        return (Histogram) register(name, help, "histogram", labels, () -> new Histogram(buckets));
+    }
+    
+    /**
+     * Register a value read when the metrics are scraped; a later registration of the same series replaces it
+     * @param name Metric name
+     * @param help Description shown by the scrape endpoint
+     * @param type "gauge", or "counter" for a total kept elsewhere
+     * @param value Supplies the current value
+     * @param labels Label names and values, alternating
+     */
+    public static void function(String name, String help, String type, DoubleSupplier value, String... labels) {
+        synchronized (FAMILIES) {
+            family(name, help, type).series.put(labelText(labels), new FunctionValue(value));
+        }
+    }
+    
+    /**
+     * Render every metric in the Prometheus text format
+     */
+    public static String scrape() {
+        StringBuilder out = new StringBuilder();
+        synchronized (FAMILIES) {
+            for (Map.Entry<String, Family> entry : FAMILIES.entrySet()) {
+                String name = entry.getKey();
+                Family family = entry.getValue();
+                out.append("# HELP ").append(name).append(' ').append(family.help).append('\n');
+                out.append("# TYPE ").append(name).append(' ').append(family.type).append('\n');
+                for (Map.Entry<String, Metric> series : family.series.entrySet()) {
+                    series.getValue().render(name, series.getKey(), out);
+                }
+            }
+        }
+        return out.toString();
+    }
+    
+    private static Metric register(String name, String help, String type, String[] labels,
+                                   Supplier<Metric> factory) {
+        synchronized (FAMILIES) {
+            return family(name, help, type).series.computeIfAbsent(labelText(labels), key -> factory.get());
+        }
+    }
+    
+    private static Family family(String name, String help, String type) {
+        Family family = FAMILIES.computeIfAbsent(name, key -> new Family(help, type));
+        if (!family.type.equals(type)) {
+            throw new IllegalArgumentException("Metric " + name + " is already registered as a " + family.type);
+        }
+        return family;
+    }
+    
+    /**
+     * Render label pairs as they appear inside the braces, such as stage="save"
+     */
+    private static String labelText(String[] labels) {
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("Labels must be name and value pairs");
+        }
+        List<String> pairs = new ArrayList<>();
+        for (int i = 0; i < labels.length; i += 2) {
+            String value = labels[i + 1].replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+            pairs.add(labels[i] + "=\"" + value + "\"");
+        }
+        return String.join(",", pairs);
+    }
+    
+    private static void appendSeries(StringBuilder out, String name, String labels, String extraLabel) {
+        out.append(name);
+        if (!labels.isEmpty() || extraLabel != null) {
+            out.append('{').append(labels);
+            if (extraLabel != null) {
+                out.append(labels.isEmpty() ? "" : ",").append(extraLabel);
+            }
+            out.append('}');
+        }
+        out.append(' ');
+    }
+    
+    private static final class Family {
+        private final String help;
+        private final String type;
+        private final Map<String, Metric> series = new LinkedHashMap<>();
+        
+        Family(String help, String type) {
+            this.help = help;
+            this.type = type;
+        }
+    }
+    
+    private interface Metric {
+        void render(String name, String labels, StringBuilder out);
+    }
+    
+    /**
+     * Monotonic count of events
+     */
+    public static final class Counter implements Metric {
+        private final LongAdder count = new LongAdder();
+        
+        public void increment() {
+            count.increment();
+        }
+        
+        public void add(long amount) {
+            count.add(amount);
+        }
+        
+        public long get() {
+            return count.sum();
+        }
+        
+        @Override
+        public void render(String name, String labels, StringBuilder out) {
+            appendSeries(out, name, labels, null);
+            out.append(count.sum()).append('\n');
+        }
+    }
+    
+    /**
+     * Distribution of durations over fixed buckets
+     */
+    public static final class Histogram implements Metric {
+        private final double[] bounds;
+        private final long[] boundNanos;
+        private final LongAdder[] buckets;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sumNanos = new LongAdder();
+        
+        Histogram(double[] bounds) {
+            this.bounds = bounds.clone();
+            this.boundNanos = new long[bounds.length];
+            for (int i = 0; i < bounds.length; i++) {
+                boundNanos[i] = Math.round(bounds[i] * NANOS_PER_SECOND);
+            }
+            this.buckets = new LongAdder[bounds.length + 1];
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+        
+        /**
+         * Record the time elapsed since a {@link System#nanoTime()} reading
+         */
+        public void recordSince(long startNanos) {
+            record(System.nanoTime() - startNanos);
+        }
+        
+        public void record(long nanos) {
+            int bucket = 0;
+            while (bucket < boundNanos.length && nanos > boundNanos[bucket]) {
+                bucket++;
+            }
+            buckets[bucket].increment();
+            count.increment();
+            sumNanos.add(nanos);
+        }
+        
+        public long getCount() {
+            return count.sum();
+        }
+        
+        @Override
+        public void render(String name, String labels, StringBuilder out) {
+            long cumulative = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                cumulative += buckets[i].sum();
+                String bound = i < bounds.length ? Double.toString(bounds[i]) : "+Inf";
+                appendSeries(out, name + "_bucket", labels, "le=\"" + bound + "\"");
+                out.append(cumulative).append('\n');
+            }
+            appendSeries(out, name + "_sum", labels, null);
+            out.append(sumNanos.sum() / NANOS_PER_SECOND).append('\n');
+            appendSeries(out, name + "_count", labels, null);
+            out.append(cumulative).append('\n');
+        }
+    }
+    
+    private static final class FunctionValue implements Metric {
+        private final DoubleSupplier value;
+        
+        FunctionValue(DoubleSupplier value) {
+            this.value = value;
+        }
+        
+        @Override
+        public void render(String name, String labels, StringBuilder out) {
+            appendSeries(out, name, labels, null);
+            out.append(value.getAsDouble()).append('\n');
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,208 @@
+// src/main/java/com/smartibf/utils/NumberSpill.java
+package com.smartibf.utils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.PriorityQueue;
+
+/**
+ * Numbers collected while a file is processed, kept on disk as sorted runs instead of on the heap.
+ * Numbers are buffered up to a run's worth, then sorted and written to a temp file; merging the
+ * runs of any number of spills yields every number once, in ascending order. The run size is set
+ * with the {@code whitelist.index.spillRunSize} system property. Not thread-safe.
+ */
+public class NumberSpill implements Closeable {
+    private static final int RUN_SIZE = Integer.getInteger("whitelist.index.spillRunSize", 1 << 20); // 8MB of longs
+    private static final int INITIAL_BUFFER_SIZE = 1024;
+    private static final int IO_BUFFER_SIZE = 64 * 1024;
+    
+    private final Path directory;
+    private final String prefix;
+    private final int runSize;
+    private final List<Path> runs = new ArrayList<>();
+    private long[] buffer;
+    private int count;
+    
+    /**
+     * @param directory Directory the runs are written to, created if needed
+     * @param prefix Start of the run file names
+     */
+    public NumberSpill(Path directory, String prefix) throws IOException {
+        this(directory, prefix, RUN_SIZE);
+    }
+    
+    NumberSpill(Path directory, String prefix, int runSize) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.prefix = prefix;
+        this.runSize = runSize;
+        this.buffer = new long[Math.min(INITIAL_BUFFER_SIZE, runSize)];
+    }
+    
+    /**
+     * @param number A number to keep; repeats are dropped when the runs are merged
+     */
+    public void add(long number) throws IOException {
+        if (count == buffer.length) {
+            if (count < runSize) {
+                buffer = Arrays.copyOf(buffer, (int) Math.min(count * 2L, runSize));
+            } else {
+                writeRun();
+            }
+        }
+        buffer[count++] = number;
+    }
+    
+    /**
+     * Write the numbers still buffered; called once every number has been added
+     */
+    public void finish() throws IOException {
+        if (count > 0) {
+            writeRun();
+        }
+        buffer = new long[0];
+    }
+    
+    /**
+     * @return Number of run files written so far
+     */
+    public int getRunCount() {
+        return runs.size();
+    }
+    
+    private void writeRun() throws IOException {
+        Arrays.sort(buffer, 0, count);
+        Path run = Files.createTempFile(directory, prefix, ".run");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(run), IO_BUFFER_SIZE))) {
+            for (int i = 0; i < count; i++) {
+                if (i == 0 || buffer[i] != buffer[i - 1]) {
+                    out.writeLong(buffer[i]);
+                }
+            }
+        }
+        runs.add(run);
+        count = 0;
+    }
+    
+    /**
+     * Merge the runs of finished spills
+     * @param spills Spills whose numbers are all written
+     * @return Every number of the spills once, ascending; read failures are thrown as {@link UncheckedIOException}
+     * @throws IOException If a run cannot be opened
+     */
+    public static Merge merge(List<NumberSpill> spills) throws IOException {
+        Merge merge = new Merge();
+        try {
+            for (NumberSpill spill : spills) {
+                for (Path run : spill.runs) {
+                    merge.open(run);
+                }
+            }
+        } catch (IOException e) {
+            merge.close();
+            throw e;
+        }
+        return merge;
+    }
+    
+    /**
+     * Delete the runs
+     */
+    @Override
+    public void close() throws IOException {
+        for (Path run : runs) {
+            Files.deleteIfExists(run);
+        }
+        runs.clear();
+    }
+    
+    /**
+     * K-way merge of sorted runs, reading each run sequentially through a small buffer
+     */
+    public static final class Merge implements PrimitiveIterator.OfLong, Closeable {
+        private final List<RunReader> readers = new ArrayList<>();
+        private final PriorityQueue<RunReader> queue = new PriorityQueue<>(Comparator.comparingLong(r -> r.current));
+        
+        private void open(Path run) throws IOException {
+            RunReader reader = new RunReader(run);
+            readers.add(reader);
+            if (reader.advance()) {
+                queue.add(reader);
+            }
+        }
+        
+        @Override
+        public boolean hasNext() {
+            return !queue.isEmpty();
+        }
+        
+        @Override
+        public long nextLong() {
+            if (queue.isEmpty()) {
+                throw new NoSuchElementException();
+            }
+            long value = queue.peek().current;
+            // Move every run past the value, so a number in several runs is returned once
+            try {
+                while (!queue.isEmpty() && queue.peek().current == value) {
+                    RunReader reader = queue.poll();
+                    if (reader.advance()) {
+                        queue.add(reader);
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return value;
+        }
+        
+        @Override
+        public void close() throws IOException {
+            IOException failure = null;
+            for (RunReader reader : readers) {
+                try {
+                    reader.in.close();
+                } catch (IOException e) {
+                    failure = e;
+                }
+            }
+            queue.clear();
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+    
+    private static final class RunReader {
+        private final DataInputStream in;
+        private long remaining;
+        private long current;
+        
+        RunReader(Path run) throws IOException {
+            this.remaining = Files.size(run) / Long.BYTES;
+            this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(run), IO_BUFFER_SIZE));
+        }
+        
+        boolean advance() throws IOException {
+            if (remaining == 0) {
+                return false;
+            }
+            remaining--;
+            current = in.readLong();
+            return true;
+        }
+    }
+}
\ No newline at end of file
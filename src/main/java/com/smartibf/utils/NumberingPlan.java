@@ -0,0 +1,60 @@
+// src/main/java/com/smartibf/utils/NumberingPlan.java
+package com.smartibf.utils;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Numbering rules of one market: the country code, the prefix of numbers written in national
+ * format, the allowed lengths and the prefixes assigned to operators
+ */
+public class NumberingPlan {
+    private final String id;
+    private final String countryCode;
+    private final String nationalPrefix;
+    private final int minLength;
+    private final int maxLength;
+    private final List<String> operatorPrefixes;
+    
+    /**
+     * @param id Name of the plan, such as ph
+     * @param countryCode Country calling code digits, such as 63
+     * @param nationalPrefix Digits that start numbers written in national format, such as 0; empty if none
+     * @param minLength Fewest digits after the country code
+     * @param maxLength Most digits after the country code
+     * @param operatorPrefixes Digits the number must start with after the country code; empty to allow any
+     */
+    public NumberingPlan(String id, String countryCode, String nationalPrefix, int minLength, int maxLength,
+                         List<String> operatorPrefixes) {
+        this.id = id;
+        this.countryCode = countryCode;
+        this.nationalPrefix = nationalPrefix;
+        this.minLength = minLength;
+        this.maxLength = maxLength;
+        this.operatorPrefixes = Collections.unmodifiableList(operatorPrefixes);
+    }
+    
+    public String getId() {
+        return id;
+    }
+    
+    public String getCountryCode() {
+        return countryCode;
+    }
+    
+    public String getNationalPrefix() {
+        return nationalPrefix;
+    }
+    
+    public int getMinLength() {
+        return minLength;
+    }
+    
+    public int getMaxLength() {
+        return maxLength;
+    }
+    
+    public List<String> getOperatorPrefixes() {
+        return operatorPrefixes;
+    }
+}
\ No newline at end of file
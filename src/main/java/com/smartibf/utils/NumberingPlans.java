@@ -0,0 +1,314 @@
+// src/main/java/com/smartibf/utils/NumberingPlans.java
+package com.smartibf.utils;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * A set of numbering plans compiled into one digit trie, so a number is validated in a single pass
+ * over its characters however many plans there are. The trie holds every country code and national
+ * prefix followed by the plan's operator prefixes; walking stops at the first node that completes a
+ * prefix, and the remaining digits only have to be counted.
+ * <p>
+ * Plans are read from a properties file:
+ * <pre>
+ * plans=ph,sg
+ * plan.ph.countryCode=63
+ * plan.ph.nationalPrefix=0
+ * plan.ph.length=10
+ * plan.ph.operatorPrefixes=905,906,915,917,918,919,920,921,922,927,928,929,939,945,947,949,953,954,956,995,996,997,998,999
+ * plan.sg.countryCode=65
+ * plan.sg.length=8
+ * plan.sg.operatorPrefixes=8,9
+ * </pre>
+ * The length is the number of digits after the country code, or a range such as 8-10. When two plans
+ * share a national prefix, national-format numbers are read with the plan listed first; the shortest
+ * prefix that matches wins.
+ */
+public final class NumberingPlans {
+    private static final int RADIX = 10;
+    private static final int MAX_DIGITS = 18; // largest digit count that always fits a long
+    private static final long[] POWERS_OF_TEN = new long[MAX_DIGITS + 1];
+    
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * RADIX;
+        }
+    }
+    
+    private final List<NumberingPlan> plans;
+    private final long[] countryCodes;
+    /** Child of each node per digit, or -1; node 0 is the root */
+    private int[] children;
+    /** Plan index + 1 of the prefix that ends at a node, or 0 */
+    private int[] acceptedPlan;
+    /** Digits before the national significant number for the prefix ending at a node */
+    private int[] entryLength;
+    /** Whether a node lies past a country code or national prefix */
+    private boolean[] inPlan;
+    private int nodeCount;
+    
+    /**
+     * Compile plans into a trie
+     * @param plans The plans, in priority order
+     * @throws IllegalArgumentException If a plan is malformed
+     */
+    public NumberingPlans(List<NumberingPlan> plans) {
+        if (plans.isEmpty()) {
+            throw new IllegalArgumentException("No numbering plans defined");
+        }
+        this.plans = Collections.unmodifiableList(new ArrayList<>(plans));
+        this.countryCodes = new long[plans.size()];
+        allocate(64);
+        nodeCount = 1;
+        
+        for (int i = 0; i < plans.size(); i++) {
+            NumberingPlan plan = plans.get(i);
+            check(plan);
+            countryCodes[i] = Long.parseLong(plan.getCountryCode());
+            addEntry(i, plan, insert(0, plan.getCountryCode()), plan.getCountryCode().length());
+            
+            // A national prefix already taken by an earlier plan stays with that plan
+            if (!plan.getNationalPrefix().isEmpty()) {
+                int entry = insert(0, plan.getNationalPrefix());
+                if (!inPlan[entry]) {
+                    addEntry(i, plan, entry, plan.getNationalPrefix().length());
+                }
+            }
+        }
+    }
+    
+    /**
+     * Load plans from a properties file
+     * @param file The configuration file
+     * @return The compiled plans
+     * @throws IOException If the file cannot be read
+     * @throws IllegalArgumentException If the configuration is malformed
+     */
+    public static NumberingPlans load(Path file) throws IOException {
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+        return parse(properties);
+    }
+    
+    /**
+     * Read plans from configuration properties, in the format described on this class
+     * @param properties The configuration
+     * @return The compiled plans
+     * @throws IllegalArgumentException If the configuration is malformed
+     */
+    public static NumberingPlans parse(Properties properties) {
+        List<NumberingPlan> plans = new ArrayList<>();
+        for (String id : split(required(properties, "plans"))) {
+            String key = "plan." + id + ".";
+            String[] length = required(properties, key + "length").split("-", 2);
+            try {
+                int minLength = Integer.parseInt(length[0].trim());
+                int maxLength = length.length == 1 ? minLength : Integer.parseInt(length[1].trim());
+                plans.add(new NumberingPlan(id, required(properties, key + "countryCode"),
+                                            properties.getProperty(key + "nationalPrefix", "").trim(),
+                                            minLength, maxLength,
+                                            split(properties.getProperty(key + "operatorPrefixes", ""))));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid length for numbering plan " + id, e);
+            }
+        }
+        return new NumberingPlans(plans);
+    }
+    
+    /**
+     * Validate a number in a single pass, with the same handling of whitespace, special characters
+     * and letters as {@link PhoneNumberValidator#validateToLong(CharSequence)}
+     * @param phoneNumber The phone number to validate
+     * @return The number in international form without the plus sign, or a negative failure code
+     */
+    public long validate(CharSequence phoneNumber) {
+        if (phoneNumber == null) {
+            return PhoneNumberValidator.NULL_INPUT;
+        }
+        
+        boolean hasContent = false;
+        int digits = 0;
+        long value = 0;
+        int node = 0;
+        int lastNode = 0; // node reached before the walk left the trie
+        int accepted = 0;
+        
+        for (int i = 0, n = phoneNumber.length(); i < n; i++) {
+            char c = phoneNumber.charAt(i);
+            if (c >= '0' && c <= '9') {
+                hasContent = true;
+                int digit = c - '0';
+                if (accepted == 0 && node >= 0) {
+                    lastNode = node;
+                    node = children[node * RADIX + digit];
+                    if (node > 0 && acceptedPlan[node] != 0) {
+                        accepted = node;
+                    }
+                }
+                if (digits < MAX_DIGITS) {
+                    value = value * RADIX + digit;
+                }
+                digits++;
+            } else if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z')) {
+                return PhoneNumberValidator.ALPHABETIC;
+            } else if (!PhoneNumberValidator.isWhitespace(c)) {
+                // Special characters are removed but still count as content
+                hasContent = true;
+            }
+        }
+        
+        if (!hasContent) {
+            return PhoneNumberValidator.EMPTY_INPUT;
+        }
+        
+        if (accepted == 0) {
+            if (node >= 0) {
+                // Ran out of digits part way through a prefix
+                return inPlan[node] ? PhoneNumberValidator.TOO_SHORT : PhoneNumberValidator.NO_MATCHING_PLAN;
+            }
+            return inPlan[lastNode] ? PhoneNumberValidator.UNKNOWN_OPERATOR : PhoneNumberValidator.NO_MATCHING_PLAN;
+        }
+        
+        NumberingPlan plan = plans.get(acceptedPlan[accepted] - 1);
+        int nationalDigits = digits - entryLength[accepted];
+        if (nationalDigits < plan.getMinLength()) {
+            return PhoneNumberValidator.TOO_SHORT;
+        }
+        if (nationalDigits > plan.getMaxLength()) {
+            return PhoneNumberValidator.TOO_LONG;
+        }
+        
+        // The plan's lengths keep every digit within the accumulated value
+        long nationalNumber = value % POWERS_OF_TEN[nationalDigits];
+        return countryCodes[acceptedPlan[accepted] - 1] * POWERS_OF_TEN[nationalDigits] + nationalNumber;
+    }
+    
+    /**
+     * @return The plans in priority order
+     */
+    public List<NumberingPlan> getPlans() {
+        return plans;
+    }
+    
+    /**
+     * @return Number of trie nodes
+     */
+    public int getNodeCount() {
+        return nodeCount;
+    }
+    
+    /**
+     * Add a plan's operator prefixes below the node that ends its country code or national prefix
+     */
+    private void addEntry(int planIndex, NumberingPlan plan, int entry, int length) {
+        inPlan[entry] = true;
+        if (plan.getOperatorPrefixes().isEmpty()) {
+            accept(entry, planIndex, length);
+            return;
+        }
+        for (String operatorPrefix : plan.getOperatorPrefixes()) {
+            int node = entry;
+            for (int i = 0; i < operatorPrefix.length(); i++) {
+                node = insert(node, operatorPrefix.substring(i, i + 1));
+                inPlan[node] = true;
+            }
+            accept(node, planIndex, length);
+        }
+    }
+    
+    /**
+     * The first plan to complete a prefix at a node keeps it
+     */
+    private void accept(int node, int planIndex, int length) {
+        if (acceptedPlan[node] == 0) {
+            acceptedPlan[node] = planIndex + 1;
+            entryLength[node] = length;
+        }
+    }
+    
+    private int insert(int node, String digits) {
+        for (int i = 0; i < digits.length(); i++) {
+            int slot = node * RADIX + (digits.charAt(i) - '0');
+            if (children[slot] < 0) {
+                if (nodeCount == acceptedPlan.length) {
+                    allocate(nodeCount * 2);
+                }
+                children[slot] = nodeCount++;
+            }
+            node = children[slot];
+        }
+        return node;
+    }
+    
+    private void allocate(int capacity) {
+        int oldCapacity = acceptedPlan == null ? 0 : acceptedPlan.length;
+        children = children == null ? new int[capacity * RADIX] : Arrays.copyOf(children, capacity * RADIX);
+        Arrays.fill(children, oldCapacity * RADIX, children.length, -1);
+        acceptedPlan = acceptedPlan == null ? new int[capacity] : Arrays.copyOf(acceptedPlan, capacity);
+        entryLength = entryLength == null ? new int[capacity] : Arrays.copyOf(entryLength, capacity);
+        inPlan = inPlan == null ? new boolean[capacity] : Arrays.copyOf(inPlan, capacity);
+    }
+    
+    private static void check(NumberingPlan plan) {
+        String id = plan.getId();
+        if (!isDigits(plan.getCountryCode())) {
+            throw new IllegalArgumentException("Country code of numbering plan " + id + " must be digits");
+        }
+        if (!plan.getNationalPrefix().isEmpty() && !isDigits(plan.getNationalPrefix())) {
+            throw new IllegalArgumentException("National prefix of numbering plan " + id + " must be digits");
+        }
+        int entryDigits = Math.max(plan.getCountryCode().length(), plan.getNationalPrefix().length());
+        if (plan.getMinLength() < 1 || plan.getMaxLength() < plan.getMinLength()
+            || entryDigits + plan.getMaxLength() > MAX_DIGITS) {
+            throw new IllegalArgumentException("Invalid length range for numbering plan " + id);
+        }
+        for (String operatorPrefix : plan.getOperatorPrefixes()) {
+            if (!isDigits(operatorPrefix) || operatorPrefix.length() > plan.getMinLength()) {
+                throw new IllegalArgumentException("Invalid operator prefix " + operatorPrefix
+                                                   + " in numbering plan " + id);
+            }
+        }
+    }
+    
+    private static boolean isDigits(String s) {
+        if (s.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < s.length(); i++) {
+            if (s.charAt(i) < '0' || s.charAt(i) > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private static String required(Properties properties, String key) {
+        String value = properties.getProperty(key);
+        if (value == null || value.trim().isEmpty()) {
+            throw new IllegalArgumentException("Missing numbering plan setting " + key);
+        }
+        return value.trim();
+    }
+    
+    private static List<String> split(String value) {
+        List<String> parts = new ArrayList<>();
+        for (String part : value.split(",")) {
+            if (!part.trim().isEmpty()) {
+                parts.add(part.trim());
+            }
+        }
+        return parts;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,167 @@
+// src/main/java/com/smartibf/utils/OutputFormat.java
+package com.smartibf.utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+
+/**
+ * Machine-readable output formats written next to the cleaned report, in the same pass over the file
+ */
+public enum OutputFormat {
+    /** Valid numbers only, one per line */
+    VALID_LIST("_valid.txt", "Valid numbers only") {
+        @Override
+        public ResultWriter open(Path path) throws IOException {
+            return new ValidListWriter(new ChannelOutput(path));
+        }
+    },
+    
+    /** Every line as line,status,reason,number,input with reason codes from {@link InvalidReason} */
+    CSV("_results.csv", "CSV with reason codes") {
+        @Override
+        public ResultWriter open(Path path) throws IOException {
+            return new CsvWriter(new ChannelOutput(path));
+        }
+    },
+    
+    /** "PWL1", the count as an 8-byte long, then each valid number as an 8-byte big-endian long */
+    BINARY("_valid.bin", "Binary packed numbers") {
+        @Override
+        public ResultWriter open(Path path) throws IOException {
+            return new BinaryWriter(new ChannelOutput(path));
+        }
+    };
+    
+    private static final String CLEANED_SUFFIX = "_cleaned.txt";
+    
+    private final String suffix;
+    private final String label;
+    
+    OutputFormat(String suffix, String label) {
+        this.suffix = suffix;
+        this.label = label;
+    }
+    
+    /**
+     * Create a writer for this format
+     * @param path File to write
+     * @return The writer; closing it completes the file
+     * @throws IOException If the file cannot be created
+     */
+    public abstract ResultWriter open(Path path) throws IOException;
+    
+    /**
+     * @param cleanedFileName Name of the cleaned report, such as numbers_cleaned.txt
+     * @return Name of this format's file for the same input, such as numbers_results.csv
+     */
+    public String outputFileName(String cleanedFileName) {
+        String baseName = cleanedFileName.endsWith(CLEANED_SUFFIX)
+            ? cleanedFileName.substring(0, cleanedFileName.length() - CLEANED_SUFFIX.length())
+            : cleanedFileName;
+        return baseName + suffix;
+    }
+    
+    public String getLabel() {
+        return label;
+    }
+    
+    private static final class ValidListWriter implements ResultWriter {
+        private final ChannelOutput out;
+        
+        ValidListWriter(ChannelOutput out) {
+            this.out = out;
+        }
+        
+        @Override
+        public void writeValid(long number) throws IOException {
+            out.putNumber(number);
+            out.putByte('\n');
+        }
+        
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+    
+    private static final class CsvWriter implements ResultWriter {
+        private final ChannelOutput out;
+        private long lineNumber;
+        
+        CsvWriter(ChannelOutput out) throws IOException {
+            this.out = out;
+            out.putText("line,status,reason,number,input\n");
+        }
+        
+        @Override
+        public void writeValid(long number) throws IOException {
+            out.putNumber(++lineNumber);
+            out.putText(",VALID,,");
+            out.putNumber(number);
+            out.putText(",\n");
+        }
+        
+        @Override
+        public void writeInvalid(String line, InvalidReason reason) throws IOException {
+            out.putNumber(++lineNumber);
+            out.putText(",INVALID,");
+            out.putText(reason.name());
+            out.putText(",,");
+            putQuoted(line);
+            out.putByte('\n');
+        }
+        
+        @Override
+        public void writeDuplicate(String line, long number, InvalidReason reason) throws IOException {
+            out.putNumber(++lineNumber);
+            out.putText(",DUPLICATE,");
+            out.putText(reason.name());
+            out.putByte(',');
+            out.putNumber(number);
+            out.putByte(',');
+            putQuoted(line);
+            out.putByte('\n');
+        }
+        
+        private void putQuoted(String line) throws IOException {
+            out.putByte('"');
+            out.putText(line.indexOf('"') < 0 ? line : line.replace("\"", "\"\""));
+            out.putByte('"');
+        }
+        
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+    
+    private static final class BinaryWriter implements ResultWriter {
+        private static final int MAGIC = 0x50574C31; // "PWL1"
+        private static final long COUNT_POSITION = Integer.BYTES;
+        private final ChannelOutput out;
+        private long count;
+        
+        BinaryWriter(ChannelOutput out) throws IOException {
+            this.out = out;
+            out.putInt(MAGIC);
+            out.putLong(0); // count placeholder
+        }
+        
+        @Override
+        public void writeValid(long number) throws IOException {
+            out.putLong(number);
+            count++;
+        }
+        
+        @Override
+        public void close() throws IOException {
+            try {
+                // The count is only known at the end
+                out.putAt(COUNT_POSITION, ByteBuffer.allocate(Long.BYTES).putLong(count).flip());
+            } finally {
+                out.close();
+            }
+        }
+    }
+}
\ No newline at end of file
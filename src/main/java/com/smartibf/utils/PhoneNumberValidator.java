@@ -1,11 +1,104 @@
 // src/main/java/com/smartibf/utils/PhoneNumberValidator.java
 package com.smartibf.utils;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.util.function.ToLongFunction;
+
 /**
- * Validates and formats phone numbers according to requirements
+ * Validates and formats phone numbers according to requirements.
+ * Without numbering plans the built-in Philippine mobile rule applies.
  */
 public class PhoneNumberValidator {
     
+    /** Failure codes returned by {@link #validateToLong(CharSequence)}; valid numbers are never negative */
+    public static final long NULL_INPUT = -1;
+    public static final long EMPTY_INPUT = -2;
+    public static final long ALPHABETIC = -3;
+    public static final long INVALID_PREFIX = -4;
+    public static final long TOO_SHORT = -5;
+    public static final long TOO_LONG = -6;
+    public static final long NO_MATCHING_PLAN = -7;
+    public static final long UNKNOWN_OPERATOR = -8;
+    
+    /** System property naming the numbering plan configuration file */
+    public static final String NUMBERING_PLANS_PROPERTY = "whitelist.numberingPlans";
+    
+    /** System property with the size of the shared validation cache; 0 or unset disables it */
+    public static final String CACHE_SIZE_PROPERTY = "whitelist.validationCache.size";
+    
+    private static final int FORMATTED_LENGTH = 12;
+    private static final long LOCAL_TO_INTERNATIONAL = 630_000_000_000L; // "63" followed by ten digits
+    
+    private static final ValidationResult[] FAILURES = {
+        new ValidationResult(InvalidReason.NULL_INPUT),
+        new ValidationResult(InvalidReason.EMPTY_AFTER_WHITESPACE),
+        new ValidationResult(InvalidReason.ALPHABETIC),
+        new ValidationResult(InvalidReason.INVALID_PREFIX),
+        new ValidationResult(InvalidReason.TOO_SHORT),
+        new ValidationResult(InvalidReason.TOO_LONG),
+        new ValidationResult(InvalidReason.NO_MATCHING_PLAN),
+        new ValidationResult(InvalidReason.UNKNOWN_OPERATOR)
+    };
+    
+    private static volatile PhoneNumberValidator configured;
+    
+    private final NumberingPlans plans;
+    private final ValidationCache cache;
+    private final ToLongFunction<String> uncached = this::validateUncached;
+    
+    /**
+     * Create a validator for the built-in Philippine mobile rule
+     */
+    public PhoneNumberValidator() {
+        this(null);
+    }
+    
+    /**
+     * @param plans Numbering plans to validate against, or null for the built-in Philippine mobile rule
+     */
+    public PhoneNumberValidator(NumberingPlans plans) {
+        this(plans, null);
+    }
+    
+    /**
+     * @param plans Numbering plans to validate against, or null for the built-in Philippine mobile rule
+     * @param cache Cache of outcomes by raw line, or null to validate every line
+     */
+    public PhoneNumberValidator(NumberingPlans plans, ValidationCache cache) {
+        this.plans = plans;
+        this.cache = cache;
+    }
+    
+    /**
+     * Get the validator for the numbering plans named by the {@value #NUMBERING_PLANS_PROPERTY}
+     * system property, loaded once; without the property the built-in rule applies.
+     * The validator caches outcomes when {@value #CACHE_SIZE_PROPERTY} is set.
+     * @return The shared validator
+     * @throws UncheckedIOException If the configuration file cannot be read
+     */
+    public static PhoneNumberValidator configured() {
+        PhoneNumberValidator validator = configured;
+        if (validator == null) {
+            synchronized (PhoneNumberValidator.class) {
+                validator = configured;
+                if (validator == null) {
+                    String file = System.getProperty(NUMBERING_PLANS_PROPERTY);
+                    int cacheSize = Integer.getInteger(CACHE_SIZE_PROPERTY, 0);
+                    try {
+                        validator = new PhoneNumberValidator(file == null ? null : NumberingPlans.load(Paths.get(file)),
+                                                             cacheSize > 0 ? new ValidationCache(cacheSize) : null);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException("Cannot read numbering plans from " + file, e);
+                    }
+                    configured = validator;
+                }
+            }
+        }
+        return validator;
+    }
+    
     /**
      * Validates and formats a phone number
      * @param phoneNumber The phone number to validate
@@ -22,75 +115,169 @@ public class PhoneNumberValidator {
      * @return ValidationResult containing result and reason
      */
     public ValidationResult validateAndFormatWithReason(String phoneNumber) {
+        long start = System.nanoTime();
+        try {
+            long number = validateToLong(phoneNumber);
+            if (number < 0) {
+                return failure(number);
+            }
+            
+            // Reuse the input when it is already in 639XXXXXXXXX form
+            String formatted = plans == null && phoneNumber.length() == FORMATTED_LENGTH && isAllDigits(phoneNumber)
+                ? phoneNumber : format(number);
+            return new ValidationResult(formatted);
+        } finally {
+            ProcessingMetrics.VALIDATE_TIME.recordSince(start);
+        }
+    }
+    
+    /**
+     * Validates a phone number in a single pass over its characters, without regular expressions
+     * or intermediate strings. Whitespace and special characters are skipped and 09XXX is
+     * converted to 639XXX, exactly as {@link #validateAndFormatWithReason(String)} does.
+     * With numbering plans the number is matched against the plans' compiled prefix trie instead.
+     * String inputs are looked up in the validation cache first, if there is one.
+     * @param phoneNumber The phone number to validate
+     * @return The formatted number as a long, or one of the negative failure codes
+     */
+    public long validateToLong(CharSequence phoneNumber) {
+        if (cache != null && phoneNumber instanceof String) {
+            return cache.get((String) phoneNumber, uncached);
+        }
+        return validateUncached(phoneNumber);
+    }
+    
+    private long validateUncached(CharSequence phoneNumber) {
+        if (plans != null) {
+            return plans.validate(phoneNumber);
+        }
         if (phoneNumber == null) {
-            return new ValidationResult(false, null, "Null input");
+            return NULL_INPUT;
         }
         
-        // Remove all whitespace
-        String cleaned = phoneNumber.replaceAll("\\s+", "");
+        boolean hasContent = false;
+        int digits = 0;
+        int prefix = 0; // first three digits
+        long value = 0;
         
-        // Skip empty strings after trimming
-        if (cleaned.isEmpty()) {
-            return new ValidationResult(false, null, "Empty after removing whitespace");
+        for (int i = 0, n = phoneNumber.length(); i < n; i++) {
+            char c = phoneNumber.charAt(i);
+            if (c >= '0' && c <= '9') {
+                hasContent = true;
+                if (digits < 3) {
+                    prefix = prefix * 10 + (c - '0');
+                }
+                if (digits < FORMATTED_LENGTH) {
+                    value = value * 10 + (c - '0');
+                }
+                digits++;
+            } else if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z')) {
+                return ALPHABETIC;
+            } else if (!isWhitespace(c)) {
+                // Special characters are removed but still count as content
+                hasContent = true;
+            }
         }
         
-        // Store original for reporting
-        String original = cleaned;
-        
-        // Remove special characters
-        cleaned = cleaned.replaceAll("[^a-zA-Z0-9]", "");
-        
-        // Check if the number contains any alphabetic characters
-        if (cleaned.matches(".*[a-zA-Z].*")) {
-            return new ValidationResult(false, null, "Contains alphabetic characters");
+        if (!hasContent) {
+            return EMPTY_INPUT;
         }
         
         // Convert 09xxx format to 639xxx format
-        if (cleaned.startsWith("09") && cleaned.length() == 11) {
-            cleaned = "63" + cleaned.substring(1);
+        // (a prefix of 090-099 means the digits start with "09")
+        if (digits == FORMATTED_LENGTH - 1 && prefix / 10 == 9) {
+            return LOCAL_TO_INTERNATIONAL + value;
         }
         
-        // Validation checks with specific reasons
-        if (!cleaned.startsWith("639")) {
-            return new ValidationResult(false, null, "Does not start with '639'");
+        if (digits < 3 || prefix != 639) {
+            return INVALID_PREFIX;
         }
         
-        if (cleaned.length() != 12) {
-            if (cleaned.length() < 12) {
-                return new ValidationResult(false, null, "Too short (should be 12 digits)");
-            } else {
-                return new ValidationResult(false, null, "Too long (should be 12 digits)");
-            }
+        if (digits != FORMATTED_LENGTH) {
+            return digits < FORMATTED_LENGTH ? TOO_SHORT : TOO_LONG;
         }
         
-        // Valid Philippine mobile number
-        return new ValidationResult(true, cleaned, "Valid");
+        return value;
+    }
+    
+    /**
+     * Returns the shared result for a failure code
+     * @param code One of the negative failure codes
+     * @return The ValidationResult carrying the matching reason code
+     */
+    public static ValidationResult failure(long code) {
+        return FAILURES[(int) (-code - 1)];
+    }
+    
+    /**
+     * Formats a number returned by {@link #validateToLong(CharSequence)}
+     * @param number A valid (non-negative) number
+     * @return The number in 639XXXXXXXXX form
+     */
+    public static String format(long number) {
+        return Long.toString(number);
+    }
+    
+    static boolean isWhitespace(char c) {
+        // Same set as the \s regex class
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+    
+    private static boolean isAllDigits(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
     }
     
     /**
      * Class to store validation result with reason
      */
     public static class ValidationResult {
-        private final boolean valid;
+        private static final String VALID_TEXT = "Valid";
+        
         private final String formattedNumber;
-        private final String reason;
+        private final InvalidReason reasonCode;
         
-        public ValidationResult(boolean valid, String formattedNumber, String reason) {
-            this.valid = valid;
+        /**
+         * @param formattedNumber The number of a valid result
+         */
+        public ValidationResult(String formattedNumber) {
             this.formattedNumber = formattedNumber;
-            this.reason = reason;
+            this.reasonCode = null;
+        }
+        
+        /**
+         * @param reasonCode Why the input is invalid
+         */
+        public ValidationResult(InvalidReason reasonCode) {
+            this.formattedNumber = null;
+            this.reasonCode = reasonCode;
         }
         
         public boolean isValid() {
-            return valid;
+            return reasonCode == null;
         }
         
         public String getFormattedNumber() {
             return formattedNumber;
         }
         
+        /**
+         * @return Why the input is invalid, or null if it is valid
+         */
+        public InvalidReason getReasonCode() {
+            return reasonCode;
+        }
+        
+        /**
+         * @return The reason text, rendered from the reason code
+         */
         public String getReason() {
-            return reason;
+            return reasonCode == null ? VALID_TEXT : reasonCode.getText();
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,69 @@
+// src/main/java/com/smartibf/utils/ProcessingExecutor.java
+package com.smartibf.utils;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Shared, bounded worker pool for processing whitelist files.
+ * The pool size defaults to the number of available cores and can be set
+ * with the {@code whitelist.workers} system property.
+ */
+public final class ProcessingExecutor {
+    private static final int POOL_SIZE = Integer.getInteger("whitelist.workers",
+                                                            Runtime.getRuntime().availableProcessors());
+    private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(POOL_SIZE, new WorkerThreadFactory("whitelist-worker-"));
+    private static final ExecutorService STAGES = Executors.newCachedThreadPool(new WorkerThreadFactory("whitelist-stage-"));
+    
+    private ProcessingExecutor() {
+    }
+    
+    /**
+     * @return The shared executor for file processing tasks
+     */
+    public static ExecutorService get() {
+        return EXECUTOR;
+    }
+    
+    /**
+     * Threads for the read and write stages that run alongside a file being processed.
+     * Not bounded by the pool size: every file in flight needs its stages to make progress.
+     * @return The executor for pipeline stages
+     */
+    public static ExecutorService stages() {
+        return STAGES;
+    }
+    
+    public static int getPoolSize() {
+        return POOL_SIZE;
+    }
+    
+    /**
+     * @param prefix Start of the thread names, followed by a number counting the threads created
+     * @return A factory of named daemon threads, for the other pools of the application
+     */
+    static ThreadFactory threadFactory(String prefix) {
+        return new WorkerThreadFactory(prefix);
+    }
+    
+    /**
+     * Creates named daemon threads so the pool never blocks container shutdown
+     */
+    private static class WorkerThreadFactory implements ThreadFactory {
+        private final AtomicInteger counter = new AtomicInteger();
+        private final String prefix;
+        
+        WorkerThreadFactory(String prefix) {
+            this.prefix = prefix;
+        }
+        
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
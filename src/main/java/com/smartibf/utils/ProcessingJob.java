@@ -0,0 +1,80 @@
+// src/main/java/com/smartibf/utils/ProcessingJob.java
+package com.smartibf.utils;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A batch of uploaded files processed in the background
+ */
+public class ProcessingJob {
+    
+    public enum State { QUEUED, RUNNING, COMPLETED, FAILED }
+    
+    private final String id;
+    private final String batchDirectory;
+    private final int fileCount;
+    private final ProcessingProgress progress = new ProcessingProgress();
+    private volatile State state = State.QUEUED;
+    private volatile List<ProcessingSummary> summaries = Collections.emptyList();
+    private volatile String errorMessage;
+    private volatile long finishedAt;
+    
+    public ProcessingJob(String id, String batchDirectory, int fileCount) {
+        this.id = id;
+        this.batchDirectory = batchDirectory;
+        this.fileCount = fileCount;
+    }
+    
+    void started() {
+        state = State.RUNNING;
+    }
+    
+    void completed(List<ProcessingSummary> summaries) {
+        this.summaries = Collections.unmodifiableList(summaries);
+        this.finishedAt = System.currentTimeMillis();
+        this.state = State.COMPLETED;
+    }
+    
+    void failed(String errorMessage) {
+        this.errorMessage = errorMessage;
+        this.finishedAt = System.currentTimeMillis();
+        this.state = State.FAILED;
+    }
+    
+    public boolean isFinished() {
+        return state == State.COMPLETED || state == State.FAILED;
+    }
+    
+    public String getId() {
+        return id;
+    }
+    
+    public String getBatchDirectory() {
+        return batchDirectory;
+    }
+    
+    public int getFileCount() {
+        return fileCount;
+    }
+    
+    public ProcessingProgress getProgress() {
+        return progress;
+    }
+    
+    public State getState() {
+        return state;
+    }
+    
+    public List<ProcessingSummary> getSummaries() {
+        return summaries;
+    }
+    
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+    
+    public long getFinishedAt() {
+        return finishedAt;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,102 @@
+// src/main/java/com/smartibf/utils/ProcessingJobs.java
+package com.smartibf.utils;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Registry of background processing jobs.
+ * Jobs run on their own small pool so that a batch waiting on its files never
+ * holds a thread of the file worker pool. Finished jobs are kept for an hour
+ * so their results can still be polled.
+ */
+public final class ProcessingJobs {
+    private static final Logger LOG = LogManager.getLogger(ProcessingJobs.class);
+    private static final int MAX_CONCURRENT_JOBS = Integer.getInteger("whitelist.jobs", 4);
+    private static final long RETENTION_MILLIS = TimeUnit.HOURS.toMillis(1);
+    private static final Map<String, ProcessingJob> JOBS = new ConcurrentHashMap<>();
+    private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(
+        MAX_CONCURRENT_JOBS, ProcessingExecutor.threadFactory("whitelist-job-"));
+    
+    private ProcessingJobs() {
+    }
+    
+    /**
+     * Work performed by a job; it reports record counts through the job's progress
+     */
+    public interface BatchTask {
+        List<ProcessingSummary> run(ProcessingProgress progress) throws Exception;
+    }
+    
+    /**
+     * Queue a batch for background processing
+     * @param batchDirectory Directory the batch writes its outputs to
+     * @param fileCount Number of files in the batch
+     * @param task The processing to run
+     * @return The queued job
+     */
+    public static ProcessingJob submit(String batchDirectory, int fileCount, BatchTask task) {
+        return submit(batchDirectory, fileCount, task, EXECUTOR);
+    }
+    
+    /**
+     * Queue a batch for background processing on an executor of its own, for jobs that spend most
+     * of their time waiting, such as a chunked upload processed while it arrives; they would
+     * otherwise keep the job pool from running other batches
+     * @param batchDirectory Directory the batch writes its outputs to
+     * @param fileCount Number of files in the batch
+     * @param task The processing to run
+     * @param executor Runs the job
+     * @return The queued job, polled like any other
+     */
+    public static ProcessingJob submit(String batchDirectory, int fileCount, BatchTask task, Executor executor) {
+        evictExpired();
+        
+        ProcessingJob job = new ProcessingJob(UUID.randomUUID().toString(), batchDirectory, fileCount);
+        JOBS.put(job.getId(), job);
+        executor.execute(() -> {
+            job.started();
+            try {
+                job.completed(task.run(job.getProgress()));
+            } catch (Exception e) {
+                LOG.error("Error in processing job " + job.getId(), e);
+                job.failed(e.getMessage());
+            }
+        });
+        return job;
+    }
+    
+    /**
+     * @return The job with the given id, or null if it is unknown or expired
+     */
+    public static ProcessingJob get(String jobId) {
+        return jobId == null ? null : JOBS.get(jobId);
+    }
+    
+    /**
+     * @return Number of jobs queued or running
+     */
+    public static int getActiveJobCount() {
+        int active = 0;
+        for (ProcessingJob job : JOBS.values()) {
+            if (!job.isFinished()) {
+                active++;
+            }
+        }
+        return active;
+    }
+    
+    private static void evictExpired() {
+        long cutoff = System.currentTimeMillis() - RETENTION_MILLIS;
+        JOBS.values().removeIf(job -> job.isFinished() && job.getFinishedAt() < cutoff);
+    }
+}
\ No newline at end of file
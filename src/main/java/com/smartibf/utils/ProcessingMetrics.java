@@ -0,0 +1,89 @@
+// src/main/java/com/smartibf/utils/ProcessingMetrics.java
+package com.smartibf.utils;
+
+/**
+ * Metrics of the processing pipeline, shared by the processors and actions
+ */
+public final class ProcessingMetrics {
+    public static final Metrics.Counter VALID_RECORDS = records("valid");
+    public static final Metrics.Counter INVALID_RECORDS = records("invalid");
+    public static final Metrics.Counter DUPLICATE_RECORDS = records("duplicate");
+    public static final Metrics.Counter FILES_PROCESSED = Metrics.counter(
+        "whitelist_files_processed_total", "Whitelist files processed");
+    public static final Metrics.Counter INPUT_BYTES = Metrics.counter(
+        "whitelist_input_bytes_total", "Bytes of whitelist input processed");
+    public static final Metrics.Counter OUTPUT_BYTES = Metrics.counter(
+        "whitelist_output_bytes_total", "Bytes of processed output written");
+    public static final Metrics.Counter DOWNLOAD_BYTES = Metrics.counter(
+        "whitelist_download_bytes_total", "Bytes sent to clients by downloads");
+    public static final Metrics.Counter BATCHES_REMOVED = Metrics.counter(
+        "whitelist_storage_batches_removed_total", "Batches removed by retention or quota");
+    public static final Metrics.Counter BATCHES_COMPRESSED = Metrics.counter(
+        "whitelist_storage_batches_compressed_total", "Cold batches compressed");
+    public static final Metrics.Counter BATCHES_INFLATED = Metrics.counter(
+        "whitelist_storage_files_inflated_total", "Compressed files brought back to be paged");
+    
+    public static final Metrics.Histogram PROCESS_TIME = stage("process");
+    /** Single numbers validate in well under a microsecond, so this stage gets finer buckets */
+    public static final Metrics.Histogram VALIDATE_TIME = Metrics.histogram(
+        "whitelist_stage_duration_seconds", "Time spent per pipeline stage",
+        new double[] {5e-8, 1e-7, 2.5e-7, 5e-7, 1e-6, 2.5e-6, 5e-6, 1e-5, 1e-4, 0.001}, "stage", "validate");
+    public static final Metrics.Histogram SAVE_TIME = stage("save");
+    public static final Metrics.Histogram UPLOAD_TIME = stage("upload");
+    public static final Metrics.Histogram DOWNLOAD_TIME = stage("download");
+    public static final Metrics.Histogram BULK_VALIDATE_TIME = stage("bulk_validate");
+    
+    private static final Metrics.Counter[] INVALID_BY_REASON = new Metrics.Counter[InvalidReason.values().length];
+    
+    static {
+        for (InvalidReason reason : InvalidReason.values()) {
+            INVALID_BY_REASON[reason.ordinal()] = Metrics.counter(
+                "whitelist_rejected_records_total", "Rejected records by reason", "reason", reason.name());
+        }
+        Metrics.function("whitelist_jobs_active", "Background processing jobs queued or running", "gauge",
+                         ProcessingJobs::getActiveJobCount);
+        Metrics.function("whitelist_worker_threads", "Size of the file processing pool", "gauge",
+                         ProcessingExecutor::getPoolSize);
+        Metrics.function("whitelist_storage_bytes", "Bytes held by stored batches", "gauge",
+                         BatchStorage::storedBytes);
+    }
+    
+    private ProcessingMetrics() {
+    }
+    
+    /**
+     * Add the outcome counts of one processed file
+     * @param valid Valid records
+     * @param rejectedByReason Invalid and duplicate records, indexed by {@link InvalidReason#ordinal()}
+     */
+    public static void recordFile(int valid, int[] rejectedByReason) {
+        VALID_RECORDS.add(valid);
+        int duplicates = rejectedByReason[InvalidReason.DUPLICATE.ordinal()]
+                         + rejectedByReason[InvalidReason.DUPLICATE_IN_BATCH.ordinal()];
+        int invalid = -duplicates;
+        for (int i = 0; i < rejectedByReason.length; i++) {
+            if (rejectedByReason[i] > 0) {
+                INVALID_BY_REASON[i].add(rejectedByReason[i]);
+                invalid += rejectedByReason[i];
+            }
+        }
+        INVALID_RECORDS.add(invalid);
+        DUPLICATE_RECORDS.add(duplicates);
+        FILES_PROCESSED.increment();
+    }
+    
+    /**
+     * Render all metrics in the Prometheus text format
+     */
+    public static String scrape() {
+        return Metrics.scrape();
+    }
+    
+    private static Metrics.Counter records(String outcome) {
+        return Metrics.counter("whitelist_records_total", "Processed records by outcome", "outcome", outcome);
+    }
+    
+    private static Metrics.Histogram stage(String stage) {
+        return Metrics.histogram("whitelist_stage_duration_seconds", "Time spent per pipeline stage", "stage", stage);
+    }
+}
\ No newline at end of file
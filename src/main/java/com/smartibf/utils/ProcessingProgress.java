@@ -0,0 +1,49 @@
+// src/main/java/com/smartibf/utils/ProcessingProgress.java
+package com.smartibf.utils;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Running record counts for a batch, updated by the workers and read by status requests
+ */
+public class ProcessingProgress {
+    private final LongAdder recordsProcessed = new LongAdder();
+    private final LongAdder validRecords = new LongAdder();
+    private final LongAdder invalidRecords = new LongAdder();
+    private final LongAdder duplicateRecords = new LongAdder();
+    private final LongAdder filesCompleted = new LongAdder();
+    
+    /**
+     * Adds the counts of records processed since the last update
+     */
+    public void add(long valid, long invalid, long duplicates) {
+        validRecords.add(valid);
+        invalidRecords.add(invalid);
+        duplicateRecords.add(duplicates);
+        recordsProcessed.add(valid + invalid + duplicates);
+    }
+    
+    public void fileCompleted() {
+        filesCompleted.increment();
+    }
+    
+    public long getRecordsProcessed() {
+        return recordsProcessed.sum();
+    }
+    
+    public long getValidRecords() {
+        return validRecords.sum();
+    }
+    
+    public long getInvalidRecords() {
+        return invalidRecords.sum();
+    }
+    
+    public long getDuplicateRecords() {
+        return duplicateRecords.sum();
+    }
+    
+    public long getFilesCompleted() {
+        return filesCompleted.sum();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,182 @@
+// src/main/java/com/smartibf/utils/ProcessingSummary.java
+package com.smartibf.utils;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Class representing the processing summary of one uploaded file, for the view and the batch summary
+ */
+public class ProcessingSummary {
+    private String fileName;
+    private String outputFileName;
+    private List<String> formatFileNames = Collections.emptyList();
+    private int totalRecords;
+    private int validRecords;
+    private int invalidRecords;
+    private int duplicateRecords;
+    private int crossFileDuplicateRecords;
+    private int newRecords;
+    private int whitelistedRecords;
+    private Map<InvalidReason, Integer> rejectedByReason = Collections.emptyMap();
+    private long inputBytes;
+    private long outputBytes;
+    private long processingMillis;
+    private Map<String, String> outputChecksums = Collections.emptyMap();
+    private boolean error;
+    private String errorMessage;
+    
+    // Getters and Setters
+    
+    public String getFileName() {
+        return fileName;
+    }
+    
+    public void setFileName(String fileName) {
+        this.fileName = fileName;
+    }
+    
+    public String getOutputFileName() {
+        return outputFileName;
+    }
+    
+    public void setOutputFileName(String outputFileName) {
+        this.outputFileName = outputFileName;
+    }
+    
+    /**
+     * @return Files written in the requested output formats, next to the cleaned report
+     */
+    public List<String> getFormatFileNames() {
+        return formatFileNames;
+    }
+    
+    public void setFormatFileNames(List<String> formatFileNames) {
+        this.formatFileNames = formatFileNames;
+    }
+    
+    public int getTotalRecords() {
+        return totalRecords;
+    }
+    
+    public void setTotalRecords(int totalRecords) {
+        this.totalRecords = totalRecords;
+    }
+    
+    public int getValidRecords() {
+        return validRecords;
+    }
+    
+    public void setValidRecords(int validRecords) {
+        this.validRecords = validRecords;
+    }
+    
+    public int getInvalidRecords() {
+        return invalidRecords;
+    }
+    
+    public void setInvalidRecords(int invalidRecords) {
+        this.invalidRecords = invalidRecords;
+    }
+    
+    /**
+     * @return Rejected lines per reason, including duplicates; only reasons that occurred are present
+     */
+    public Map<InvalidReason, Integer> getRejectedByReason() {
+        return rejectedByReason;
+    }
+    
+    public void setRejectedByReason(Map<InvalidReason, Integer> rejectedByReason) {
+        this.rejectedByReason = rejectedByReason;
+    }
+    
+    public int getDuplicateRecords() {
+        return duplicateRecords;
+    }
+    
+    public void setDuplicateRecords(int duplicateRecords) {
+        this.duplicateRecords = duplicateRecords;
+    }
+    
+    /**
+     * @return Duplicates of numbers kept by an earlier file of the batch, included in the duplicate records
+     */
+    public int getCrossFileDuplicateRecords() {
+        return crossFileDuplicateRecords;
+    }
+    
+    public void setCrossFileDuplicateRecords(int crossFileDuplicateRecords) {
+        this.crossFileDuplicateRecords = crossFileDuplicateRecords;
+    }
+    
+    public boolean isError() {
+        return error;
+    }
+    
+    public void setError(boolean error) {
+        this.error = error;
+    }
+    
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+    
+    public void setErrorMessage(String errorMessage) {
+        this.errorMessage = errorMessage;
+    }
+    
+    public long getInputBytes() {
+        return inputBytes;
+    }
+    
+    public void setInputBytes(long inputBytes) {
+        this.inputBytes = inputBytes;
+    }
+    
+    /**
+     * @return Bytes of the cleaned report
+     */
+    public long getOutputBytes() {
+        return outputBytes;
+    }
+    
+    public void setOutputBytes(long outputBytes) {
+        this.outputBytes = outputBytes;
+    }
+    
+    public long getProcessingMillis() {
+        return processingMillis;
+    }
+    
+    public void setProcessingMillis(long processingMillis) {
+        this.processingMillis = processingMillis;
+    }
+    
+    /**
+     * @return SHA-256 of each output file, by file name
+     */
+    public Map<String, String> getOutputChecksums() {
+        return outputChecksums;
+    }
+    
+    public void setOutputChecksums(Map<String, String> outputChecksums) {
+        this.outputChecksums = outputChecksums;
+    }
+    
+    public int getNewRecords() {
+        return newRecords;
+    }
+    
+    public void setNewRecords(int newRecords) {
+        this.newRecords = newRecords;
+    }
+    
+    public int getWhitelistedRecords() {
+        return whitelistedRecords;
+    }
+    
+    public void setWhitelistedRecords(int whitelistedRecords) {
+        this.whitelistedRecords = whitelistedRecords;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,416 @@
+// src/main/java/com/smartibf/utils/ResultIndex.java
+package com.smartibf.utils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Sparse offset index of a processed output file, kept in a hidden file next to it, for reading
+ * pages of records without loading the file. For the valid section, the invalid section and each
+ * reason within it, the index stores the byte offset of every {@value #INTERVAL}th record. A page
+ * is read by looking up one checkpoint, seeking to it and reading forward, so its cost does not
+ * depend on the size of the file. Only the header of the index is kept in memory.
+ */
+public class ResultIndex {
+    static final int INTERVAL = 256;
+    private static final int MAGIC = 0x57494458; // "WIDX"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 4 * Integer.BYTES + 3 * Long.BYTES;
+    private static final String SUFFIX = ".idx";
+    private static final String VALID_SECTION = "## VALID NUMBERS";
+    private static final String INVALID_SECTION = "## INVALID NUMBERS (with reasons)";
+    private static final String REASON_SEPARATOR = " # ";
+    private static final int VALID = 0;
+    private static final int INVALID = 1;
+    private static final int FIRST_REASON = 2;
+    private static final int STREAMS = FIRST_REASON + InvalidReason.values().length;
+    
+    private final Path output;
+    private final Path indexPath;
+    private final long validStart;
+    private final long invalidStart;
+    private final long[] counts;
+    private final long[] checkpointPositions;
+    
+    private ResultIndex(Path output, Path indexPath, long validStart, long invalidStart, long[] counts) {
+        this.output = output;
+        this.indexPath = indexPath;
+        this.validStart = validStart;
+        this.invalidStart = invalidStart;
+        this.counts = counts;
+        
+        // Checkpoint arrays follow the header and the record counts, one stream after another
+        this.checkpointPositions = new long[STREAMS];
+        long position = HEADER_SIZE + (long) STREAMS * Long.BYTES;
+        for (int i = 0; i < STREAMS; i++) {
+            checkpointPositions[i] = position;
+            position += checkpointCount(counts[i]) * Long.BYTES;
+        }
+    }
+    
+    /**
+     * Open the index of an output file, building it first if it is missing or does not match the file
+     * @param output A processed output file
+     * @return The index
+     * @throws IOException If the output or index cannot be read, or the index cannot be written
+     */
+    public static ResultIndex open(Path output) throws IOException {
+        Path indexPath = indexPath(output);
+        if (Files.isRegularFile(indexPath)) {
+            ResultIndex index = readHeader(output, indexPath);
+            if (index != null) {
+                return index;
+            }
+        }
+        return scan(output).write(output);
+    }
+    
+    /**
+     * @return Path of the index of an output file, hidden so it is not archived with the outputs
+     */
+    public static Path indexPath(Path output) {
+        return output.resolveSibling("." + output.getFileName() + SUFFIX);
+    }
+    
+    /**
+     * @return Number of valid records
+     */
+    public long getValidCount() {
+        return counts[VALID];
+    }
+    
+    /**
+     * @param reason A reason, or null for all invalid records
+     * @return Number of invalid records with the reason
+     */
+    public long getInvalidCount(InvalidReason reason) {
+        return counts[stream(reason)];
+    }
+    
+    /**
+     * Read consecutive valid records
+     * @param from Zero-based position of the first record
+     * @param count Largest number of records to read
+     */
+    public List<Record> readValid(long from, int count) throws IOException {
+        return read(VALID, validStart, null, from, count);
+    }
+    
+    /**
+     * Read consecutive invalid records, optionally of one reason only
+     * @param reason The reason to filter by, or null for all invalid records
+     * @param from Zero-based position of the first record among those selected
+     * @param count Largest number of records to read
+     */
+    public List<Record> readInvalid(InvalidReason reason, long from, int count) throws IOException {
+        return read(stream(reason), invalidStart, reason, from, count);
+    }
+    
+    private List<Record> read(int stream, long sectionStart, InvalidReason filter, long from,
+                              int count) throws IOException {
+        List<Record> records = new ArrayList<>();
+        long remaining = Math.min(count, counts[stream] - from);
+        if (from < 0 || remaining <= 0) {
+            return records;
+        }
+        
+        try (FileChannel channel = FileChannel.open(output, StandardOpenOption.READ)) {
+            // Seek to the closest checkpoint before the first record, then skip forward
+            long skip = from % INTERVAL;
+            channel.position(sectionStart + readCheckpoint(stream, from / INTERVAL));
+            BufferedReader reader = new BufferedReader(
+                new InputStreamReader(Channels.newInputStream(channel), StandardCharsets.UTF_8));
+            String line;
+            while (remaining > 0 && (line = reader.readLine()) != null) {
+                Record record = stream == VALID ? new Record(line, null, null) : Record.parse(line);
+                if (filter != null && record.getReason() != filter) {
+                    continue;
+                }
+                if (skip > 0) {
+                    skip--;
+                } else {
+                    records.add(record);
+                    remaining--;
+                }
+            }
+        }
+        return records;
+    }
+    
+    private long readCheckpoint(int stream, long checkpoint) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES);
+        try (FileChannel channel = FileChannel.open(indexPath, StandardOpenOption.READ)) {
+            long position = checkpointPositions[stream] + checkpoint * Long.BYTES;
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, position + buffer.position()) < 0) {
+                    throw new IOException("Truncated result index: " + indexPath);
+                }
+            }
+        }
+        return buffer.getLong(0);
+    }
+    
+    private static int stream(InvalidReason reason) {
+        return reason == null ? INVALID : FIRST_REASON + reason.ordinal();
+    }
+    
+    private static long checkpointCount(long count) {
+        return (count + INTERVAL - 1) / INTERVAL;
+    }
+    
+    /**
+     * Read the header of an index file
+     * @return The index, or null if it was written for another version of the output or of this format
+     */
+    private static ResultIndex readHeader(Path output, Path indexPath) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexPath)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION || in.readInt() != INTERVAL
+                || in.readInt() != STREAMS) {
+                return null;
+            }
+            long outputSize = in.readLong();
+            long validStart = in.readLong();
+            long invalidStart = in.readLong();
+            if (outputSize != Files.size(output)) {
+                return null;
+            }
+            long[] counts = new long[STREAMS];
+            for (int i = 0; i < STREAMS; i++) {
+                counts[i] = in.readLong();
+            }
+            return new ResultIndex(output, indexPath, validStart, invalidStart, counts);
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+    
+    /**
+     * Build the index of an output file written without one, by reading it once
+     */
+    static Builder scan(Path output) throws IOException {
+        Builder builder = new Builder();
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(output))) {
+            LineScanner lines = new LineScanner(in);
+            String line;
+            while ((line = lines.next()) != null && !line.equals(VALID_SECTION)) {
+                // Skip the header
+            }
+            builder.validStart = lines.offset + lines.lineBytes;
+            while ((line = lines.next()) != null && !line.isEmpty()) {
+                builder.addValid(lines.lineBytes);
+            }
+            while ((line = lines.next()) != null && !line.equals(INVALID_SECTION)) {
+                // Skip to the invalid section
+            }
+            builder.invalidStart = lines.offset + lines.lineBytes;
+            while ((line = lines.next()) != null) {
+                builder.addInvalid(Record.parse(line).getReason(), lines.lineBytes);
+            }
+        }
+        return builder;
+    }
+    
+    /**
+     * One record of an output file
+     */
+    public static class Record {
+        private final String line;
+        private final InvalidReason reason;
+        private final String reasonText;
+        
+        Record(String line, InvalidReason reason, String reasonText) {
+            this.line = line;
+            this.reason = reason;
+            this.reasonText = reasonText;
+        }
+        
+        /**
+         * Split an invalid record line into the raw line and its reason
+         */
+        static Record parse(String outputLine) {
+            // The reason texts never contain the separator, so the last one ends the raw line
+            int separator = outputLine.lastIndexOf(REASON_SEPARATOR);
+            if (separator < 0) {
+                return new Record(outputLine, null, null);
+            }
+            String text = outputLine.substring(separator + REASON_SEPARATOR.length());
+            for (InvalidReason reason : InvalidReason.values()) {
+                if (reason.isDuplicate() ? text.startsWith(reason.getText() + " ") : text.equals(reason.getText())) {
+                    return new Record(outputLine.substring(0, separator), reason, text);
+                }
+            }
+            return new Record(outputLine.substring(0, separator), null, text);
+        }
+        
+        /**
+         * @return The formatted number for a valid record, otherwise the raw line
+         */
+        public String getLine() {
+            return line;
+        }
+        
+        /**
+         * @return Why the line was rejected, or null for a valid record
+         */
+        public InvalidReason getReason() {
+            return reason;
+        }
+        
+        /**
+         * @return The report text of the reason, or null for a valid record
+         */
+        public String getReasonText() {
+            return reasonText;
+        }
+    }
+    
+    /**
+     * Collects the checkpoints of an output file while its sections are written
+     */
+    static final class Builder {
+        private final long[][] checkpoints = new long[STREAMS][];
+        private final long[] counts = new long[STREAMS];
+        private long validBytes;
+        private long invalidBytes;
+        private long validStart;
+        private long invalidStart;
+        
+        Builder() {
+            for (int i = 0; i < STREAMS; i++) {
+                checkpoints[i] = new long[16];
+            }
+        }
+        
+        /**
+         * @param lineBytes Encoded length of the record's line, including the line separator
+         */
+        void addValid(int lineBytes) {
+            add(VALID, validBytes);
+            validBytes += lineBytes;
+        }
+        
+        /**
+         * @param reason Why the line was rejected, or null if it cannot be told
+         * @param lineBytes Encoded length of the record's line, including the line separator
+         */
+        void addInvalid(InvalidReason reason, int lineBytes) {
+            add(INVALID, invalidBytes);
+            if (reason != null) {
+                add(stream(reason), invalidBytes);
+            }
+            invalidBytes += lineBytes;
+        }
+        
+        /**
+         * @param validStart Offset of the first valid record in the output file
+         * @param invalidStart Offset of the first invalid record in the output file
+         */
+        void setSectionStarts(long validStart, long invalidStart) {
+            this.validStart = validStart;
+            this.invalidStart = invalidStart;
+        }
+        
+        private void add(int stream, long offset) {
+            long count = counts[stream]++;
+            if (count % INTERVAL == 0) {
+                int checkpoint = (int) (count / INTERVAL);
+                if (checkpoint == checkpoints[stream].length) {
+                    checkpoints[stream] = Arrays.copyOf(checkpoints[stream], checkpoint * 2);
+                }
+                checkpoints[stream][checkpoint] = offset;
+            }
+        }
+        
+        /**
+         * Write the index next to the finished output file
+         * @return The written index
+         */
+        ResultIndex write(Path output) throws IOException {
+            Path indexPath = indexPath(output);
+            Path temp = indexPath.resolveSibling(indexPath.getFileName() + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(INTERVAL);
+                out.writeInt(STREAMS);
+                out.writeLong(Files.size(output));
+                out.writeLong(validStart);
+                out.writeLong(invalidStart);
+                for (long count : counts) {
+                    out.writeLong(count);
+                }
+                for (int i = 0; i < STREAMS; i++) {
+                    for (int j = 0; j < checkpointCount(counts[i]); j++) {
+                        out.writeLong(checkpoints[i][j]);
+                    }
+                }
+            }
+            // Readers never see a partly written index
+            Files.move(temp, indexPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return new ResultIndex(output, indexPath, validStart, invalidStart, counts.clone());
+        }
+    }
+    
+    /**
+     * Splits a stream into lines like BufferedReader.readLine, tracking the byte offset of each line
+     */
+    private static final class LineScanner {
+        private final InputStream in;
+        private final ByteArrayOutputStream line = new ByteArrayOutputStream();
+        private long offset; // start of the last line
+        private int lineBytes; // length of the last line, including its separator
+        private int pending = -1;
+        
+        LineScanner(InputStream in) {
+            this.in = in;
+        }
+        
+        String next() throws IOException {
+            line.reset();
+            int bytes = 0;
+            int b = pending >= 0 ? pending : in.read();
+            pending = -1;
+            while (b >= 0 && b != '\n' && b != '\r') {
+                line.write(b);
+                bytes++;
+                b = in.read();
+            }
+            if (b < 0 && bytes == 0) {
+                return null;
+            }
+            if (b >= 0) {
+                bytes++;
+                if (b == '\r') {
+                    int next = in.read();
+                    if (next == '\n') {
+                        bytes++;
+                    } else {
+                        pending = next;
+                    }
+                }
+            }
+            offset += lineBytes;
+            lineBytes = bytes;
+            return line.toString(StandardCharsets.UTF_8);
+        }
+    }
+}
\ No newline at end of file
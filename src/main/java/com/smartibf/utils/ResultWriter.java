@@ -0,0 +1,37 @@
+// src/main/java/com/smartibf/utils/ResultWriter.java
+package com.smartibf.utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Receives each processed record, in file order, while a file is being processed.
+ * Writers that only need the accepted numbers can implement just {@link #writeValid(long)}.
+ */
+public interface ResultWriter extends Closeable {
+    
+    /**
+     * @param number A valid number seen for the first time in the file
+     */
+    void writeValid(long number) throws IOException;
+    
+    /**
+     * @param line The raw line
+     * @param reason Why the line was rejected
+     */
+    default void writeInvalid(String line, InvalidReason reason) throws IOException {
+    }
+    
+    /**
+     * @param line The raw line
+     * @param number The number it repeats
+     * @param reason {@link InvalidReason#DUPLICATE} for a repeat within the file,
+     *               {@link InvalidReason#DUPLICATE_IN_BATCH} for a number an earlier file of the batch keeps
+     */
+    default void writeDuplicate(String line, long number, InvalidReason reason) throws IOException {
+    }
+    
+    @Override
+    default void close() throws IOException {
+    }
+}
\ No newline at end of file
@@ -0,0 +1,89 @@
+// src/main/java/com/smartibf/utils/StageQueue.java
+package com.smartibf.utils;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.Supplier;
+
+/**
+ * Bounded hand-off of blocks of records between two pipeline stages running on different threads.
+ * A fixed number of blocks circulates: the producer fills a free block and publishes it, the
+ * consumer processes it and releases it for reuse. When the consumer falls behind the producer
+ * waits for a free block, so memory stays bounded by the depth whatever the size of the file.
+ */
+final class StageQueue<T> {
+    private static final Object END = new Object();
+    
+    private final BlockingQueue<T> free;
+    private final BlockingQueue<Object> published;
+    private boolean closed;
+    
+    /**
+     * @param depth Number of blocks in circulation
+     * @param blocks Creates the blocks
+     */
+    StageQueue(int depth, Supplier<T> blocks) {
+        this.free = new ArrayBlockingQueue<>(depth);
+        this.published = new ArrayBlockingQueue<>(depth + 1); // every block plus the end marker
+        for (int i = 0; i < depth; i++) {
+            free.add(blocks.get());
+        }
+    }
+    
+    /**
+     * Producer: wait for a free block
+     */
+    T acquire() throws IOException {
+        try {
+            return free.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the next pipeline stage");
+        }
+    }
+    
+    /**
+     * Producer: hand a filled block to the consumer
+     */
+    void publish(T block) {
+        published.add(block);
+    }
+    
+    /**
+     * Producer: signal that no more blocks follow
+     */
+    void close() {
+        if (!closed) {
+            closed = true;
+            published.add(END);
+        }
+    }
+    
+    /**
+     * Consumer: wait for the next block
+     * @return The block, or null once the producer has closed the queue
+     */
+    @SuppressWarnings("unchecked")
+    T take() throws IOException {
+        try {
+            Object block = published.take();
+            if (block == END) {
+                published.add(END); // later calls see the end too
+                return null;
+            }
+            return (T) block;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the previous pipeline stage");
+        }
+    }
+    
+    /**
+     * Consumer: return a processed block for reuse
+     */
+    void release(T block) {
+        free.add(block);
+    }
+}
\ No newline at end of file
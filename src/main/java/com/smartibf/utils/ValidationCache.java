@@ -0,0 +1,116 @@
+// src/main/java/com/smartibf/utils/ValidationCache.java
+package com.smartibf.utils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.ToLongFunction;
+
+/**
+ * Bounded cache of validation outcomes keyed by the raw input line, for uploads that repeat the
+ * same strings. The entries are split over independently locked segments, each evicting its least
+ * recently used entry when full, so threads working on different lines rarely wait for each other.
+ * Safe for concurrent use.
+ */
+public class ValidationCache {
+    private static final int SEGMENTS = 16; // power of two
+    private static final Metrics.Counter HITS = Metrics.counter(
+        "whitelist_validation_cache_requests_total", "Validation cache lookups by result", "result", "hit");
+    private static final Metrics.Counter MISSES = Metrics.counter(
+        "whitelist_validation_cache_requests_total", "Validation cache lookups by result", "result", "miss");
+    
+    private final Segment[] segments = new Segment[SEGMENTS];
+    private final int maxSize;
+    
+    /**
+     * @param maxSize Largest number of entries kept
+     */
+    public ValidationCache(int maxSize) {
+        if (maxSize < SEGMENTS) {
+            throw new IllegalArgumentException("Validation cache size must be at least " + SEGMENTS);
+        }
+        this.maxSize = maxSize;
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(maxSize / SEGMENTS);
+        }
+        Metrics.function("whitelist_validation_cache_entries", "Entries in the validation cache", "gauge", this::size);
+    }
+    
+    /**
+     * Get the cached outcome for a line, validating and caching it on a miss
+     * @param line The raw line
+     * @param validator Computes the outcome; called outside any lock
+     * @return The validation outcome
+     */
+    public long get(String line, ToLongFunction<String> validator) {
+        Segment segment = segmentFor(line);
+        Long cached;
+        synchronized (segment) {
+            cached = segment.get(line);
+        }
+        if (cached != null) {
+            HITS.increment();
+            return cached;
+        }
+        
+        MISSES.increment();
+        long outcome = validator.applyAsLong(line);
+        synchronized (segment) {
+            segment.put(line, outcome);
+        }
+        return outcome;
+    }
+    
+    /**
+     * @return Number of cached lines
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+    
+    public int getMaxSize() {
+        return maxSize;
+    }
+    
+    /**
+     * @return Lookups answered from the cache, across all caches
+     */
+    public static long getHits() {
+        return HITS.get();
+    }
+    
+    /**
+     * @return Lookups that had to validate the line, across all caches
+     */
+    public static long getMisses() {
+        return MISSES.get();
+    }
+    
+    private Segment segmentFor(String line) {
+        int h = line.hashCode();
+        return segments[(h ^ (h >>> 16)) & (SEGMENTS - 1)];
+    }
+    
+    /**
+     * Access-ordered map that drops its least recently used entry when full
+     */
+    private static final class Segment extends LinkedHashMap<String, Long> {
+        private static final long serialVersionUID = 1L;
+        private final int capacity;
+        
+        Segment(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+        
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+            return size() > capacity;
+        }
+    }
+}
\ No newline at end of file
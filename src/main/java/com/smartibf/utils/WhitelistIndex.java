@@ -0,0 +1,592 @@
+// src/main/java/com/smartibf/utils/WhitelistIndex.java
+package com.smartibf.utils;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PrimitiveIterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Persistent index of every number accepted so far, shared by all batches.
+ * The index is a set of segment files of sorted, unique longs that are memory-mapped for lookups,
+ * so a lookup is a binary search over the mapped pages of each segment and the index is never
+ * loaded onto the heap. An update only writes the numbers the index does not hold yet, as a new
+ * segment; segments are merged once the newest is about as large as the one before it, so the
+ * number of segments stays logarithmic in the size of the index and every number is rewritten a
+ * logarithmic number of times. Each segment has a Bloom filter that answers most lookups for new
+ * numbers without touching it; its false-positive target is set with the
+ * {@code whitelist.index.bloomFpp} system property (0 disables the filters).
+ * Batches only use the index when the {@code whitelist.index.enabled} system property is true.
+ */
+public class WhitelistIndex {
+    private static final Logger LOG = LogManager.getLogger(WhitelistIndex.class);
+    public static final String NEW_NUMBERS_FILE_NAME = "_delta_new.txt";
+    public static final String REMOVED_NUMBERS_FILE_NAME = "_delta_removed.txt";
+    private static final String DEFAULT_DIR_NAME = ".index";
+    private static final String LEGACY_INDEX_FILE_NAME = "whitelist.idx";
+    private static final String SEGMENT_PREFIX = "whitelist-";
+    private static final String SEGMENT_SUFFIX = ".idx";
+    private static final String LAST_BATCH_FILE_NAME = "last_batch.idx";
+    private static final int MAPPING_SHIFT = 27; // 1GB of longs per mapping
+    private static final int MAPPING_MASK = (1 << MAPPING_SHIFT) - 1;
+    private static final int WRITE_BUFFER_SIZE = 256 * 1024;
+    private static final int MERGE_RATIO = 2; // merge when the newest segment is at least half the previous one
+    private static final boolean ENABLED = Boolean.getBoolean("whitelist.index.enabled");
+    private static final double BLOOM_FPP = Double.parseDouble(System.getProperty("whitelist.index.bloomFpp", "0.01"));
+    private static final Map<Path, WhitelistIndex> OPEN_INDEXES = new ConcurrentHashMap<>();
+    
+    private final Path directory;
+    private volatile List<Segment> segments; // oldest first, never modified once published
+    private long nextGeneration;
+    private final List<Path> retired = new ArrayList<>(); // replaced segment files, deleted by the next update
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder filterRejections = new LongAdder();
+    private final LongAdder falsePositives = new LongAdder();
+    
+    private WhitelistIndex(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        this.directory = directory;
+        List<Segment> existing = new ArrayList<>();
+        Path legacy = directory.resolve(LEGACY_INDEX_FILE_NAME);
+        if (Files.exists(legacy)) {
+            existing.add(Segment.map(legacy, true));
+        }
+        for (long generation : generations(directory)) {
+            existing.add(Segment.map(directory.resolve(segmentFileName(generation)), true));
+            nextGeneration = generation + 1;
+        }
+        this.segments = Collections.unmodifiableList(existing);
+        registerMetrics(directory.getFileName().toString());
+    }
+    
+    /**
+     * Get the index stored in a directory, creating it if needed.
+     * Every caller for the same directory shares one instance so updates are serialized.
+     * @param directory Directory holding the index files
+     * @return The index
+     * @throws IOException If the index cannot be opened
+     */
+    public static WhitelistIndex open(Path directory) throws IOException {
+        Path key = directory.toAbsolutePath().normalize();
+        WhitelistIndex index = OPEN_INDEXES.get(key);
+        if (index == null) {
+            synchronized (OPEN_INDEXES) {
+                index = OPEN_INDEXES.get(key);
+                if (index == null) {
+                    index = new WhitelistIndex(key);
+                    OPEN_INDEXES.put(key, index);
+                }
+            }
+        }
+        return index;
+    }
+    
+    /**
+     * Get the index shared by all batches, if it is enabled. It is kept in the directory named by the
+     * {@code whitelist.index.dir} system property, or in {@code .index} under the batch storage root.
+     * @param storageRoot Root of the batch storage
+     * @return The index, or null if batches are not compared against earlier ones
+     * @throws IOException If the index cannot be opened
+     */
+    public static WhitelistIndex openConfigured(Path storageRoot) throws IOException {
+        if (!ENABLED) {
+            return null;
+        }
+        String configured = System.getProperty("whitelist.index.dir");
+        return open(configured != null ? Paths.get(configured) : storageRoot.resolve(DEFAULT_DIR_NAME));
+    }
+    
+    /**
+     * @return Whether batches are compared against the index and added to it
+     */
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+    
+    private void registerMetrics(String name) {
+        Metrics.function("whitelist_index_numbers", "Numbers in the whitelist index", "gauge",
+                         this::size, "index", name);
+        Metrics.function("whitelist_index_segments", "Segment files of the whitelist index", "gauge",
+                         this::getSegmentCount, "index", name);
+        Metrics.function("whitelist_index_lookups_total", "Whitelist index lookups", "counter",
+                         this::getLookups, "index", name);
+        Metrics.function("whitelist_index_filter_rejections_total",
+                         "Index lookups answered by the Bloom filters alone", "counter",
+                         this::getFilterRejections, "index", name);
+        Metrics.function("whitelist_index_filter_false_positive_rate",
+                         "Observed Bloom filter false positive rate", "gauge",
+                         this::getObservedFalsePositiveRate, "index", name);
+        Metrics.function("whitelist_index_filter_expected_false_positive_rate",
+                         "Expected Bloom filter false positive rate", "gauge",
+                         this::getExpectedFalsePositiveRate, "index", name);
+        Metrics.function("whitelist_index_filter_bytes", "Memory used by the Bloom filters", "gauge",
+                         this::getFilterBytes, "index", name);
+    }
+    
+    /**
+     * Check whether a number is already whitelisted
+     * @param number A formatted number
+     * @return true if the number is in the index
+     */
+    public boolean contains(long number) {
+        lookups.increment();
+        boolean searched = false;
+        for (Segment segment : segments) {
+            if (segment.filter != null && !segment.filter.mightContain(number)) {
+                // Certainly not in this segment, skip the binary search
+                continue;
+            }
+            if (segment.contains(number)) {
+                return true;
+            }
+            searched = true;
+        }
+        if (!searched) {
+            filterRejections.increment();
+        } else if (BLOOM_FPP > 0) {
+            falsePositives.increment();
+        }
+        return false;
+    }
+    
+    /**
+     * @return Number of whitelisted numbers
+     */
+    public long size() {
+        long size = 0;
+        for (Segment segment : segments) {
+            size += segment.size;
+        }
+        return size;
+    }
+    
+    /**
+     * @return Number of segment files the index is currently made of
+     */
+    public int getSegmentCount() {
+        return segments.size();
+    }
+    
+    /**
+     * @return Number of lookups since the index was opened
+     */
+    public long getLookups() {
+        return lookups.sum();
+    }
+    
+    /**
+     * @return Number of lookups the Bloom filters answered without searching the index
+     */
+    public long getFilterRejections() {
+        return filterRejections.sum();
+    }
+    
+    /**
+     * @return Share of lookups for absent numbers that the Bloom filters let through
+     */
+    public double getObservedFalsePositiveRate() {
+        long passed = falsePositives.sum();
+        long absent = passed + filterRejections.sum();
+        return absent == 0 ? 0 : (double) passed / absent;
+    }
+    
+    /**
+     * @return False-positive rate the current Bloom filters are expected to have together, or 0 if disabled
+     */
+    public double getExpectedFalsePositiveRate() {
+        double allReject = 1;
+        for (Segment segment : segments) {
+            if (segment.filter != null) {
+                allReject *= 1 - segment.filter.getExpectedFalsePositiveRate();
+            }
+        }
+        return 1 - allReject;
+    }
+    
+    /**
+     * @return Heap bytes used by the Bloom filters
+     */
+    public long getFilterBytes() {
+        long bytes = 0;
+        for (Segment segment : segments) {
+            bytes += segment.filter == null ? 0 : segment.filter.getMemoryBytes();
+        }
+        return bytes;
+    }
+    
+    /**
+     * Add the numbers accepted by a batch to the index and write the batch delta files.
+     * @param numbers Numbers accepted by the batch, sorted ascending without repeats
+     * @param deltaDirectory Directory the delta files are written to
+     * @return Counts of new, already whitelisted and removed numbers
+     * @throws IOException If the index or delta files cannot be written
+     * @see #update(PrimitiveIterator.OfLong, Path)
+     */
+    Delta update(long[] numbers, Path deltaDirectory) throws IOException {
+        return update(Arrays.stream(numbers).iterator(), deltaDirectory);
+    }
+    
+    /**
+     * Add the numbers accepted by a batch to the index and write the batch delta files.
+     * Numbers the index does not hold yet are written to {@link #NEW_NUMBERS_FILE_NAME} and to a
+     * new segment. Numbers of the previous batch that this batch did not contain are written to
+     * {@link #REMOVED_NUMBERS_FILE_NAME}. Numbers stay in the index once accepted, so the removed
+     * list is a report and does not shrink the index.
+     * The numbers are read once, as a merge join against the segments and the previous batch:
+     * each lookup starts where the one for the previous number ended. The work is proportional to
+     * the two batches, plus the occasional merge of segments.
+     * @param numbers Numbers accepted by the batch, sorted ascending without repeats
+     * @param deltaDirectory Directory the delta files are written to
+     * @return Counts of new, already whitelisted and removed numbers
+     * @throws IOException If the index or delta files cannot be written
+     */
+    public synchronized Delta update(PrimitiveIterator.OfLong numbers, Path deltaDirectory) throws IOException {
+        deleteRetired();
+        List<Cursor> cursors = new ArrayList<>();
+        for (Segment segment : segments) {
+            cursors.add(new Cursor(segment));
+        }
+        Path lastBatchFile = directory.resolve(LAST_BATCH_FILE_NAME);
+        Cursor previous = new Cursor(Files.exists(lastBatchFile) ? Segment.map(lastBatchFile, false) : Segment.EMPTY);
+        char[] digits = new char[FileProcessor.NUMBER_BUFFER_SIZE];
+        long generation = nextGeneration++;
+        Path segmentFile = directory.resolve(segmentFileName(generation));
+        Path segmentTempFile = directory.resolve(segmentFileName(generation) + ".tmp");
+        Path lastBatchTempFile = directory.resolve(LAST_BATCH_FILE_NAME + ".tmp");
+        long added = 0;
+        long existing = 0;
+        long removed = 0;
+        
+        try (DataOutputStream segment = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(segmentTempFile), WRITE_BUFFER_SIZE));
+             DataOutputStream lastBatch = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(lastBatchTempFile), WRITE_BUFFER_SIZE));
+             BufferedWriter newWriter = Files.newBufferedWriter(
+                    deltaDirectory.resolve(NEW_NUMBERS_FILE_NAME), StandardCharsets.UTF_8);
+             BufferedWriter removedWriter = Files.newBufferedWriter(
+                    deltaDirectory.resolve(REMOVED_NUMBERS_FILE_NAME), StandardCharsets.UTF_8)) {
+            while (numbers.hasNext()) {
+                long number = numbers.nextLong();
+                removed += previous.writeUntil(number, removedWriter, digits);
+                if (contains(cursors, number)) {
+                    existing++;
+                } else {
+                    segment.writeLong(number);
+                    FileProcessor.writeNumber(newWriter, digits, number);
+                    newWriter.newLine();
+                    added++;
+                }
+                lastBatch.writeLong(number);
+            }
+            removed += previous.writeUntil(Long.MAX_VALUE, removedWriter, digits);
+        }
+        
+        List<Segment> updated = new ArrayList<>(segments);
+        if (added > 0) {
+            Files.move(segmentTempFile, segmentFile, StandardCopyOption.ATOMIC_MOVE);
+            updated.add(Segment.map(segmentFile, true));
+        } else {
+            Files.delete(segmentTempFile);
+        }
+        List<Path> replaced = new ArrayList<>();
+        segments = Collections.unmodifiableList(mergeSegments(updated, replaced));
+        retired.addAll(replaced);
+        Files.move(lastBatchTempFile, lastBatchFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return new Delta(added, existing, removed, size());
+    }
+    
+    /**
+     * Merge the newest segments while each is at least half the size of the one before it.
+     * The files of the segments that were replaced are not deleted here: lookups may still be reading
+     * the published list, so they are only deleted by the next update.
+     * @param list Segments to merge, oldest first; merged in place
+     * @param replaced Receives the files of the segments that were merged away
+     */
+    private List<Segment> mergeSegments(List<Segment> list, List<Path> replaced) throws IOException {
+        while (list.size() > 1) {
+            Segment newer = list.get(list.size() - 1);
+            Segment older = list.get(list.size() - 2);
+            if (newer.size * MERGE_RATIO < older.size) {
+                break;
+            }
+            
+            long generation = nextGeneration++;
+            Path mergedFile = directory.resolve(segmentFileName(generation));
+            Path tempFile = directory.resolve(segmentFileName(generation) + ".tmp");
+            try (DataOutputStream merged = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(tempFile), WRITE_BUFFER_SIZE))) {
+                // Walk both sorted segments once; a number in both is only left by an interrupted merge
+                long i = 0;
+                long j = 0;
+                while (i < older.size || j < newer.size) {
+                    if (j == newer.size || (i < older.size && older.get(i) < newer.get(j))) {
+                        merged.writeLong(older.get(i++));
+                    } else if (i == older.size || newer.get(j) < older.get(i)) {
+                        merged.writeLong(newer.get(j++));
+                    } else {
+                        merged.writeLong(older.get(i++));
+                        j++;
+                    }
+                }
+            }
+            // The merged copy is in place before the inputs go; a restart before then leaves copies for the next merge
+            Files.move(tempFile, mergedFile, StandardCopyOption.ATOMIC_MOVE);
+            list.remove(list.size() - 1);
+            list.set(list.size() - 1, Segment.map(mergedFile, true));
+            replaced.add(older.file);
+            replaced.add(newer.file);
+        }
+        return list;
+    }
+    
+    /**
+     * Delete the segment files replaced by the previous update. A lookup only holds on to the segment
+     * list for one call, so none reads them anymore; a file that cannot be deleted yet, as on systems
+     * that keep mapped files, is tried again by the next update.
+     */
+    private void deleteRetired() {
+        for (Iterator<Path> files = retired.iterator(); files.hasNext(); ) {
+            Path file = files.next();
+            try {
+                Files.deleteIfExists(file);
+                files.remove();
+            } catch (IOException e) {
+                LOG.warn("Could not delete replaced index segment " + file, e);
+            }
+        }
+    }
+    
+    private static boolean contains(List<Cursor> cursors, long number) {
+        for (Cursor cursor : cursors) {
+            if (cursor.contains(number)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private static String segmentFileName(long generation) {
+        return SEGMENT_PREFIX + generation + SEGMENT_SUFFIX;
+    }
+    
+    /**
+     * @return Generations of the segment files in a directory, oldest first
+     */
+    private static long[] generations(Path directory) throws IOException {
+        List<Long> generations = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    generations.add(Long.parseLong(
+                        name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())));
+                } catch (NumberFormatException e) {
+                    // Not a segment
+                }
+            }
+        }
+        return generations.stream().mapToLong(Long::longValue).sorted().toArray();
+    }
+    
+    /**
+     * Sort numbers and drop repeats, as {@link #update(long[], Path)} expects
+     * @param numbers Numbers to sort in place
+     * @param count Number of entries of the array in use
+     * @return A sorted array without repeats
+     */
+    static long[] sortedUnique(long[] numbers, int count) {
+        Arrays.sort(numbers, 0, count);
+        int unique = 0;
+        for (int i = 0; i < count; i++) {
+            if (unique == 0 || numbers[i] != numbers[unique - 1]) {
+                numbers[unique++] = numbers[i];
+            }
+        }
+        return Arrays.copyOf(numbers, unique);
+    }
+    
+    /**
+     * Read-only mapping of one file of sorted numbers, with its Bloom filter
+     */
+    private static final class Segment {
+        static final Segment EMPTY = new Segment(null, new LongBuffer[0], 0, false);
+        
+        private final Path file;
+        private final LongBuffer[] mappings;
+        private final long size;
+        private final BloomFilter filter;
+        
+        private Segment(Path file, LongBuffer[] mappings, long size, boolean withFilter) {
+            this.file = file;
+            this.mappings = mappings;
+            this.size = size;
+            this.filter = withFilter && BLOOM_FPP > 0 ? buildFilter() : null;
+        }
+        
+        static Segment map(Path file, boolean withFilter) throws IOException {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                long size = channel.size() / Long.BYTES;
+                int mappingCount = (int) ((size + MAPPING_MASK) >>> MAPPING_SHIFT);
+                LongBuffer[] mappings = new LongBuffer[mappingCount];
+                for (int m = 0; m < mappingCount; m++) {
+                    long first = (long) m << MAPPING_SHIFT;
+                    long length = Math.min(size - first, 1L << MAPPING_SHIFT);
+                    mappings[m] = channel.map(FileChannel.MapMode.READ_ONLY, first * Long.BYTES, length * Long.BYTES)
+                        .asLongBuffer();
+                }
+                // The mappings stay valid after the channel is closed
+                return new Segment(file, mappings, size, withFilter);
+            }
+        }
+        
+        private BloomFilter buildFilter() {
+            // One sequential pass over the mapped file
+            BloomFilter bloom = new BloomFilter(size, BLOOM_FPP);
+            for (LongBuffer mapping : mappings) {
+                for (int i = 0, n = mapping.limit(); i < n; i++) {
+                    bloom.add(mapping.get(i));
+                }
+            }
+            return bloom;
+        }
+        
+        long get(long position) {
+            return mappings[(int) (position >>> MAPPING_SHIFT)].get((int) (position & MAPPING_MASK));
+        }
+        
+        boolean contains(long number) {
+            long low = 0;
+            long high = size - 1;
+            while (low <= high) {
+                long mid = (low + high) >>> 1;
+                long value = get(mid);
+                if (value < number) {
+                    low = mid + 1;
+                } else if (value > number) {
+                    high = mid - 1;
+                } else {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+    
+    /**
+     * Position in a segment for lookups of ascending numbers; each search gallops forward from
+     * where the previous one ended, so a batch is joined against the segment without reading all of it
+     */
+    private static final class Cursor {
+        private final Segment segment;
+        private long position;
+        
+        Cursor(Segment segment) {
+            this.segment = segment;
+        }
+        
+        /**
+         * @param number At least the number of the previous call
+         */
+        boolean contains(long number) {
+            if (segment.filter != null && !segment.filter.mightContain(number)) {
+                return false;
+            }
+            
+            // Every entry before low is smaller than the number
+            long low = position;
+            long high = low;
+            long step = 1;
+            while (high < segment.size && segment.get(high) < number) {
+                low = high + 1;
+                high = low + step;
+                step <<= 1;
+            }
+            high = Math.min(high, segment.size - 1);
+            while (low <= high) {
+                long mid = (low + high) >>> 1;
+                long value = segment.get(mid);
+                if (value < number) {
+                    low = mid + 1;
+                } else if (value > number) {
+                    high = mid - 1;
+                } else {
+                    position = mid;
+                    return true;
+                }
+            }
+            position = low;
+            return false;
+        }
+        
+        /**
+         * Write the entries smaller than a number and skip the number itself
+         * @return Number of entries written
+         */
+        long writeUntil(long number, BufferedWriter writer, char[] digits) throws IOException {
+            long written = 0;
+            while (position < segment.size && segment.get(position) < number) {
+                FileProcessor.writeNumber(writer, digits, segment.get(position++));
+                writer.newLine();
+                written++;
+            }
+            if (position < segment.size && segment.get(position) == number) {
+                position++;
+            }
+            return written;
+        }
+    }
+    
+    /**
+     * Class representing how a batch changed the whitelist
+     */
+    public static class Delta {
+        private final long newNumbers;
+        private final long alreadyWhitelisted;
+        private final long removedNumbers;
+        private final long indexSize;
+        
+        public Delta(long newNumbers, long alreadyWhitelisted, long removedNumbers, long indexSize) {
+            this.newNumbers = newNumbers;
+            this.alreadyWhitelisted = alreadyWhitelisted;
+            this.removedNumbers = removedNumbers;
+            this.indexSize = indexSize;
+        }
+        
+        public long getNewNumbers() {
+            return newNumbers;
+        }
+        
+        public long getAlreadyWhitelisted() {
+            return alreadyWhitelisted;
+        }
+        
+        public long getRemovedNumbers() {
+            return removedNumbers;
+        }
+        
+        public long getIndexSize() {
+            return indexSize;
+        }
+    }
+}
\ No newline at end of file
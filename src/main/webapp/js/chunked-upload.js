@@ -0,0 +1,92 @@
+// src/main/webapp/js/chunked-upload.js
+// Sends a large file in chunks; after a failed chunk it asks the server how much
+// arrived and resends from there.
+(function () {
+    var CHUNK_SIZE = 4 * 1024 * 1024;
+    var MAX_RETRIES = 5;
+    var form = document.getElementById('chunkedUploadForm');
+    if (!form) {
+        return;
+    }
+    
+    var progressBar = document.getElementById('chunkedUploadProgress');
+    var message = document.getElementById('chunkedUploadMessage');
+    
+    function query(params) {
+        return '?' + Object.keys(params).map(function (key) {
+            return encodeURIComponent(key) + '=' + encodeURIComponent(params[key]);
+        }).join('&');
+    }
+    
+    function readJson(response) {
+        return response.json().then(function (body) {
+            if (!response.ok && response.status !== 409) {
+                throw new Error(body.error || ('HTTP ' + response.status));
+            }
+            return body;
+        });
+    }
+    
+    function showProgress(offset, size) {
+        var percent = size === 0 ? 100 : Math.floor(offset * 100 / size);
+        progressBar.style.width = percent + '%';
+        progressBar.textContent = percent + '%';
+    }
+    
+    function sendFrom(file, upload, offset, retries) {
+        var end = Math.min(offset + CHUNK_SIZE, file.size);
+        var params = { uploadId: upload.uploadId, offset: offset, last: end === file.size };
+        return fetch(form.dataset.chunkUrl + query(params), {
+            method: 'POST',
+            headers: { 'Content-Type': 'application/octet-stream' },
+            body: file.slice(offset, end)
+        })
+            .then(readJson)
+            .then(function (status) {
+                showProgress(status.offset, file.size);
+                if (status.complete) {
+                    return upload;
+                }
+                // The server reports where the next chunk starts, even after a conflict
+                return sendFrom(file, upload, status.offset, 0);
+            })
+            .catch(function (error) {
+                if (retries >= MAX_RETRIES) {
+                    throw error;
+                }
+                message.textContent = 'Connection problem, resuming...';
+                return new Promise(function (resolve) { setTimeout(resolve, 1000 * (retries + 1)); })
+                    .then(function () {
+                        return fetch(form.dataset.statusUrl + query({ uploadId: upload.uploadId })).then(readJson);
+                    })
+                    .then(function (status) {
+                        message.textContent = '';
+                        return sendFrom(file, upload, status.offset, retries + 1);
+                    }, function () {
+                        return sendFrom(file, upload, offset, retries + 1);
+                    });
+            });
+    }
+    
+    form.addEventListener('submit', function (event) {
+        event.preventDefault();
+        var file = document.getElementById('largeFile').files[0];
+        if (!file) {
+            message.textContent = 'Choose a file first.';
+            return;
+        }
+        
+        var params = { fileName: file.name, batchName: document.getElementById('largeBatchName').value };
+        message.textContent = '';
+        showProgress(0, file.size);
+        fetch(form.dataset.startUrl + query(params), { method: 'POST' })
+            .then(readJson)
+            .then(function (upload) { return sendFrom(file, upload, 0, 0); })
+            .then(function (upload) {
+                window.location.href = form.dataset.completeUrl + query({ jobId: upload.jobId });
+            })
+            .catch(function (error) {
+                message.textContent = 'Upload failed: ' + error.message;
+            });
+    });
+})();
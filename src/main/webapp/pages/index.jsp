@@ -55,13 +55,72 @@
                         </small>
                     </div>
                     
+                    <div class="form-group">
+                        <label>Additional Output Formats:</label>
+                        <div class="form-check">
+                            <input type="checkbox" name="outputFormats" value="VALID_LIST" class="form-check-input" id="formatValidList"/>
+                            <label class="form-check-label" for="formatValidList">Valid numbers only (.txt)</label>
+                        </div>
+                        <div class="form-check">
+                            <input type="checkbox" name="outputFormats" value="CSV" class="form-check-input" id="formatCsv"/>
+                            <label class="form-check-label" for="formatCsv">CSV with reason codes (.csv)</label>
+                        </div>
+                        <div class="form-check">
+                            <input type="checkbox" name="outputFormats" value="BINARY" class="form-check-input" id="formatBinary"/>
+                            <label class="form-check-label" for="formatBinary">Binary packed numbers (.bin)</label>
+                        </div>
+                    </div>
+                    
+                    <div class="form-group">
+                        <div class="form-check">
+                            <input type="checkbox" name="crossFileDedup" value="true" class="form-check-input" id="crossFileDedup"/>
+                            <label class="form-check-label" for="crossFileDedup">Remove numbers already in an earlier file of this batch</label>
+                        </div>
+                    </div>
+                    
                     <div class="form-group">
                         <s:submit value="Upload and Process" cssClass="btn btn-primary"/>
+                        <s:submit value="Process in Background" action="uploadWhitelistAsync" cssClass="btn btn-outline-primary"/>
                     </div>
                 </s:form>
             </div>
         </div>
         
+        <!-- Large files are sent in resumable chunks and processed while they upload -->
+        <s:url var="startChunkedUrl" action="startChunkedUpload" />
+        <s:url var="uploadChunkUrl" action="uploadChunk" />
+        <s:url var="chunkedStatusUrl" action="chunkedUploadStatus" />
+        <s:url var="processingCompleteUrl" action="processingComplete" />
+        <div class="card mt-4">
+            <div class="card-header bg-secondary text-white">
+                <h4>Upload a Large File</h4>
+            </div>
+            <div class="card-body">
+                <form id="chunkedUploadForm" class="upload-form"
+                      data-start-url="<s:property value="#startChunkedUrl"/>"
+                      data-chunk-url="<s:property value="#uploadChunkUrl"/>"
+                      data-status-url="<s:property value="#chunkedStatusUrl"/>"
+                      data-complete-url="<s:property value="#processingCompleteUrl"/>">
+                    <div class="form-group">
+                        <label for="largeBatchName">Batch Name (optional):</label>
+                        <input type="text" id="largeBatchName" class="form-control" placeholder="Enter a name for this batch"/>
+                    </div>
+                    <div class="form-group">
+                        <label for="largeFile">Select Whitelist File:</label>
+                        <input type="file" id="largeFile" class="form-control-file" accept=".txt"/>
+                        <small class="form-text text-muted">
+                            For .txt files of any size. The upload resumes after a dropped connection.
+                        </small>
+                    </div>
+                    <div class="progress mb-3">
+                        <div id="chunkedUploadProgress" class="progress-bar" role="progressbar">0%</div>
+                    </div>
+                    <div id="chunkedUploadMessage" class="text-danger mb-2"></div>
+                    <button type="submit" class="btn btn-secondary">Upload and Process</button>
+                </form>
+            </div>
+        </div>
+        
         <div class="card mt-4">
             <div class="card-header bg-info text-white">
                 <h4>Instructions</h4>
@@ -90,6 +149,7 @@
     <script src="https://code.jquery.com/jquery-3.5.1.slim.min.js"></script>
     <script src="https://cdn.jsdelivr.net/npm/popper.js@1.16.1/dist/umd/popper.min.js"></script>
     <script src="https://stackpath.bootstrapcdn.com/bootstrap/4.5.2/js/bootstrap.min.js"></script>
+    <script src="<s:url value="/js/chunked-upload.js"/>"></script>
     <script>
         // Update file input label with selected file names
         $('.custom-file-input').on('change', function() {
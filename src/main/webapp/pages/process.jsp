@@ -36,12 +36,46 @@
                     <p>This may take a few moments depending on the file size and number of records.</p>
                 </div>
                 
-                <!-- Auto-redirect to results page after processing -->
+                <!-- Progress counters, updated while the job runs -->
+                <table class="table table-sm">
+                    <tbody>
+                        <tr><th>Files completed</th><td><span id="filesCompleted">0</span> / <span id="fileCount">-</span></td></tr>
+                        <tr><th>Records processed</th><td id="recordsProcessed">0</td></tr>
+                        <tr><th>Valid</th><td id="validRecords">0</td></tr>
+                        <tr><th>Invalid</th><td id="invalidRecords">0</td></tr>
+                        <tr><th>Duplicates</th><td id="duplicateRecords">0</td></tr>
+                    </tbody>
+                </table>
+                
+                <!-- Poll the job status and show the results page once processing is done -->
+                <s:url var="statusUrl" action="jobStatus" escapeAmp="false">
+                    <s:param name="jobId" value="jobId" />
+                </s:url>
+                <s:url var="completeUrl" action="processingComplete" escapeAmp="false">
+                    <s:param name="jobId" value="jobId" />
+                </s:url>
                 <script>
-                    // Redirect to results page after a short delay
-                    setTimeout(function() {
-                        window.location.href = '<s:url action="processingComplete"/>';
-                    }, 3000);
+                    var fields = ['fileCount', 'filesCompleted', 'recordsProcessed', 'validRecords', 'invalidRecords', 'duplicateRecords'];
+                    
+                    function pollStatus() {
+                        fetch('<s:property value="#statusUrl" escapeJavaScript="true"/>')
+                            .then(function(response) { return response.json(); })
+                            .then(function(status) {
+                                fields.forEach(function(field) {
+                                    if (status[field] !== undefined) {
+                                        document.getElementById(field).textContent = status[field];
+                                    }
+                                });
+                                if (status.finished || status.error) {
+                                    window.location.href = '<s:property value="#completeUrl" escapeJavaScript="true"/>';
+                                } else {
+                                    setTimeout(pollStatus, 1000);
+                                }
+                            })
+                            .catch(function() { setTimeout(pollStatus, 3000); });
+                    }
+                    
+                    pollStatus();
                 </script>
             </div>
         </div>
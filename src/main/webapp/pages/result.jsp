@@ -43,6 +43,8 @@
                                 <th>Valid</th>
                                 <th>Invalid</th>
                                 <th>Duplicates</th>
+                                <th>New</th>
+                                <th>Already Whitelisted</th>
                                 <th>Actions</th>
                             </tr>
                         </thead>
@@ -51,25 +53,52 @@
                                 <tr>
                                     <td><s:property value="fileName" /></td>
                                     <s:if test="error">
-                                        <td colspan="4" class="text-danger">
+                                        <td colspan="6" class="text-danger">
                                             Error: <s:property value="errorMessage" />
                                         </td>
                                     </s:if>
                                     <s:else>
                                         <td><s:property value="totalRecords" /></td>
                                         <td><s:property value="validRecords" /></td>
-                                        <td><s:property value="invalidRecords" /></td>
-                                        <td><s:property value="duplicateRecords" /></td>
+                                        <td>
+                                            <s:property value="invalidRecords" />
+                                            <s:if test="!rejectedByReason.isEmpty()">
+                                                <ul class="list-unstyled small text-muted mb-0">
+                                                    <s:iterator value="rejectedByReason">
+                                                        <li><s:property value="key.label" />: <s:property value="value" /></li>
+                                                    </s:iterator>
+                                                </ul>
+                                            </s:if>
+                                        </td>
+                                        <td>
+                                            <s:property value="duplicateRecords" />
+                                            <s:if test="crossFileDuplicateRecords > 0">
+                                                <div class="small text-muted">
+                                                    <s:property value="crossFileDuplicateRecords" /> from earlier files
+                                                </div>
+                                            </s:if>
+                                        </td>
+                                        <td><s:property value="newRecords" /></td>
+                                        <td><s:property value="whitelistedRecords" /></td>
                                     </s:else>
                                     <td>
                                         <s:if test="!error">
                                             <s:url var="downloadUrl" action="downloadProcessed">
-                                                <s:param name="batchDir" value="batchDirectory" />
+                                                <s:param name="batchDir" value="batchDirName" />
                                                 <s:param name="fileName" value="outputFileName" />
                                             </s:url>
                                             <s:a href="%{downloadUrl}" cssClass="btn btn-sm btn-success">
                                                 Download
                                             </s:a>
+                                            <s:iterator value="formatFileNames" var="formatFileName">
+                                                <s:url var="formatUrl" action="downloadProcessed">
+                                                    <s:param name="batchDir" value="batchDirName" />
+                                                    <s:param name="fileName" value="#formatFileName" />
+                                                </s:url>
+                                                <s:a href="%{formatUrl}" cssClass="btn btn-sm btn-outline-success">
+                                                    <s:property value="#formatFileName" />
+                                                </s:a>
+                                            </s:iterator>
                                         </s:if>
                                     </td>
                                 </tr>
@@ -80,12 +109,34 @@
                     <!-- Download summary link -->
                     <div class="mt-3">
                         <s:url var="summaryUrl" action="downloadProcessed">
-                            <s:param name="batchDir" value="batchDirectory" />
+                            <s:param name="batchDir" value="batchDirName" />
                             <s:param name="fileName" value="'_processing_summary.txt'" />
                         </s:url>
                         <s:a href="%{summaryUrl}" cssClass="btn btn-info">
                             Download Complete Summary
                         </s:a>
+                        <s:url var="archiveUrl" action="downloadBatch">
+                            <s:param name="batchDir" value="batchDirName" />
+                        </s:url>
+                        <s:a href="%{archiveUrl}" cssClass="btn btn-info">
+                            Download All (ZIP)
+                        </s:a>
+                        <s:if test="indexEnabled">
+                            <s:url var="newNumbersUrl" action="downloadProcessed">
+                                <s:param name="batchDir" value="batchDirName" />
+                                <s:param name="fileName" value="'_delta_new.txt'" />
+                            </s:url>
+                            <s:a href="%{newNumbersUrl}" cssClass="btn btn-outline-info">
+                                Download New Numbers
+                            </s:a>
+                            <s:url var="removedNumbersUrl" action="downloadProcessed">
+                                <s:param name="batchDir" value="batchDirName" />
+                                <s:param name="fileName" value="'_delta_removed.txt'" />
+                            </s:url>
+                            <s:a href="%{removedNumbersUrl}" cssClass="btn btn-outline-info">
+                                Download Removed Numbers
+                            </s:a>
+                        </s:if>
                     </div>
                 </s:if>
                 <s:else>
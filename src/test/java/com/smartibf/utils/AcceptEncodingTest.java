@@ -0,0 +1,34 @@
+// src/test/java/com/smartibf/utils/AcceptEncodingTest.java
+package com.smartibf.utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class AcceptEncodingTest {
+    
+    @Test
+    public void testAccepted() {
+        assertTrue(AcceptEncoding.acceptsGzip("gzip"));
+        assertTrue(AcceptEncoding.acceptsGzip("gzip, deflate, br"));
+        assertTrue(AcceptEncoding.acceptsGzip("br;q=1.0, GZIP;q=0.5"));
+        assertTrue(AcceptEncoding.acceptsGzip("x-gzip"));
+        assertTrue(AcceptEncoding.acceptsGzip("*"));
+        assertTrue(AcceptEncoding.acceptsGzip("identity, *;q=0.1"));
+    }
+    
+    @Test
+    public void testRefused() {
+        assertFalse(AcceptEncoding.acceptsGzip(null));
+        assertFalse(AcceptEncoding.acceptsGzip(""));
+        assertFalse(AcceptEncoding.acceptsGzip("identity"));
+        assertFalse(AcceptEncoding.acceptsGzip("gzip;q=0"));
+        assertFalse(AcceptEncoding.acceptsGzip("gzip; q=0.000, deflate"));
+        assertFalse(AcceptEncoding.acceptsGzip("x-gzip-foo"));
+        assertFalse(AcceptEncoding.acceptsGzip("notgzip"));
+        assertFalse(AcceptEncoding.acceptsGzip("*;q=0"));
+        assertFalse(AcceptEncoding.acceptsGzip("gzip;q=abc"));
+        // An explicit refusal wins over the wildcard
+        assertFalse(AcceptEncoding.acceptsGzip("*, gzip;q=0"));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,55 @@
+// src/test/java/com/smartibf/utils/BatchArchiveTest.java
+package com.smartibf.utils;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.Assert.*;
+
+public class BatchArchiveTest {
+    
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+    
+    @Test
+    public void testArchiveRoundTrip() throws IOException {
+        BatchStorage storage = new BatchStorage(tempFolder.getRoot().toPath(), 0, 0, 0);
+        Path directory = storage.create("batch_1");
+        Files.write(directory.resolve("a_cleaned.txt"), "639123456789\n".getBytes(StandardCharsets.UTF_8));
+        Files.write(directory.resolve(".a_cleaned.txt.idx"), "index".getBytes(StandardCharsets.UTF_8));
+        // Only kept gzipped, as in a compressed batch
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(directory.resolve("b_cleaned.txt.gz")))) {
+            out.write("639987654321\n".getBytes(StandardCharsets.UTF_8));
+        }
+        storage.complete("batch_1");
+        
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        BatchArchive.write(storage.getBatch("batch_1"), archive);
+        
+        Map<String, String> entries = new LinkedHashMap<>();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(archive.toByteArray()))) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                entries.put(entry.getName(), new String(zip.readAllBytes(), StandardCharsets.UTF_8));
+            }
+        }
+        Map<String, String> expected = new LinkedHashMap<>();
+        expected.put("a_cleaned.txt", "639123456789\n");
+        expected.put("b_cleaned.txt", "639987654321\n");
+        assertEquals(expected, entries);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,86 @@
+// src/test/java/com/smartibf/utils/BatchDedupTest.java
+package com.smartibf.utils;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.LongPredicate;
+
+import static org.junit.Assert.*;
+
+public class BatchDedupTest {
+    
+    @Test
+    public void testEarliestFileOwnsNumber() throws Exception {
+        BatchDedup dedup = new BatchDedup(16, false);
+        
+        // Later files claim first, in parallel
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> claims = new ArrayList<>();
+            for (int file = 3; file >= 0; file--) {
+                int fileIndex = file;
+                claims.add(executor.submit(() -> {
+                    for (int i = 0; i < 20000; i++) {
+                        dedup.claim(639000000000L + i, fileIndex);
+                    }
+                    dedup.claim(0L, fileIndex);
+                }));
+            }
+            for (Future<?> claim : claims) {
+                claim.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        
+        assertEquals(20001, dedup.size());
+        assertEquals(0, dedup.owner(639000012345L));
+        assertEquals(0, dedup.owner(0L));
+        assertEquals(LongHashSet.ABSENT, dedup.owner(639999999999L));
+        assertFalse(dedup.inEarlierFile(0).test(639000012345L));
+        assertTrue(dedup.inEarlierFile(2).test(639000012345L));
+    }
+    
+    @Test
+    public void testLaterFileReportsCrossFileDuplicates() throws IOException {
+        FileProcessor processor = new FileProcessor();
+        Path first = Files.createTempFile("batch_first_", ".txt");
+        Path second = Files.createTempFile("batch_second_", ".txt");
+        Path output = Files.createTempFile("batch_output_", ".txt");
+        try {
+            Files.write(first, "639123456789\n639555666777\n".getBytes(StandardCharsets.UTF_8));
+            Files.write(second, "09123456789\n639999000111\n639123456789\n".getBytes(StandardCharsets.UTF_8));
+            
+            BatchDedup dedup = new BatchDedup(16, false);
+            processor.forEachValidNumber(second.toFile(), "second.txt", number -> dedup.claim(number, 1));
+            processor.forEachValidNumber(first.toFile(), "first.txt", number -> dedup.claim(number, 0));
+            
+            LongPredicate inEarlierFile = dedup.inEarlierFile(1);
+            FileProcessor.StreamSummary summary = processor.processUploadedFile(
+                second.toFile(), "second.txt", output.toString(), null, Collections.emptyList(), inEarlierFile);
+            
+            assertEquals(3, summary.getTotalRecords());
+            assertEquals(1, summary.getValidCount());
+            assertEquals(2, summary.getDuplicates());
+            assertEquals(1, summary.getCrossFileDuplicates());
+            assertEquals(Integer.valueOf(1), summary.getRejectedByReason().get(InvalidReason.DUPLICATE_IN_BATCH));
+            
+            String content = new String(Files.readAllBytes(output), StandardCharsets.UTF_8);
+            assertTrue(content.contains("09123456789 # Duplicate in an earlier file of 639123456789"));
+        } finally {
+            Files.deleteIfExists(first);
+            Files.deleteIfExists(second);
+            Files.deleteIfExists(output);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,63 @@
+// src/test/java/com/smartibf/utils/BatchManifestTest.java
+package com.smartibf.utils;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class BatchManifestTest {
+    
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+    
+    @Test
+    public void testLinePerFile() throws Exception {
+        Path batchDir = tempFolder.newFolder("batch").toPath();
+        File first = tempFolder.newFile("first.txt");
+        Files.write(first.toPath(), "639123456789\n639123456789\nabc\n".getBytes(StandardCharsets.UTF_8));
+        File missing = new File(tempFolder.getRoot(), "missing.txt");
+        
+        BatchProcessor processor = new BatchProcessor(new FileProcessor());
+        List<ProcessingSummary> summaries = processor.process(batchDir.toString(), "batch", Arrays.asList(first, missing),
+                                                              Arrays.asList("first.txt", "missing.txt"),
+                                                              new ProcessingProgress());
+        
+        List<String> lines = Files.readAllLines(batchDir.resolve(BatchManifest.FILE_NAME), StandardCharsets.UTF_8);
+        assertEquals(4, lines.size());
+        assertTrue(lines.get(0).startsWith("{\"type\":\"batch\",\"version\":1,\"batch\":\"batch\""));
+        assertTrue(lines.get(3).startsWith("{\"type\":\"complete\""));
+        assertTrue(lines.get(3).endsWith(",\"failedFiles\":1}"));
+        
+        // File lines arrive in completion order
+        String ok = lines.get(1).contains("\"fileIndex\":0") ? lines.get(1) : lines.get(2);
+        String failed = ok.equals(lines.get(1)) ? lines.get(2) : lines.get(1);
+        assertTrue(failed.contains("\"fileIndex\":1,\"fileName\":\"missing.txt\""));
+        assertTrue(failed.contains("\"status\":\"error\""));
+        
+        assertTrue(ok.contains("\"status\":\"ok\""));
+        assertTrue(ok.contains("\"totalRecords\":3,\"validRecords\":1,\"invalidRecords\":1,\"duplicateRecords\":1"));
+        assertTrue(ok.contains("\"rejectedByReason\":{\"DUPLICATE\":1,\"ALPHABETIC\":1}")
+                   || ok.contains("\"rejectedByReason\":{\"ALPHABETIC\":1,\"DUPLICATE\":1}"));
+        assertTrue(ok.contains("\"inputBytes\":30"));
+        
+        Path output = batchDir.resolve(summaries.get(0).getOutputFileName());
+        assertTrue(ok.contains("\"outputBytes\":" + Files.size(output)));
+        assertTrue(ok.contains("\"sha256\":{\"first_cleaned.txt\":\"" + BatchManifest.sha256(output) + "\"}"));
+    }
+    
+    @Test
+    public void testSha256() throws Exception {
+        Path file = tempFolder.newFile("abc.txt").toPath();
+        Files.write(file, "abc".getBytes(StandardCharsets.UTF_8));
+        assertEquals("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad", BatchManifest.sha256(file));
+    }
+}
\ No newline at end of file
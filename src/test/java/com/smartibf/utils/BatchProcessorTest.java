@@ -0,0 +1,141 @@
+// src/test/java/com/smartibf/utils/BatchProcessorTest.java
+package com.smartibf.utils;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class BatchProcessorTest {
+    
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+    
+    @Test
+    public void testFailingFileDoesNotStopTheOthers() throws IOException {
+        List<File> files = new ArrayList<>();
+        List<String> fileNames = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            fileNames.add("file" + i + ".txt");
+            files.add(i == 3 ? new File(tempFolder.getRoot(), "missing.txt")
+                          : write(fileNames.get(i), ("63911111111" + i + "\n").getBytes(StandardCharsets.UTF_8)));
+        }
+        Path batchDirectory = tempFolder.newFolder("batch").toPath();
+        ProcessingProgress progress = new ProcessingProgress();
+        
+        List<ProcessingSummary> summaries = new BatchProcessor(new FileProcessor()).process(
+            batchDirectory.toString(), "batch", files, fileNames, progress);
+        
+        // One summary per file, in upload order, whatever order the files finished in
+        assertEquals(6, summaries.size());
+        for (int i = 0; i < 6; i++) {
+            ProcessingSummary summary = summaries.get(i);
+            assertEquals(fileNames.get(i), summary.getFileName());
+            assertEquals(i == 3, summary.isError());
+            if (i != 3) {
+                assertEquals(1, summary.getValidRecords());
+                assertTrue(Files.readAllLines(batchDirectory.resolve(summary.getOutputFileName()))
+                               .contains("63911111111" + i));
+            }
+        }
+        assertEquals(6, progress.getFilesCompleted());
+        assertEquals(5, progress.getValidRecords());
+    }
+    
+    @Test
+    public void testNumbersOfFileFailingMidwayAreKeptByLaterFile() throws IOException {
+        // The invalid UTF-8 line fails the first file after its first number has been read
+        File first = write("first.txt", "639111111111\n".getBytes(StandardCharsets.UTF_8), new byte[]{(byte) 0xFF, '\n'},
+                           "639222222222\n".getBytes(StandardCharsets.UTF_8));
+        File second = write("second.txt", "639111111111\n639222222222\n".getBytes(StandardCharsets.UTF_8));
+        
+        List<ProcessingSummary> summaries = process(Arrays.asList(first, second), Arrays.asList("first.txt", "second.txt"));
+        
+        assertTrue(summaries.get(0).isError());
+        assertFalse(summaries.get(1).isError());
+        assertEquals(2, summaries.get(1).getValidRecords());
+        assertEquals(0, summaries.get(1).getCrossFileDuplicateRecords());
+    }
+    
+    @Test
+    public void testLaterFileIsProcessedAgainWhenOwnerFailsToWrite() throws IOException {
+        File first = write("first.txt", "639111111111\n639222222222\n".getBytes(StandardCharsets.UTF_8));
+        File second = write("second.txt", "639111111111\n639333333333\n".getBytes(StandardCharsets.UTF_8));
+        File third = write("third.txt", "639222222222\n639333333333\n".getBytes(StandardCharsets.UTF_8));
+        // The first file reads fine, but its output cannot be created
+        Path batchDirectory = tempFolder.newFolder("batch").toPath();
+        Files.createDirectory(batchDirectory.resolve("first_cleaned.txt"));
+        long filesBefore = ProcessingMetrics.FILES_PROCESSED.get();
+        long validBefore = ProcessingMetrics.VALID_RECORDS.get();
+        
+        List<ProcessingSummary> summaries = process(batchDirectory, Arrays.asList(first, second, third),
+                                                    Arrays.asList("first.txt", "second.txt", "third.txt"));
+        
+        assertTrue(summaries.get(0).isError());
+        assertEquals(2, summaries.get(1).getValidRecords());
+        assertEquals(0, summaries.get(1).getCrossFileDuplicateRecords());
+        // 639333333333 is still kept by the second file only
+        assertEquals(1, summaries.get(2).getValidRecords());
+        assertEquals(1, summaries.get(2).getCrossFileDuplicateRecords());
+        String secondOutput = new String(Files.readAllBytes(batchDirectory.resolve("second_cleaned.txt")),
+                                         StandardCharsets.UTF_8);
+        assertFalse(secondOutput.contains("Duplicate in an earlier file"));
+        // Files processed again are only counted once
+        assertEquals(2, ProcessingMetrics.FILES_PROCESSED.get() - filesBefore);
+        assertEquals(3, ProcessingMetrics.VALID_RECORDS.get() - validBefore);
+    }
+    
+    @Test
+    public void testAcceptedNumbersAreMergedIntoIndex() throws IOException {
+        WhitelistIndex index = WhitelistIndex.open(tempFolder.newFolder("index").toPath());
+        index.update(new long[] {639111111111L}, tempFolder.newFolder("earlier").toPath());
+        File first = write("first.txt", "639111111111\n639333333333\n".getBytes(StandardCharsets.UTF_8));
+        File second = write("second.txt", "639222222222\n639333333333\n".getBytes(StandardCharsets.UTF_8));
+        Path batchDirectory = tempFolder.newFolder("batch").toPath();
+        
+        List<ProcessingSummary> summaries = new BatchProcessor(new FileProcessor()).process(
+            batchDirectory.toString(), "batch", Arrays.asList(first, second), Arrays.asList("first.txt", "second.txt"),
+            new ProcessingProgress(), index);
+        
+        assertEquals(1, summaries.get(0).getWhitelistedRecords());
+        assertEquals(1, summaries.get(0).getNewRecords());
+        assertEquals(2, summaries.get(1).getNewRecords());
+        assertEquals(Arrays.asList("639222222222", "639333333333"),
+                     Files.readAllLines(batchDirectory.resolve(WhitelistIndex.NEW_NUMBERS_FILE_NAME)));
+        assertEquals(3, index.size());
+        // The spilled numbers are gone once the index is updated
+        assertFalse(Files.exists(batchDirectory.resolve(".spill")));
+    }
+    
+    private List<ProcessingSummary> process(List<File> files, List<String> fileNames) throws IOException {
+        return process(tempFolder.newFolder("batch").toPath(), files, fileNames);
+    }
+    
+    private List<ProcessingSummary> process(Path batchDirectory, List<File> files,
+                                            List<String> fileNames) throws IOException {
+        BatchProcessor processor = new BatchProcessor(new FileProcessor());
+        processor.setCrossFileDedup(true);
+        return processor.process(batchDirectory.toString(), "batch", files, fileNames, new ProcessingProgress());
+    }
+    
+    private File write(String name, byte[]... parts) throws IOException {
+        File file = tempFolder.newFile(name);
+        try (OutputStream out = Files.newOutputStream(file.toPath())) {
+            for (byte[] part : parts) {
+                out.write(part);
+            }
+        }
+        return file;
+    }
+}
\ No newline at end of file
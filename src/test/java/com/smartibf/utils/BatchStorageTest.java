@@ -0,0 +1,231 @@
+// src/test/java/com/smartibf/utils/BatchStorageTest.java
+package com.smartibf.utils;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.*;
+
+public class BatchStorageTest {
+    
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+    
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+    
+    @Test
+    public void testFilesAreIndexed() throws IOException {
+        Path root = tempFolder.getRoot().toPath();
+        BatchStorage storage = new BatchStorage(root, 0, 0, 0);
+        Path directory = storage.create("batch_1");
+        write(directory.resolve("a_cleaned.txt"), "639123456789\n", 0);
+        write(directory.resolve("a_cleaned.txt.gz"), "compressed", 0);
+        write(directory.resolve(".a_cleaned.txt.idx"), "index", 0);
+        Files.createDirectories(root.resolve(".index"));
+        
+        // Files are only listed once the batch completes
+        assertNull(storage.find("batch_1", "a_cleaned.txt"));
+        storage.complete("batch_1");
+        
+        BatchStorage.StoredFile file = storage.find("batch_1", "a_cleaned.txt");
+        assertEquals(directory.resolve("a_cleaned.txt"), file.getPath());
+        assertEquals(13, file.getLength());
+        assertEquals(directory.resolve("a_cleaned.txt.gz"), file.getGzipPath());
+        assertEquals(1, storage.getBatch("batch_1").getFiles().size());
+        assertNull(storage.find("batch_1", ".a_cleaned.txt.idx"));
+        assertNull(storage.find("batch_1", "../batch_1/a_cleaned.txt"));
+        assertEquals(28, storage.getStoredBytes());
+        
+        // A restarted storage finds the same batches, and never the hidden index directory
+        BatchStorage reopened = new BatchStorage(root, 0, 0, 0);
+        assertEquals(1, reopened.list().size());
+        assertNotNull(reopened.find("batch_1", "a_cleaned.txt"));
+    }
+    
+    @Test
+    public void testNewBatchName() {
+        assertTrue(BatchStorage.newBatchName(null).matches("batch_\\d{8}_\\d{6}"));
+        assertTrue(BatchStorage.newBatchName("  ").matches("batch_\\d{8}_\\d{6}"));
+        assertTrue(BatchStorage.newBatchName(" march ").matches("march_\\d{8}_\\d{6}"));
+    }
+    
+    @Test
+    public void testTakenNameGetsASuffix() throws IOException {
+        BatchStorage storage = new BatchStorage(tempFolder.getRoot().toPath(), 0, 0, 0);
+        Path first = storage.create("march_20240301_101500");
+        Path second = storage.create("march_20240301_101500");
+        Path third = storage.create("march_20240301_101500");
+        
+        assertEquals("march_20240301_101500", first.getFileName().toString());
+        assertEquals("march_20240301_101500_2", second.getFileName().toString());
+        assertEquals("march_20240301_101500_3", third.getFileName().toString());
+        assertNotNull(storage.getBatch("march_20240301_101500_2"));
+        assertTrue(Files.isDirectory(third));
+    }
+    
+    @Test(expected = IOException.class)
+    public void testBatchNameStaysUnderRoot() throws IOException {
+        new BatchStorage(tempFolder.getRoot().toPath(), 0, 0, 0).create("../outside");
+    }
+    
+    @Test
+    public void testRetentionAndQuota() throws IOException {
+        Path root = tempFolder.getRoot().toPath();
+        BatchStorage storage = new BatchStorage(root, 30 * DAY, 0, 250);
+        for (int i = 1; i <= 4; i++) {
+            Path directory = storage.create("batch_" + i);
+            write(directory.resolve("out.txt"), new String(new char[100]), (40 - i * 10) * DAY);
+            storage.complete("batch_" + i);
+        }
+        // Being processed: never removed, whatever its size
+        write(storage.create("batch_5").resolve("out.txt"), new String(new char[1000]), 0);
+        
+        storage.sweep();
+        
+        // batch_1 is past retention, batch_2 goes to get under the quota
+        assertNull(storage.getBatch("batch_1"));
+        assertNull(storage.getBatch("batch_2"));
+        assertNotNull(storage.getBatch("batch_3"));
+        assertNotNull(storage.getBatch("batch_4"));
+        assertNotNull(storage.getBatch("batch_5"));
+        // Their directories go with the next sweep, after any download handed off meanwhile
+        assertTrue(Files.exists(root.resolve("batch_1")));
+        storage.sweep();
+        assertFalse(Files.exists(root.resolve("batch_1")));
+        assertFalse(Files.exists(root.resolve("batch_2")));
+    }
+    
+    @Test
+    public void testColdBatchIsCompressed() throws IOException {
+        Path root = tempFolder.getRoot().toPath();
+        BatchStorage storage = new BatchStorage(root, 0, DAY, 0);
+        Path cold = storage.create("cold");
+        write(cold.resolve("out.txt"), "639123456789\n", 2 * DAY);
+        write(cold.resolve(".out.txt.idx"), "index", 2 * DAY);
+        write(cold.resolve(BatchManifest.FILE_NAME), "{}\n", 2 * DAY);
+        storage.complete("cold");
+        Path warm = storage.create("warm");
+        write(warm.resolve("out.txt"), "639123456789\n", 0);
+        storage.complete("warm");
+        
+        storage.sweep();
+        
+        BatchStorage.StoredFile file = storage.find("cold", "out.txt");
+        assertNull(file.getPath());
+        assertEquals(13, file.getLength());
+        assertTrue(Files.exists(cold.resolve("out.txt")));
+        storage.sweep();
+        assertFalse(Files.exists(cold.resolve("out.txt")));
+        // Besides the gzip copy, the index and the manifest are kept
+        assertEquals(file.getGzipLength() + 5 + 3, storage.getBatch("cold").getBytes());
+        // The length inflated downloads announce survives a restart
+        assertEquals(13, new BatchStorage(root, 0, DAY, 0).find("cold", "out.txt").getLength());
+        // The manifest stays plain and the offset index is kept for paging
+        assertTrue(Files.exists(cold.resolve(".out.txt.idx")));
+        assertEquals(cold.resolve(BatchManifest.FILE_NAME), storage.find("cold", BatchManifest.FILE_NAME).getPath());
+        assertNull(storage.find("cold", BatchManifest.FILE_NAME).getGzipPath());
+        assertTrue(storage.getBatch("cold").isCompressed());
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(file.getGzipPath()))) {
+            assertEquals("639123456789\n", new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+        assertNotNull(storage.find("warm", "out.txt").getPath());
+        
+        // Paging brings the plain copy back, and the sweep does not recompress it while it is read
+        BatchStorage.Batch batch = storage.acquire("cold");
+        BatchStorage.StoredFile inflated = storage.inflate(batch, "out.txt");
+        assertEquals("639123456789\n", new String(Files.readAllBytes(inflated.getPath()), StandardCharsets.UTF_8));
+        assertFalse(storage.getBatch("cold").isCompressed());
+        storage.sweep();
+        assertNotNull(storage.find("cold", "out.txt").getPath());
+        storage.release(batch);
+    }
+    
+    @Test
+    public void testBatchBeingReadIsNeitherCompressedNorRemoved() throws Exception {
+        Path root = tempFolder.getRoot().toPath();
+        BatchStorage storage = new BatchStorage(root, DAY, 1, 0);
+        Path cold = storage.create("cold");
+        write(cold.resolve("out.txt"), "639123456789\n", 0);
+        storage.complete("cold");
+        Path old = storage.create("old");
+        write(old.resolve("out.txt"), "639123456789\n", 2 * DAY);
+        storage.complete("old");
+        
+        BatchStorage.Batch coldBatch = storage.acquire("cold");
+        BatchStorage.Batch oldBatch = storage.acquire("old");
+        storage.acquire("old");
+        // Long enough for the batch being read to count as cold
+        Thread.sleep(20);
+        storage.sweep();
+        storage.sweep();
+        assertNotNull(storage.find("cold", "out.txt").getPath());
+        assertTrue(Files.exists(cold.resolve("out.txt")));
+        assertNotNull(storage.getBatch("old"));
+        assertTrue(Files.exists(old.resolve("out.txt")));
+        
+        // Once every reader is done, the sweep goes ahead
+        storage.release(coldBatch);
+        storage.release(oldBatch);
+        Thread.sleep(20);
+        storage.sweep();
+        assertNotNull(storage.getBatch("old"));
+        storage.release(oldBatch);
+        storage.sweep();
+        assertNull(storage.getBatch("old"));
+        assertNull(storage.find("cold", "out.txt").getPath());
+        assertNull(storage.acquire("old"));
+    }
+    
+    @Test
+    public void testSettingsAreValidated() throws IOException {
+        String property = "whitelist.storage.test";
+        try {
+            assertEquals(24, BatchStorage.getSetting(property, 24, 0));
+            System.setProperty(property, " 10 ");
+            assertEquals(10, BatchStorage.getSetting(property, 24, 0));
+            for (String invalid : new String[] {"-1", "ten", ""}) {
+                System.setProperty(property, invalid);
+                try {
+                    BatchStorage.getSetting(property, 24, 0);
+                    fail("Accepted " + invalid);
+                } catch (IOException e) {
+                    assertTrue(e.getMessage().startsWith("Invalid " + property + ": '" + invalid + "'"));
+                }
+            }
+        } finally {
+            System.clearProperty(property);
+        }
+    }
+    
+    @Test
+    public void testLegacyRootIsKeptWhileItHoldsBatches() throws IOException {
+        Path legacy = tempFolder.newFolder("webapp", "processed_whitelists").toPath();
+        Path defaultRoot = tempFolder.getRoot().toPath().resolve("home");
+        
+        assertEquals(defaultRoot, BatchStorage.chooseRoot(null, legacy, defaultRoot));
+        assertEquals(defaultRoot, BatchStorage.chooseRoot(null, null, defaultRoot));
+        Files.createDirectories(legacy.resolve(".index"));
+        assertEquals(defaultRoot, BatchStorage.chooseRoot(null, legacy, defaultRoot));
+        
+        Files.createDirectories(legacy.resolve("batch_20240101_000000"));
+        assertEquals(legacy, BatchStorage.chooseRoot(null, legacy, defaultRoot));
+        // A configured directory always wins
+        assertEquals(defaultRoot.resolve("configured"),
+                     BatchStorage.chooseRoot(defaultRoot.resolve("configured").toString(), legacy, defaultRoot));
+    }
+    
+    private static void write(Path path, String content, long ageMillis) throws IOException {
+        Files.write(path, content.getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis() - ageMillis));
+    }
+}
\ No newline at end of file
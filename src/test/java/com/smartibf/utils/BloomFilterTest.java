@@ -0,0 +1,50 @@
+// src/test/java/com/smartibf/utils/BloomFilterTest.java
+package com.smartibf.utils;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class BloomFilterTest {
+    
+    @Test
+    public void testNoFalseNegatives() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        for (long n = 639_000_000_000L; n < 639_000_010_000L; n++) {
+            filter.add(n);
+        }
+        
+        for (long n = 639_000_000_000L; n < 639_000_010_000L; n++) {
+            assertTrue(filter.mightContain(n));
+        }
+        assertEquals(10_000, filter.size());
+    }
+    
+    @Test
+    public void testFalsePositiveRate() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        Random random = new Random(42);
+        for (int i = 0; i < 10_000; i++) {
+            filter.add(639_000_000_000L + random.nextInt(500_000_000));
+        }
+        
+        // Numbers above the added range were never added
+        int falsePositives = 0;
+        for (long n = 639_600_000_000L; n < 639_600_100_000L; n++) {
+            if (filter.mightContain(n)) {
+                falsePositives++;
+            }
+        }
+        
+        assertTrue("False positives: " + falsePositives, falsePositives < 2_000);
+        assertEquals(0.01, filter.getExpectedFalsePositiveRate(), 0.005);
+        assertTrue(filter.getMemoryBytes() < 16 * 1024);
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsInvalidRate() {
+        new BloomFilter(100, 0);
+    }
+}
\ No newline at end of file
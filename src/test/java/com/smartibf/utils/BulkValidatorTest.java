@@ -0,0 +1,82 @@
+// src/test/java/com/smartibf/utils/BulkValidatorTest.java
+package com.smartibf.utils;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import static org.junit.Assert.*;
+
+public class BulkValidatorTest {
+    
+    private final BulkValidator validator = new BulkValidator(new FileProcessor());
+    
+    @Test
+    public void testJsonArray() throws IOException {
+        StringWriter out = new StringWriter();
+        BulkValidator.Summary summary = validator.validate(
+            new StringReader(" [\"09171234567\", 639171234567, \"abc\\\"\\u0041\", null,\n\"6391712\" ] "), false,
+            out, false, -1, 100);
+        
+        assertNull(summary.getErrorMessage());
+        assertEquals(5, summary.getTotalRecords());
+        assertEquals(1, summary.getValidRecords());
+        assertEquals(3, summary.getInvalidRecords());
+        assertEquals(1, summary.getDuplicateRecords());
+        assertEquals("{\"results\":["
+                     + "{\"valid\":true,\"number\":\"639171234567\"},"
+                     + "{\"valid\":false,\"input\":\"639171234567\",\"reason\":\"DUPLICATE\",\"text\":\"Duplicate of\","
+                     + "\"number\":\"639171234567\",\"first\":0},"
+                     + "{\"valid\":false,\"input\":\"abc\\\"A\",\"reason\":\"ALPHABETIC\","
+                     + "\"text\":\"Contains alphabetic characters\"},"
+                     + "{\"valid\":false,\"input\":\"\",\"reason\":\"EMPTY_LINE\",\"text\":\"Empty line\"},"
+                     + "{\"valid\":false,\"input\":\"6391712\",\"reason\":\"TOO_SHORT\","
+                     + "\"text\":\"Too short (should be 12 digits)\"}"
+                     + "],\"total\":5,\"valid\":1,\"invalid\":3,\"duplicates\":1}", out.toString());
+    }
+    
+    @Test
+    public void testNdjson() throws IOException {
+        StringWriter out = new StringWriter();
+        validator.validate(new StringReader("\"09171234567\"\r\n\n639181234567\n"), true, out, true, -1, 100);
+        assertEquals("{\"valid\":true,\"number\":\"639171234567\"}\n"
+                     + "{\"valid\":true,\"number\":\"639181234567\"}\n", out.toString());
+    }
+    
+    @Test
+    public void testMalformedRequestEndsWithError() throws IOException {
+        StringWriter out = new StringWriter();
+        BulkValidator.Summary summary = validator.validate(
+            new StringReader("[\"09171234567\", {\"number\": 1}]"), false, out, false, -1, 100);
+        assertEquals(1, summary.getTotalRecords());
+        assertEquals("Expected a string or number but found '{' at offset 17", summary.getErrorMessage());
+        assertTrue(out.toString().endsWith("],\"error\":\"Expected a string or number but found '{' at offset 17\","
+                                           + "\"total\":1,\"valid\":1,\"invalid\":0,\"duplicates\":0}"));
+        
+        out = new StringWriter();
+        summary = validator.validate(new StringReader("1\n2\n3\n"), true, out, true, -1, 2);
+        assertEquals(2, summary.getTotalRecords());
+        assertTrue(out.toString().endsWith("{\"error\":\"More than 2 records in one request\"}\n"));
+        
+        // Exactly the limit is fine
+        summary = validator.validate(new StringReader("[1,2]"), false, new StringWriter(), false, -1, 2);
+        assertNull(summary.getErrorMessage());
+    }
+    
+    @Test
+    public void testLargeRequest() throws IOException {
+        StringBuilder request = new StringBuilder("[");
+        for (int i = 0; i < 100000; i++) {
+            request.append(i == 0 ? "" : ",").append('"').append(639170000000L + i % 90000).append('"');
+        }
+        request.append(']');
+        
+        BulkValidator.Summary summary = validator.validate(new StringReader(request.toString()), false,
+                                                           new StringWriter(), true, request.length(), 200000);
+        assertEquals(100000, summary.getTotalRecords());
+        assertEquals(90000, summary.getValidRecords());
+        assertEquals(10000, summary.getDuplicateRecords());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,36 @@
+// src/test/java/com/smartibf/utils/ByteRangeTest.java
+package com.smartibf.utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ByteRangeTest {
+    
+    @Test
+    public void testRanges() {
+        ByteRange range = ByteRange.parse("bytes=100-199", 1000);
+        assertEquals(100, range.getStart());
+        assertEquals(199, range.getEnd());
+        assertEquals(100, range.getLength());
+        
+        // Open-ended and suffix ranges
+        assertEquals(999, ByteRange.parse("bytes=500-", 1000).getEnd());
+        assertEquals(900, ByteRange.parse("bytes=-100", 1000).getStart());
+        
+        // End past the file is clamped
+        assertEquals(999, ByteRange.parse("bytes=0-5000", 1000).getEnd());
+    }
+    
+    @Test
+    public void testIgnoredAndUnsatisfiable() {
+        assertNull(ByteRange.parse(null, 1000));
+        assertNull(ByteRange.parse("bytes=0-1,5-6", 1000));
+        assertNull(ByteRange.parse("items=0-1", 1000));
+        assertNull(ByteRange.parse("bytes=abc-", 1000));
+        
+        assertSame(ByteRange.UNSATISFIABLE, ByteRange.parse("bytes=1000-", 1000));
+        assertSame(ByteRange.UNSATISFIABLE, ByteRange.parse("bytes=5-2", 1000));
+        assertSame(ByteRange.UNSATISFIABLE, ByteRange.parse("bytes=-0", 1000));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,40 @@
+// src/test/java/com/smartibf/utils/ChannelOutputTest.java
+package com.smartibf.utils;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.*;
+
+public class ChannelOutputTest {
+    
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+    
+    @Test
+    public void testTextLongerThanTheBuffer() throws IOException {
+        Path path = tempFolder.getRoot().toPath().resolve("out.txt");
+        StringBuilder ascii = new StringBuilder();
+        for (int i = 0; ascii.length() < 600 * 1024; i++) {
+            ascii.append(i % 10);
+        }
+        String utf8 = "ñ" + ascii;
+        
+        try (ChannelOutput out = new ChannelOutput(path)) {
+            out.putNumber(639171234567L);
+            out.putByte('\n');
+            out.putText(ascii);
+            out.putByte('\n');
+            out.putText(utf8);
+        }
+        
+        assertEquals("639171234567\n" + ascii + "\n" + utf8,
+                     new String(Files.readAllBytes(path), StandardCharsets.UTF_8));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,145 @@
+// src/test/java/com/smartibf/utils/ChunkedUploadTest.java
+package com.smartibf.utils;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class ChunkedUploadTest {
+    
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+    
+    @Test
+    public void testResumeFromReportedOffset() throws Exception {
+        ChunkedUpload upload = new ChunkedUpload("u1", "numbers.txt", tempFolder.getRoot().toPath().resolve("u1.upload"));
+        
+        assertTrue(upload.append(body("639123456789\n"), 0, 1024));
+        assertEquals(13, upload.getReceived());
+        
+        // A resent or skipped chunk is refused without writing anything
+        assertFalse(upload.append(body("639123456789\n"), 0, 1024));
+        assertFalse(upload.append(body("639555666777\n"), 26, 1024));
+        assertEquals(13, upload.getReceived());
+        
+        assertTrue(upload.append(body("09987654321\n"), 13, 1024));
+        upload.complete();
+        
+        assertEquals("639123456789\n09987654321\n", read(upload.openStream()));
+        upload.close();
+    }
+    
+    @Test(expected = IOException.class)
+    public void testChunkSizeLimit() throws Exception {
+        ChunkedUpload upload = new ChunkedUpload("u2", "numbers.txt", tempFolder.getRoot().toPath().resolve("u2.upload"));
+        upload.append(body("639123456789\n"), 0, 4);
+    }
+    
+    @Test
+    public void testProcessingOverlapsUpload() throws Exception {
+        ChunkedUpload upload = new ChunkedUpload("u3", "numbers.txt", tempFolder.getRoot().toPath().resolve("u3.upload"));
+        Path output = tempFolder.getRoot().toPath().resolve("numbers_cleaned.txt");
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        
+        try {
+            // Processing starts before any chunk has arrived
+            Future<FileProcessor.StreamSummary> result = executor.submit(() -> new FileProcessor()
+                .processWhitelistStream(upload.openStream(), "numbers.txt", output.toString()));
+            
+            String[] chunks = {"6391234", "56789\n0998765", "4321\ninvalid\n639123456789"};
+            long offset = 0;
+            for (String chunk : chunks) {
+                assertTrue(upload.append(body(chunk), offset, 1024));
+                offset += chunk.length();
+                assertFalse(result.isDone());
+            }
+            upload.complete();
+            
+            FileProcessor.StreamSummary summary = result.get(10, TimeUnit.SECONDS);
+            assertEquals(4, summary.getTotalRecords());
+            assertEquals(2, summary.getValidCount());
+            assertEquals(1, summary.getInvalidRecords());
+            assertEquals(1, summary.getDuplicates());
+            assertTrue(Files.exists(output));
+        } finally {
+            executor.shutdownNow();
+            upload.close();
+        }
+    }
+    
+    @Test
+    public void testIdleUploadIsEvicted() throws Exception {
+        Path staging = tempFolder.getRoot().toPath().resolve(".uploads");
+        ChunkedUpload upload = ChunkedUploads.create("numbers.txt", staging);
+        assertTrue(upload.append(body("639123456789\n"), 0, 1024));
+        
+        ChunkedUploads.evictIdle(System.currentTimeMillis());
+        assertSame(upload, ChunkedUploads.get(upload.getId()));
+        
+        ChunkedUploads.evictIdle(System.currentTimeMillis() + TimeUnit.HOURS.toMillis(2));
+        assertNull(ChunkedUploads.get(upload.getId()));
+        assertFalse(Files.exists(staging.resolve(upload.getId() + ".upload")));
+        try {
+            upload.openStream().read();
+            fail("Read an evicted upload");
+        } catch (IOException e) {
+            // The job processing it fails instead of waiting
+        }
+    }
+    
+    @Test
+    public void testStreamIsProcessedOnTheCallingThread() throws Exception {
+        ChunkedUpload upload = new ChunkedUpload("u4", "numbers.txt", tempFolder.getRoot().toPath().resolve("u4.upload"));
+        assertTrue(upload.append(body("639123456789\n"), 0, 1024));
+        upload.complete();
+        Thread caller = Thread.currentThread();
+        boolean[] onCaller = {true};
+        ProcessingProgress progress = new ProcessingProgress() {
+            @Override
+            public void add(long valid, long invalid, long duplicates) {
+                onCaller[0] &= Thread.currentThread() == caller;
+                super.add(valid, invalid, duplicates);
+            }
+        };
+        
+        try {
+            List<ProcessingSummary> summaries = new BatchProcessor(new FileProcessor()).processStream(
+                tempFolder.newFolder("batch").toString(), "batch", upload.openStream(), "numbers.txt", progress, null);
+            assertEquals(1, summaries.get(0).getValidRecords());
+            assertEquals(1, progress.getValidRecords());
+            // A stream waiting for chunks never holds a file worker
+            assertTrue(onCaller[0]);
+        } finally {
+            upload.close();
+        }
+    }
+    
+    private static InputStream body(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.US_ASCII));
+    }
+    
+    private static String read(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[5];
+        int n;
+        while ((n = in.read(buffer)) > 0) {
+            out.write(buffer, 0, n);
+        }
+        return new String(out.toByteArray(), StandardCharsets.US_ASCII);
+    }
+}
\ No newline at end of file
@@ -12,6 +12,8 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.EnumMap;
+import java.util.Map;
 
 import static org.junit.Assert.*;
 
@@ -107,6 +109,184 @@ public class FileProcessorTest {
         assertTrue(outputContent.contains("639999000111"));
     }
     
+    @Test
+    public void testStreamingProcessFile() throws IOException {
+        // Process the test file in streaming mode
+        FileProcessor.StreamSummary summary = processor.processWhitelistFile(testFile.toString(), outputFile.toString());
+        
+        assertEquals(7, summary.getTotalRecords());
+        assertEquals(4, summary.getValidCount());
+        assertEquals(2, summary.getInvalidRecords());
+        assertEquals(1, summary.getDuplicates());
+        
+        // Verify the output keeps the sections in the expected order
+        String outputContent = new String(Files.readAllBytes(outputFile));
+        assertTrue(outputContent.contains("# Valid records: 4"));
+        assertTrue(outputContent.indexOf("## VALID NUMBERS") < outputContent.indexOf("639999000111"));
+        assertTrue(outputContent.indexOf("639999000111") < outputContent.indexOf("## INVALID NUMBERS"));
+        assertTrue(outputContent.contains("invalid # Contains alphabetic characters"));
+        assertTrue(outputContent.contains("639123456789 # Duplicate of 639123456789"));
+        
+        // Spool files are removed once the output is assembled
+        assertFalse(Files.exists(Paths.get(outputFile + ".valid.tmp")));
+        assertFalse(Files.exists(Paths.get(outputFile + ".invalid.tmp")));
+    }
+    
+    @Test
+    public void testParallelMatchesSequential() throws IOException {
+        // Build a file with duplicates, blank lines and mixed line endings
+        java.util.Random random = new java.util.Random(3);
+        StringBuilder content = new StringBuilder();
+        String[] endings = {"\n", "\r\n", "\r"};
+        for (int i = 0; i < 20000; i++) {
+            int kind = random.nextInt(10);
+            if (kind == 0) {
+                content.append("  ");
+            } else if (kind == 1) {
+                content.append("abc").append(i);
+            } else {
+                content.append(kind % 2 == 0 ? "0" : "63").append(9000000000L + random.nextInt(5000));
+            }
+            content.append(endings[random.nextInt(endings.length)]);
+        }
+        Files.write(testFile, content.toString().getBytes(StandardCharsets.UTF_8));
+        
+        FileProcessor.ProcessResult sequential = processor.processWhitelistFile(testFile.toString());
+        // Small chunks so the file is split into many ranges
+        FileProcessor.ProcessResult parallel = processor.processWhitelistFileParallel(testFile.toString(), 4096);
+        
+        assertEquals(sequential.getTotalRecords(), parallel.getTotalRecords());
+        assertEquals(sequential.getValidCount(), parallel.getValidCount());
+        assertEquals(sequential.getInvalidRecords(), parallel.getInvalidRecords());
+        assertEquals(sequential.getDuplicates(), parallel.getDuplicates());
+        assertEquals(sequential.getValidNumbers(), parallel.getValidNumbers());
+        assertEquals(new java.util.ArrayList<>(sequential.getInvalidNumbersWithReasons().entrySet()),
+                     new java.util.ArrayList<>(parallel.getInvalidNumbersWithReasons().entrySet()));
+    }
+    
+    @Test
+    public void testMappedMatchesReader() throws IOException {
+        // Mix ASCII numbers with multi-byte characters, tabs and blank lines
+        String[] samples = {"639123456789", "0912 345 6789", "\t", "", "+63\u00A0917\u00A01234567", "\u0663\u0663",
+                            "639123456789", "ABC123", "  09987654321  ", "\u00E9", "639-555-666-777"};
+        java.util.Random random = new java.util.Random(11);
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            content.append(samples[random.nextInt(samples.length)]).append(random.nextBoolean() ? "\n" : "\r\n");
+        }
+        Files.write(testFile, content.toString().getBytes(StandardCharsets.UTF_8));
+        
+        FileProcessor.ProcessResult mapped = processor.processWhitelistFile(testFile.toString());
+        FileProcessor.ProcessResult read;
+        try (java.io.InputStream in = Files.newInputStream(testFile)) {
+            read = processor.processWhitelistStream(in, testFile.toString());
+        }
+        
+        assertEquals(read.getTotalRecords(), mapped.getTotalRecords());
+        assertEquals(read.getInvalidRecords(), mapped.getInvalidRecords());
+        assertEquals(read.getDuplicates(), mapped.getDuplicates());
+        assertEquals(read.getValidNumbers(), mapped.getValidNumbers());
+        assertEquals(new java.util.ArrayList<>(read.getInvalidNumbersWithReasons().entrySet()),
+                     new java.util.ArrayList<>(mapped.getInvalidNumbersWithReasons().entrySet()));
+    }
+    
+    @Test
+    public void testInvalidRecordColumns() throws IOException {
+        String content = "bad\n639123456789\nbad\n09123456789\n";
+        FileProcessor.ProcessResult result = processor.processWhitelistStream(
+            new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)), "test.txt");
+        
+        // Repeated invalid lines are all kept, with their line numbers and reasons
+        assertEquals(3, result.getInvalidLineCount());
+        assertEquals(0, result.getInvalidLineIndex(0));
+        assertEquals(2, result.getInvalidLineIndex(1));
+        assertEquals(InvalidReason.ALPHABETIC, result.getInvalidReason(1));
+        assertEquals(3, result.getInvalidLineIndex(2));
+        assertEquals(InvalidReason.DUPLICATE, result.getInvalidReason(2));
+        assertEquals("Duplicate of 639123456789", result.getInvalidReasonText(2));
+        
+        // Duplicates point at the line where the number first appeared
+        assertEquals(1, result.getFirstOccurrenceLineIndex(2));
+        assertEquals(-1, result.getFirstOccurrenceLineIndex(0));
+        
+        assertEquals(639123456789L, result.getValidNumber(0));
+        assertEquals(1, result.validNumberStream().count());
+    }
+    
+    @Test
+    public void testRejectedByReason() throws IOException {
+        String content = "bad\n639123456789\nbad\n09123456789\n639123\n\n";
+        FileProcessor.ProcessResult result = processor.processWhitelistStream(
+            new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)), "test.txt");
+        
+        Map<InvalidReason, Integer> expected = new EnumMap<>(InvalidReason.class);
+        expected.put(InvalidReason.ALPHABETIC, 2);
+        expected.put(InvalidReason.TOO_SHORT, 1);
+        expected.put(InvalidReason.EMPTY_LINE, 1);
+        expected.put(InvalidReason.DUPLICATE, 1);
+        assertEquals(expected, result.getRejectedByReason());
+        
+        // The streaming path counts the same histogram
+        Files.write(testFile, content.getBytes(StandardCharsets.UTF_8));
+        FileProcessor.StreamSummary summary = processor.processWhitelistFile(testFile.toString(), outputFile.toString());
+        assertEquals(expected, summary.getRejectedByReason());
+    }
+    
+    @Test
+    public void testPipelineSpansManyBlocks() throws IOException {
+        // Enough lines to pass many blocks between the read, validate and write stages
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 50000; i++) {
+            content.append(639100000000L + i % 30000).append('\n');
+            if (i % 7 == 0) {
+                content.append("bad").append(i).append('\n');
+            }
+        }
+        byte[] bytes = content.toString().getBytes(StandardCharsets.UTF_8);
+        Files.write(testFile, bytes);
+        
+        FileProcessor.StreamSummary mapped = processor.processWhitelistFile(testFile.toString(), outputFile.toString());
+        String mappedOutput = withoutTimestamp(outputFile);
+        FileProcessor.StreamSummary streamed = processor.processWhitelistStream(
+            new ByteArrayInputStream(bytes), "test.txt", outputFile.toString());
+        
+        assertEquals(30000, streamed.getValidCount());
+        assertEquals(20000, streamed.getDuplicates());
+        assertEquals(mapped.getInvalidRecords(), streamed.getInvalidRecords());
+        assertEquals(mappedOutput, withoutTimestamp(outputFile));
+    }
+    
+    private static String withoutTimestamp(Path file) throws IOException {
+        return new String(Files.readAllBytes(file), StandardCharsets.UTF_8).replaceFirst("# Processed on: [^\\n]*", "");
+    }
+    
+    @Test(timeout = 10000)
+    public void testWriterFailureIsReported() throws IOException {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 100000; i++) {
+            content.append(639100000000L + i).append('\n');
+        }
+        ResultWriter failing = number -> {
+            throw new IOException("Disk full");
+        };
+        
+        try {
+            processor.processWhitelistStream(new ByteArrayInputStream(content.toString().getBytes(StandardCharsets.UTF_8)),
+                                             "test.txt", outputFile.toString(), null, java.util.Collections.singletonList(failing));
+            fail("Expected the write failure");
+        } catch (IOException e) {
+            assertEquals("Disk full", e.getMessage());
+        }
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void testStreamSizeLimit() throws IOException {
+        // The in-memory stream path still enforces the 1MB limit
+        byte[] content = new byte[1024 * 1024 + 1];
+        java.util.Arrays.fill(content, (byte) '9');
+        processor.processWhitelistStream(new ByteArrayInputStream(content), "big.txt");
+    }
+    
     @Test(expected = IllegalArgumentException.class)
     public void testInvalidFileExtension() throws IOException {
         // Create a temporary file with wrong extension
@@ -0,0 +1,33 @@
+// src/test/java/com/smartibf/utils/JsonTest.java
+package com.smartibf.utils;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import static org.junit.Assert.*;
+
+public class JsonTest {
+    
+    @Test
+    public void testQuote() {
+        assertEquals("\"639171234567\"", Json.quote("639171234567"));
+        assertEquals("\"\"", Json.quote(""));
+        assertEquals("null", Json.quote(null));
+        assertEquals("\"say \\\"hi\\\" C:\\\\dir\"", Json.quote("say \"hi\" C:\\dir"));
+        assertEquals("\"a\\u0009b\\u000a\\u001f\"", Json.quote("a\tb\n\u001f"));
+        assertEquals("\"Señor \u2603\"", Json.quote("Señor \u2603"));
+    }
+    
+    @Test
+    public void testQuoteToAppendable() throws IOException {
+        StringWriter out = new StringWriter();
+        out.write('[');
+        Json.quote(out, new StringBuilder("\"x\"\r"));
+        out.write(',');
+        Json.quote(out, null);
+        out.write(']');
+        assertEquals("[\"\\\"x\\\"\\u000d\",null]", out.toString());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,101 @@
+// src/test/java/com/smartibf/utils/LongHashSetTest.java
+package com.smartibf.utils;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class LongHashSetTest {
+    
+    @Test
+    public void testAddAndContains() {
+        LongHashSet set = new LongHashSet();
+        
+        assertTrue(set.add(639123456789L));
+        assertFalse(set.add(639123456789L));
+        assertTrue(set.contains(639123456789L));
+        assertFalse(set.contains(639987654321L));
+        
+        // Zero is tracked separately from the empty slot marker
+        assertFalse(set.contains(0L));
+        assertTrue(set.add(0L));
+        assertFalse(set.add(0L));
+        assertEquals(2, set.size());
+    }
+    
+    @Test
+    public void testForEachVisitsEveryValueOnce() {
+        LongHashSet set = new LongHashSet(4, true);
+        Set<Long> expected = new HashSet<>();
+        for (long value = 0; value < 1000; value++) {
+            set.add(639000000000L + value * 7);
+            expected.add(639000000000L + value * 7);
+        }
+        set.add(0L);
+        expected.add(0L);
+        
+        Set<Long> visited = new HashSet<>();
+        set.forEach(value -> assertTrue(visited.add(value)));
+        assertEquals(expected, visited);
+    }
+    
+    @Test
+    public void testPutIfAbsentKeepsFirstPosition() {
+        LongHashSet set = new LongHashSet(4, false);
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(LongHashSet.ABSENT, set.putIfAbsent(639000000000L + i, i));
+        }
+        assertEquals(LongHashSet.ABSENT, set.putIfAbsent(0L, 5000));
+        
+        // Positions survive resizing and are not overwritten by later adds
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, set.putIfAbsent(639000000000L + i, 2000 + i));
+        }
+        assertEquals(5000, set.putIfAbsent(0L, 6000));
+    }
+    
+    @Test
+    public void testPutIfLowerKeepsLowestPosition() {
+        LongHashSet set = new LongHashSet(4, false);
+        assertEquals(LongHashSet.ABSENT, set.putIfLower(639123456789L, 3));
+        assertEquals(3, set.putIfLower(639123456789L, 5));
+        assertEquals(3, set.putIfLower(639123456789L, 1));
+        assertEquals(1, set.positionOf(639123456789L));
+        
+        assertEquals(LongHashSet.ABSENT, set.positionOf(0L));
+        assertEquals(LongHashSet.ABSENT, set.putIfLower(0L, 2));
+        assertEquals(2, set.putIfLower(0L, 0));
+        assertEquals(0, set.positionOf(0L));
+        assertEquals(LongHashSet.ABSENT, set.positionOf(639987654321L));
+    }
+    
+    @Test
+    public void testGrowthMatchesHashSet() {
+        // Start small so the table has to resize several times
+        checkAgainstHashSet(new LongHashSet(4, false));
+    }
+    
+    @Test
+    public void testOffHeap() {
+        LongHashSet set = new LongHashSet(4, true);
+        assertTrue(set.isOffHeap());
+        checkAgainstHashSet(set);
+    }
+    
+    private void checkAgainstHashSet(LongHashSet set) {
+        Set<Long> expected = new HashSet<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 100000; i++) {
+            long value = 639000000000L + random.nextInt(50000);
+            assertEquals(expected.add(value), set.add(value));
+        }
+        assertEquals(expected.size(), set.size());
+        for (long value : expected) {
+            assertTrue(set.contains(value));
+        }
+    }
+}
\ No newline at end of file
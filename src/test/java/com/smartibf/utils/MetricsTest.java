@@ -0,0 +1,92 @@
+// src/test/java/com/smartibf/utils/MetricsTest.java
+package com.smartibf.utils;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class MetricsTest {
+    
+    @Test
+    public void testCounterRendering() {
+        Metrics.Counter counter = Metrics.counter("test_events_total", "Test events", "kind", "a");
+        counter.increment();
+        counter.add(4);
+        
+        assertSame(counter, Metrics.counter("test_events_total", "Test events", "kind", "a"));
+        assertEquals(5, counter.get());
+        
+        String text = Metrics.scrape();
+        assertTrue(text.contains("# HELP test_events_total Test events\n"));
+        assertTrue(text.contains("# TYPE test_events_total counter\n"));
+        assertTrue(text.contains("test_events_total{kind=\"a\"} 5\n"));
+    }
+    
+    @Test
+    public void testHistogramBucketsAreCumulative() {
+        Metrics.Histogram histogram = Metrics.histogram("test_duration_seconds", "Test durations");
+        histogram.record(TimeUnit.MICROSECONDS.toNanos(50));
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(3));
+        histogram.record(TimeUnit.MINUTES.toNanos(10));
+        
+        String text = Metrics.scrape();
+        assertTrue(text.contains("test_duration_seconds_bucket{le=\"1.0E-4\"} 1\n"));
+        assertTrue(text.contains("test_duration_seconds_bucket{le=\"0.005\"} 2\n"));
+        assertTrue(text.contains("test_duration_seconds_bucket{le=\"300.0\"} 2\n"));
+        assertTrue(text.contains("test_duration_seconds_bucket{le=\"+Inf\"} 3\n"));
+        assertTrue(text.contains("test_duration_seconds_count 3\n"));
+        assertEquals(3, histogram.getCount());
+    }
+    
+    @Test
+    public void testHistogramWithOwnBuckets() {
+        Metrics.Histogram histogram = Metrics.histogram("test_fast_seconds", "Test fast durations",
+                                                        new double[] {1e-7, 1e-6}, "stage", "fast");
+        histogram.record(80);
+        histogram.record(100);
+        histogram.record(400);
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(1));
+        ProcessingMetrics.VALIDATE_TIME.record(30);
+        
+        String text = Metrics.scrape();
+        assertTrue(text.contains("test_fast_seconds_bucket{stage=\"fast\",le=\"1.0E-7\"} 2\n"));
+        assertTrue(text.contains("test_fast_seconds_bucket{stage=\"fast\",le=\"1.0E-6\"} 3\n"));
+        assertTrue(text.contains("test_fast_seconds_bucket{stage=\"fast\",le=\"+Inf\"} 4\n"));
+        
+        // Sub-microsecond validations no longer all land in the first default bucket
+        String validate = "whitelist_stage_duration_seconds_bucket{stage=\"validate\",le=\"";
+        assertTrue(text.contains(validate + "5.0E-8\"}"));
+        assertTrue(text.contains(validate + "1.0E-6\"}"));
+    }
+    
+    @Test
+    public void testFunctionValue() {
+        Metrics.function("test_queue_depth", "Test queue depth", "gauge", () -> 7, "queue", "q\"1");
+        
+        assertTrue(Metrics.scrape().contains("test_queue_depth{queue=\"q\\\"1\"} 7.0\n"));
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void testTypeConflict() {
+        Metrics.counter("test_conflict", "Conflict");
+        Metrics.histogram("test_conflict", "Conflict");
+    }
+    
+    @Test
+    public void testFileOutcomes() {
+        long valid = ProcessingMetrics.VALID_RECORDS.get();
+        long invalid = ProcessingMetrics.INVALID_RECORDS.get();
+        long duplicates = ProcessingMetrics.DUPLICATE_RECORDS.get();
+        int[] rejected = new int[InvalidReason.values().length];
+        rejected[InvalidReason.DUPLICATE.ordinal()] = 2;
+        rejected[InvalidReason.TOO_SHORT.ordinal()] = 3;
+        
+        ProcessingMetrics.recordFile(4, rejected);
+        
+        assertEquals(valid + 4, ProcessingMetrics.VALID_RECORDS.get());
+        assertEquals(invalid + 3, ProcessingMetrics.INVALID_RECORDS.get());
+        assertEquals(duplicates + 2, ProcessingMetrics.DUPLICATE_RECORDS.get());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,52 @@
+// src/test/java/com/smartibf/utils/NumberSpillTest.java
+package com.smartibf.utils;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class NumberSpillTest {
+    
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+    
+    @Test
+    public void testMergeOfSpillsIsSortedAndUnique() throws IOException {
+        Path directory = tempFolder.getRoot().toPath().resolve(".spill");
+        NumberSpill first = new NumberSpill(directory, "first_", 100);
+        NumberSpill second = new NumberSpill(directory, "second_", 100);
+        TreeSet<Long> expected = new TreeSet<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 1000; i++) {
+            long number = 639_000_000_000L + random.nextInt(700);
+            (i % 3 == 0 ? second : first).add(number);
+            expected.add(number);
+        }
+        first.finish();
+        second.finish();
+        assertTrue(first.getRunCount() > 1);
+        
+        long[] merged;
+        try (NumberSpill.Merge merge = NumberSpill.merge(Arrays.asList(first, second))) {
+            merged = Stream.iterate(0, i -> merge.hasNext(), i -> i).mapToLong(i -> merge.nextLong()).toArray();
+        }
+        assertArrayEquals(expected.stream().mapToLong(Long::longValue).toArray(), merged);
+        
+        // Closing a spill deletes its runs
+        first.close();
+        second.close();
+        try (Stream<Path> runs = Files.list(directory)) {
+            assertEquals(0, runs.count());
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,93 @@
+// src/test/java/com/smartibf/utils/NumberingPlansTest.java
+package com.smartibf.utils;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Properties;
+
+import static org.junit.Assert.*;
+
+public class NumberingPlansTest {
+    
+    private NumberingPlans plans;
+    
+    @Before
+    public void setup() {
+        Properties properties = new Properties();
+        properties.setProperty("plans", "ph, sg, gb");
+        properties.setProperty("plan.ph.countryCode", "63");
+        properties.setProperty("plan.ph.nationalPrefix", "0");
+        properties.setProperty("plan.ph.length", "10");
+        properties.setProperty("plan.ph.operatorPrefixes", "905,912,917");
+        properties.setProperty("plan.sg.countryCode", "65");
+        properties.setProperty("plan.sg.length", "8");
+        properties.setProperty("plan.sg.operatorPrefixes", "8,9");
+        properties.setProperty("plan.gb.countryCode", "44");
+        properties.setProperty("plan.gb.nationalPrefix", "0");
+        properties.setProperty("plan.gb.length", "9-10");
+        plans = NumberingPlans.parse(properties);
+    }
+    
+    @Test
+    public void testInternationalFormat() {
+        assertEquals(639171234567L, plans.validate("+63 917 123 4567"));
+        assertEquals(6581234567L, plans.validate("+65 8123-4567"));
+        assertEquals(447911123456L, plans.validate("447911123456"));
+        assertEquals(44201234567L, plans.validate("44 20 1234 567"));
+    }
+    
+    @Test
+    public void testNationalFormatUsesFirstPlan() {
+        // gb also uses 0, but ph is listed first
+        assertEquals(639121234567L, plans.validate("0912 123 4567"));
+        assertEquals(PhoneNumberValidator.UNKNOWN_OPERATOR, plans.validate("07911123456"));
+    }
+    
+    @Test
+    public void testOperatorPrefixes() {
+        assertEquals(PhoneNumberValidator.UNKNOWN_OPERATOR, plans.validate("639001234567"));
+        assertEquals(PhoneNumberValidator.UNKNOWN_OPERATOR, plans.validate("6571234567"));
+    }
+    
+    @Test
+    public void testFailures() {
+        assertEquals(PhoneNumberValidator.NULL_INPUT, plans.validate(null));
+        assertEquals(PhoneNumberValidator.EMPTY_INPUT, plans.validate(" \t"));
+        assertEquals(PhoneNumberValidator.ALPHABETIC, plans.validate("63917abc4567"));
+        assertEquals(PhoneNumberValidator.NO_MATCHING_PLAN, plans.validate("15551234567"));
+        assertEquals(PhoneNumberValidator.NO_MATCHING_PLAN, plans.validate("6"));
+        assertEquals(PhoneNumberValidator.TOO_SHORT, plans.validate("6391"));
+        assertEquals(PhoneNumberValidator.TOO_SHORT, plans.validate("63917123456"));
+        assertEquals(PhoneNumberValidator.TOO_LONG, plans.validate("6391712345678"));
+        assertEquals(PhoneNumberValidator.TOO_LONG, plans.validate("639171234567890123456789"));
+        assertEquals(PhoneNumberValidator.TOO_SHORT, plans.validate("4420123456"));
+    }
+    
+    @Test
+    public void testValidatorUsesPlans() {
+        PhoneNumberValidator validator = new PhoneNumberValidator(plans);
+        
+        assertEquals("6581234567", validator.validateAndFormat("+65 8123 4567"));
+        assertEquals(InvalidReason.UNKNOWN_OPERATOR,
+                     validator.validateAndFormatWithReason("639001234567").getReasonCode());
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void testMissingLength() {
+        Properties properties = new Properties();
+        properties.setProperty("plans", "ph");
+        properties.setProperty("plan.ph.countryCode", "63");
+        NumberingPlans.parse(properties);
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void testOperatorPrefixLongerThanNumber() {
+        Properties properties = new Properties();
+        properties.setProperty("plans", "sg");
+        properties.setProperty("plan.sg.countryCode", "65");
+        properties.setProperty("plan.sg.length", "2");
+        properties.setProperty("plan.sg.operatorPrefixes", "812");
+        NumberingPlans.parse(properties);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,71 @@
+// src/test/java/com/smartibf/utils/OutputFormatTest.java
+package com.smartibf.utils;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class OutputFormatTest {
+    
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+    
+    @Test
+    public void testFormatsWrittenInOnePass() throws Exception {
+        File input = tempFolder.newFile("numbers.txt");
+        Files.write(input.toPath(), ("639123456789\n" +
+                                     "09987654321\n" +
+                                     "say \"hi\"\n" +
+                                     "639123456789\n" +
+                                     "09555000000\n").getBytes(StandardCharsets.UTF_8));
+        Path output = tempFolder.getRoot().toPath().resolve("numbers_cleaned.txt");
+        
+        List<ResultWriter> writers = new ArrayList<>();
+        for (OutputFormat format : OutputFormat.values()) {
+            writers.add(format.open(output.resolveSibling(format.outputFileName("numbers_cleaned.txt"))));
+        }
+        // 639555000000 is kept by an earlier file of the batch
+        new FileProcessor().processUploadedFile(input, "numbers.txt", output.toString(), null, writers,
+                                                number -> number == 639555000000L);
+        for (ResultWriter writer : writers) {
+            writer.close();
+        }
+        
+        assertEquals(Arrays.asList("639123456789", "639987654321"),
+                     Files.readAllLines(output.resolveSibling("numbers_valid.txt")));
+        
+        assertEquals(Arrays.asList("line,status,reason,number,input",
+                                   "1,VALID,,639123456789,",
+                                   "2,VALID,,639987654321,",
+                                   "3,INVALID,ALPHABETIC,,\"say \"\"hi\"\"\"",
+                                   "4,DUPLICATE,DUPLICATE,639123456789,\"639123456789\"",
+                                   "5,DUPLICATE,DUPLICATE_IN_BATCH,639555000000,\"09555000000\""),
+                     Files.readAllLines(output.resolveSibling("numbers_results.csv")));
+        
+        try (DataInputStream in = new DataInputStream(
+                Files.newInputStream(output.resolveSibling("numbers_valid.bin")))) {
+            assertEquals(0x50574C31, in.readInt());
+            assertEquals(2, in.readLong());
+            assertEquals(639123456789L, in.readLong());
+            assertEquals(639987654321L, in.readLong());
+            assertEquals(-1, in.read());
+        }
+    }
+    
+    @Test
+    public void testOutputFileName() {
+        assertEquals("numbers_2_results.csv", OutputFormat.CSV.outputFileName("numbers_2_cleaned.txt"));
+        assertEquals("numbers_valid.bin", OutputFormat.BINARY.outputFileName("numbers_cleaned.txt"));
+    }
+}
\ No newline at end of file
@@ -58,5 +58,57 @@ public class PhoneNumberValidatorTest {
                     validator.validateAndFormatWithReason("").getReason());
         assertEquals("Null input", 
                     validator.validateAndFormatWithReason(null).getReason());
+        
+        assertEquals(InvalidReason.TOO_SHORT, validator.validateAndFormatWithReason("639123").getReasonCode());
+        assertNull(validator.validateAndFormatWithReason("639123456789").getReasonCode());
+    }
+    
+    @Test
+    public void testLongValidation() {
+        // Test the primitive fast path
+        assertEquals(639123456789L, validator.validateToLong("09123456789"));
+        assertEquals(639123456789L, validator.validateToLong("+63 912-345-6789"));
+        assertEquals(PhoneNumberValidator.ALPHABETIC, validator.validateToLong("63912345678a"));
+        assertEquals(PhoneNumberValidator.EMPTY_INPUT, validator.validateToLong(" \t "));
+        assertEquals(PhoneNumberValidator.INVALID_PREFIX, validator.validateToLong("+-"));
+        assertEquals(PhoneNumberValidator.TOO_LONG, validator.validateToLong("63912345678901234567890"));
+    }
+    
+    @Test
+    public void testMatchesRegexPipeline() {
+        // Compare against the original regex-based implementation on random inputs
+        java.util.Random random = new java.util.Random(42);
+        String alphabet = "0123456789 09639+-()#.aZ\t\u00A0\u0663";
+        for (int i = 0; i < 20000; i++) {
+            StringBuilder input = new StringBuilder(random.nextBoolean() ? "639" : "09");
+            int length = random.nextInt(14);
+            for (int j = 0; j < length; j++) {
+                input.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            String expected = referenceReason(input.toString());
+            PhoneNumberValidator.ValidationResult result = validator.validateAndFormatWithReason(input.toString());
+            assertEquals(input.toString(), expected, result.isValid() ? result.getFormattedNumber() : result.getReason());
+        }
+    }
+    
+    private static String referenceReason(String phoneNumber) {
+        String cleaned = phoneNumber.replaceAll("\\s+", "");
+        if (cleaned.isEmpty()) {
+            return "Empty after removing whitespace";
+        }
+        cleaned = cleaned.replaceAll("[^a-zA-Z0-9]", "");
+        if (cleaned.matches(".*[a-zA-Z].*")) {
+            return "Contains alphabetic characters";
+        }
+        if (cleaned.startsWith("09") && cleaned.length() == 11) {
+            cleaned = "63" + cleaned.substring(1);
+        }
+        if (!cleaned.startsWith("639")) {
+            return "Does not start with '639'";
+        }
+        if (cleaned.length() != 12) {
+            return cleaned.length() < 12 ? "Too short (should be 12 digits)" : "Too long (should be 12 digits)";
+        }
+        return cleaned;
     }
 }
\ No newline at end of file
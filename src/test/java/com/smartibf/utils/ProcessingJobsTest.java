@@ -0,0 +1,67 @@
+// src/test/java/com/smartibf/utils/ProcessingJobsTest.java
+package com.smartibf.utils;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class ProcessingJobsTest {
+    
+    @Test
+    public void testProgressIsVisibleWhileTheJobRuns() throws Exception {
+        CountDownLatch counted = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        ProcessingSummary summary = new ProcessingSummary();
+        String[] threadName = new String[1];
+        ProcessingJob job = ProcessingJobs.submit("batch", 2, progress -> {
+            threadName[0] = Thread.currentThread().getName();
+            progress.add(3, 1, 1);
+            progress.fileCompleted();
+            counted.countDown();
+            assertTrue(finish.await(10, TimeUnit.SECONDS));
+            return Collections.singletonList(summary);
+        });
+        
+        assertSame(job, ProcessingJobs.get(job.getId()));
+        assertTrue(counted.await(10, TimeUnit.SECONDS));
+        assertEquals(ProcessingJob.State.RUNNING, job.getState());
+        // Numbered, so the threads of the pool can be told apart in a thread dump
+        assertTrue(threadName[0].matches("whitelist-job-\\d+"));
+        assertEquals(5, job.getProgress().getRecordsProcessed());
+        assertEquals(1, job.getProgress().getFilesCompleted());
+        assertEquals(2, job.getFileCount());
+        assertTrue(ProcessingJobs.getActiveJobCount() >= 1);
+        
+        finish.countDown();
+        awaitFinished(job);
+        assertEquals(ProcessingJob.State.COMPLETED, job.getState());
+        assertEquals(Collections.singletonList(summary), job.getSummaries());
+        assertTrue(job.getFinishedAt() > 0);
+    }
+    
+    @Test
+    public void testFailedJobKeepsItsError() throws Exception {
+        ProcessingJob job = ProcessingJobs.submit("batch", 1, progress -> {
+            throw new IllegalStateException("Disk full");
+        });
+        
+        awaitFinished(job);
+        assertEquals(ProcessingJob.State.FAILED, job.getState());
+        assertEquals("Disk full", job.getErrorMessage());
+        assertTrue(job.getSummaries().isEmpty());
+        assertNull(ProcessingJobs.get(null));
+        assertNull(ProcessingJobs.get("unknown"));
+    }
+    
+    private static void awaitFinished(ProcessingJob job) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+        while (!job.isFinished() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(job.isFinished());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,126 @@
+// src/test/java/com/smartibf/utils/ResultIndexTest.java
+package com.smartibf.utils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ResultIndexTest {
+    
+    private FileProcessor processor;
+    private Path inputFile;
+    private Path outputFile;
+    
+    @Before
+    public void setup() throws IOException {
+        processor = new FileProcessor();
+        inputFile = Files.createTempFile("test_results_", ".txt");
+        outputFile = Paths.get(inputFile.toString().replace(".txt", "_cleaned.txt"));
+        
+        // Enough records for several checkpoints, with multi-byte and separator characters in invalid lines
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 3000; i++) {
+            content.append(639100000000L + i % 2000).append('\n');
+            if (i % 3 == 0) {
+                content.append("número ").append(i).append(" # ☎\n");
+            }
+            if (i % 5 == 0) {
+                content.append("6391").append(i).append('\n');
+            }
+        }
+        Files.write(inputFile, content.toString().getBytes(StandardCharsets.UTF_8));
+    }
+    
+    @After
+    public void cleanup() throws IOException {
+        Files.deleteIfExists(inputFile);
+        Files.deleteIfExists(outputFile);
+        Files.deleteIfExists(ResultIndex.indexPath(outputFile));
+    }
+    
+    @Test
+    public void testPagesMatchOutput() throws IOException {
+        processor.processWhitelistFile(inputFile.toString(), outputFile.toString());
+        assertTrue(Files.exists(ResultIndex.indexPath(outputFile)));
+        checkPages(ResultIndex.open(outputFile));
+    }
+    
+    @Test
+    public void testMissingIndexIsRebuilt() throws IOException {
+        processor.processWhitelistFile(inputFile.toString(), outputFile.toString());
+        byte[] written = Files.readAllBytes(ResultIndex.indexPath(outputFile));
+        Files.delete(ResultIndex.indexPath(outputFile));
+        
+        // Scanning the output gives the same index as counting while it was written
+        checkPages(ResultIndex.open(outputFile));
+        assertArrayEquals(written, Files.readAllBytes(ResultIndex.indexPath(outputFile)));
+    }
+    
+    @Test
+    public void testSavedResultIsIndexedOnDemand() throws IOException {
+        processor.saveToFile(processor.processWhitelistFile(inputFile.toString()), outputFile.toString());
+        assertFalse(Files.exists(ResultIndex.indexPath(outputFile)));
+        checkPages(ResultIndex.open(outputFile));
+    }
+    
+    private void checkPages(ResultIndex index) throws IOException {
+        List<String> valid = new ArrayList<>();
+        List<String> invalid = new ArrayList<>();
+        List<String> tooShort = new ArrayList<>();
+        List<String> lines = Files.readAllLines(outputFile, StandardCharsets.UTF_8);
+        int section = 0;
+        for (String line : lines) {
+            if (line.startsWith("## ")) {
+                section++;
+            } else if (section == 1 && !line.isEmpty()) {
+                valid.add(line);
+            } else if (section == 2) {
+                invalid.add(line);
+                if (line.endsWith(" # " + InvalidReason.TOO_SHORT.getText())) {
+                    tooShort.add(line);
+                }
+            }
+        }
+        
+        assertEquals(2000, index.getValidCount());
+        assertEquals(invalid.size(), index.getInvalidCount(null));
+        assertEquals(tooShort.size(), index.getInvalidCount(InvalidReason.TOO_SHORT));
+        assertEquals(1000, index.getInvalidCount(InvalidReason.DUPLICATE));
+        
+        // Pages that start on, just before and just after a checkpoint
+        for (long from : new long[] {0, 255, 256, 257, 1000, 1990}) {
+            List<ResultIndex.Record> page = index.readValid(from, 20);
+            assertEquals(Math.min(20, 2000 - from), page.size());
+            for (int i = 0; i < page.size(); i++) {
+                assertEquals(valid.get((int) from + i), page.get(i).getLine());
+            }
+            
+            page = index.readInvalid(null, from, 20);
+            for (int i = 0; i < page.size(); i++) {
+                ResultIndex.Record record = page.get(i);
+                assertEquals(invalid.get((int) from + i), record.getLine() + " # " + record.getReasonText());
+            }
+        }
+        
+        List<ResultIndex.Record> page = index.readInvalid(InvalidReason.TOO_SHORT, 300, 50);
+        assertEquals(Math.min(50, tooShort.size() - 300), page.size());
+        for (int i = 0; i < page.size(); i++) {
+            assertEquals(InvalidReason.TOO_SHORT, page.get(i).getReason());
+            assertEquals(tooShort.get(300 + i), page.get(i).getLine() + " # " + page.get(i).getReasonText());
+        }
+        
+        ResultIndex.Record multiByte = index.readInvalid(InvalidReason.ALPHABETIC, 1, 1).get(0);
+        assertEquals("número 3 # ☎", multiByte.getLine());
+        assertTrue(index.readValid(2000, 10).isEmpty());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,70 @@
+// src/test/java/com/smartibf/utils/ValidationCacheTest.java
+package com.smartibf.utils;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class ValidationCacheTest {
+    
+    @Test
+    public void testHitsAndMisses() {
+        ValidationCache cache = new ValidationCache(64);
+        AtomicInteger calls = new AtomicInteger();
+        long hits = ValidationCache.getHits();
+        long misses = ValidationCache.getMisses();
+        
+        for (int i = 0; i < 3; i++) {
+            assertEquals(639171234567L, cache.get("+63 917-123-4567", line -> {
+                calls.incrementAndGet();
+                return 639171234567L;
+            }));
+        }
+        
+        assertEquals(1, calls.get());
+        assertEquals(hits + 2, ValidationCache.getHits());
+        assertEquals(misses + 1, ValidationCache.getMisses());
+    }
+    
+    @Test
+    public void testSizeIsBounded() {
+        ValidationCache cache = new ValidationCache(32);
+        for (int i = 0; i < 1000; i++) {
+            cache.get("line " + i, line -> 0);
+        }
+        assertTrue(cache.size() <= cache.getMaxSize());
+    }
+    
+    @Test
+    public void testCachedValidatorMatchesUncached() throws Exception {
+        PhoneNumberValidator plain = new PhoneNumberValidator();
+        PhoneNumberValidator cached = new PhoneNumberValidator(null, new ValidationCache(256));
+        String[] inputs = {"09171234567", "+63 917-123-4567", "abc", "", "639123", "63912345678901", "639171234567"};
+        
+        // Several threads share one cached validator
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                results.add(executor.submit(() -> {
+                    for (int i = 0; i < 10000; i++) {
+                        String input = inputs[i % inputs.length];
+                        assertEquals(plain.validateToLong(input), cached.validateToLong(input));
+                    }
+                }));
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
\ No newline at end of file
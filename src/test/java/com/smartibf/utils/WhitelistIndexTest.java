@@ -0,0 +1,137 @@
+// src/test/java/com/smartibf/utils/WhitelistIndexTest.java
+package com.smartibf.utils;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class WhitelistIndexTest {
+    
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+    
+    @Test
+    public void testUpdateWritesDelta() throws Exception {
+        Path indexDir = tempFolder.newFolder("index").toPath();
+        WhitelistIndex index = WhitelistIndex.open(indexDir);
+        assertEquals(0, index.size());
+        assertFalse(index.contains(639123456789L));
+        
+        File firstBatch = tempFolder.newFolder("first");
+        WhitelistIndex.Delta first = index.update(
+            new long[] {639111111111L, 639222222222L, 639333333333L}, firstBatch.toPath());
+        assertEquals(3, first.getNewNumbers());
+        assertEquals(0, first.getAlreadyWhitelisted());
+        assertEquals(0, first.getRemovedNumbers());
+        assertTrue(index.contains(639222222222L));
+        
+        // Second upload drops one number of the first and adds another
+        File secondBatch = tempFolder.newFolder("second");
+        WhitelistIndex.Delta second = index.update(
+            new long[] {639111111111L, 639333333333L, 639444444444L}, secondBatch.toPath());
+        assertEquals(1, second.getNewNumbers());
+        assertEquals(2, second.getAlreadyWhitelisted());
+        assertEquals(1, second.getRemovedNumbers());
+        assertEquals(4, second.getIndexSize());
+        
+        assertEquals(Arrays.asList("639444444444"),
+                     readLines(secondBatch, WhitelistIndex.NEW_NUMBERS_FILE_NAME));
+        assertEquals(Arrays.asList("639222222222"),
+                     readLines(secondBatch, WhitelistIndex.REMOVED_NUMBERS_FILE_NAME));
+        
+        // Accepted numbers stay in the index
+        assertTrue(index.contains(639222222222L));
+        assertFalse(index.contains(639555555555L));
+        
+        // Lookups for absent numbers are mostly answered by the Bloom filter
+        for (long n = 639_700_000_000L; n < 639_700_001_000L; n++) {
+            assertFalse(index.contains(n));
+        }
+        assertTrue(index.getFilterRejections() > 900);
+        assertTrue(index.getFilterBytes() > 0);
+    }
+    
+    @Test
+    public void testSharedAndStoredOnDisk() throws Exception {
+        Path indexDir = tempFolder.newFolder("index").toPath();
+        WhitelistIndex.open(indexDir).update(new long[] {639111111111L, 639999999999L},
+                                             tempFolder.newFolder("batch").toPath());
+        
+        // Any path to the same directory shares the instance, and the numbers are on disk as sorted longs
+        WhitelistIndex reopened = WhitelistIndex.open(indexDir.resolve("..").resolve("index"));
+        assertSame(WhitelistIndex.open(indexDir), reopened);
+        assertEquals(2, reopened.size());
+        assertTrue(reopened.contains(639999999999L));
+        assertEquals(16, Files.size(indexDir.resolve("whitelist-0.idx")));
+    }
+    
+    @Test
+    public void testUpdatesOnlyWriteNewNumbersAndSegmentsStayFew() throws Exception {
+        Path indexDir = tempFolder.newFolder("index").toPath();
+        WhitelistIndex index = WhitelistIndex.open(indexDir);
+        long next = 639_100_000_000L;
+        for (int batch = 0; batch < 64; batch++) {
+            // Half of each batch is already whitelisted
+            long[] numbers = new long[200];
+            for (int i = 0; i < 100; i++) {
+                numbers[i] = 639_100_000_000L + i;
+                numbers[100 + i] = ++next + 1000;
+            }
+            WhitelistIndex.Delta delta = index.update(WhitelistIndex.sortedUnique(numbers, numbers.length),
+                                                      tempFolder.newFolder("batch_" + batch).toPath());
+            assertEquals(batch == 0 ? 200 : 100, delta.getNewNumbers());
+            assertEquals(batch == 0 ? 0 : 100, delta.getRemovedNumbers());
+            assertTrue("segments: " + index.getSegmentCount(), index.getSegmentCount() <= 8);
+        }
+        assertEquals(100 + 64 * 100, index.size());
+        
+        // Every segment is one file; replaced segments are deleted by the next update, once no lookup reads them
+        index.update(new long[] {639_100_000_000L}, tempFolder.newFolder("batch_64").toPath());
+        assertEquals(index.getSegmentCount(), segmentFiles(indexDir));
+        assertTrue(index.contains(639_100_000_050L));
+        assertTrue(index.contains(next + 1000));
+    }
+    
+    @Test
+    public void testReplacedSegmentsOutliveTheUpdateThatMergedThem() throws Exception {
+        Path indexDir = tempFolder.newFolder("index").toPath();
+        WhitelistIndex index = WhitelistIndex.open(indexDir);
+        index.update(new long[] {639111111111L}, tempFolder.newFolder("first").toPath());
+        index.update(new long[] {639222222222L}, tempFolder.newFolder("second").toPath());
+        
+        // The two segments were merged, but a lookup may still be reading them
+        assertEquals(1, index.getSegmentCount());
+        assertEquals(3, segmentFiles(indexDir));
+        assertTrue(index.contains(639111111111L));
+        
+        index.update(new long[] {639222222222L}, tempFolder.newFolder("third").toPath());
+        assertEquals(1, segmentFiles(indexDir));
+        assertTrue(index.contains(639222222222L));
+    }
+    
+    @Test
+    public void testSortedUnique() {
+        long[] numbers = {5, 3, 5, 1, 3, 9, 0};
+        assertArrayEquals(new long[] {1, 3, 5, 9}, WhitelistIndex.sortedUnique(numbers, 6));
+    }
+    
+    private static List<String> readLines(File dir, String name) throws Exception {
+        return Files.readAllLines(dir.toPath().resolve(name));
+    }
+    
+    private static long segmentFiles(Path indexDir) throws IOException {
+        try (Stream<Path> files = Files.list(indexDir)) {
+            return files.filter(file -> file.getFileName().toString().startsWith("whitelist-")).count();
+        }
+    }
+}
\ No newline at end of file